@@ -1,6 +1,7 @@
 plugins {
     id("java-library-convention")
     `maven-publish`
+    alias(libs.plugins.jmh)
 }
 
 dependencies {
@@ -9,6 +10,10 @@ dependencies {
     implementation(libs.asm.commons)
 }
 
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+}
+
 publishing {
     repositories {
         maven {
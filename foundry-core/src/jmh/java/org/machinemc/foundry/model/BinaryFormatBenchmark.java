@@ -0,0 +1,126 @@
+package org.machinemc.foundry.model;
+
+import org.machinemc.foundry.Codec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BinaryFormat} with a format written by hand on top of the fields
+ * of {@link DeconstructedObject}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryFormatBenchmark {
+
+    public record Position(double x, double y, double z) {
+    }
+
+    public record Entity(int id, String name, boolean visible, boolean onGround, short health, long lastSeen,
+                         float yaw, float pitch, Position position) {
+    }
+
+    private Entity entity;
+
+    private BinaryFormat<Entity> format;
+    private byte[] encoded;
+
+    private Codec<Entity, DeconstructedObject> deconstructed;
+    private DeconstructedObject schema;
+    private byte[] encodedDeconstructed;
+
+    @Setup
+    public void setup() throws Exception {
+        entity = new Entity(1234, "Zombie", true, false, (short) 20, 1_700_000_000_000L, 90f, -12.5f,
+                new Position(128.5, 64, -32.25));
+
+        format = BinaryFormat.of(Entity.class);
+        encoded = format.encode(entity);
+
+        deconstructed = DeconstructedObject.codec(Entity.class);
+        schema = deconstructed.encode(entity);
+        encodedDeconstructed = encodeDeconstructed();
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryFormat() {
+        return format.encode(entity);
+    }
+
+    @Benchmark
+    public Entity decodeBinaryFormat() {
+        return format.decode(encoded);
+    }
+
+    @Benchmark
+    public byte[] encodeDeconstructed() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (DeconstructedObject.Field field : deconstructed.encode(entity)) {
+            switch (field) {
+                case DeconstructedObject.BoolField f -> output.writeBoolean(f.value());
+                case DeconstructedObject.CharField f -> output.writeChar(f.value());
+                case DeconstructedObject.ByteField f -> output.writeByte(f.value());
+                case DeconstructedObject.ShortField f -> output.writeShort(f.value());
+                case DeconstructedObject.IntField f -> output.writeInt(f.value());
+                case DeconstructedObject.LongField f -> output.writeLong(f.value());
+                case DeconstructedObject.FloatField f -> output.writeFloat(f.value());
+                case DeconstructedObject.DoubleField f -> output.writeDouble(f.value());
+                case DeconstructedObject.ObjectField f when f.value() instanceof String string ->
+                        output.writeUTF(string);
+                case DeconstructedObject.ObjectField f when f.value() instanceof Position position -> {
+                    output.writeDouble(position.x());
+                    output.writeDouble(position.y());
+                    output.writeDouble(position.z());
+                }
+                case DeconstructedObject.ObjectField f -> throw new IOException("Unsupported field " + f.name());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Entity decodeDeconstructed() throws Exception {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(encodedDeconstructed));
+        List<DeconstructedObject.Field> fields = new ArrayList<>(schema.size());
+        for (DeconstructedObject.Field field : schema) {
+            fields.add(switch (field) {
+                case DeconstructedObject.BoolField f ->
+                        new DeconstructedObject.BoolField(f.name(), f.annotatedType(), input.readBoolean());
+                case DeconstructedObject.CharField f ->
+                        new DeconstructedObject.CharField(f.name(), f.annotatedType(), input.readChar());
+                case DeconstructedObject.ByteField f ->
+                        new DeconstructedObject.ByteField(f.name(), f.annotatedType(), input.readByte());
+                case DeconstructedObject.ShortField f ->
+                        new DeconstructedObject.ShortField(f.name(), f.annotatedType(), input.readShort());
+                case DeconstructedObject.IntField f ->
+                        new DeconstructedObject.IntField(f.name(), f.annotatedType(), input.readInt());
+                case DeconstructedObject.LongField f ->
+                        new DeconstructedObject.LongField(f.name(), f.annotatedType(), input.readLong());
+                case DeconstructedObject.FloatField f ->
+                        new DeconstructedObject.FloatField(f.name(), f.annotatedType(), input.readFloat());
+                case DeconstructedObject.DoubleField f ->
+                        new DeconstructedObject.DoubleField(f.name(), f.annotatedType(), input.readDouble());
+                case DeconstructedObject.ObjectField f when f.type() == String.class ->
+                        new DeconstructedObject.ObjectField(f.name(), f.type(), f.annotatedType(), input.readUTF());
+                case DeconstructedObject.ObjectField f when f.type() == Position.class ->
+                        new DeconstructedObject.ObjectField(f.name(), f.type(), f.annotatedType(),
+                                new Position(input.readDouble(), input.readDouble(), input.readDouble()));
+                case DeconstructedObject.ObjectField f -> throw new IOException("Unsupported field " + f.name());
+            });
+        }
+        return deconstructed.decode(new DeconstructedObject(fields));
+    }
+
+}
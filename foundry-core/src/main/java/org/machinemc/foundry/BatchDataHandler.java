@@ -0,0 +1,31 @@
+package org.machinemc.foundry;
+
+import java.util.List;
+
+/**
+ * Represents a {@link DataHandler} that is able to process a whole batch of items at once.
+ * <p>
+ * When a batch is processed by {@link Pipeline#processAll(List)} or {@link Pipeline#processInto(Object[], Object[])},
+ * this handler receives all items of the batch in a single call, allowing it to amortize its setup
+ * (e.g. allocations or compression context) across the batch. Plain data handlers are called
+ * for each item separately.
+ * <p>
+ * Single items are still transformed using {@link #transform(Object)}.
+ *
+ * @param <I> input data type this handler accepts
+ * @param <O> output data type this handler produces
+ */
+public interface BatchDataHandler<I, O> extends DataHandler<I, O> {
+
+    /**
+     * Processes all given instances of type {@link I} and transforms them into instances of type {@link O}.
+     * <p>
+     * The returned list must have the same size as the input, with the items in the same order.
+     * The input list should not be retained by the handler after the call.
+     *
+     * @param instances input data
+     * @return transformed data
+     */
+    List<O> transformAll(List<I> instances) throws Exception;
+
+}
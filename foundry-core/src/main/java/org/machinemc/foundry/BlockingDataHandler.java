@@ -0,0 +1,20 @@
+package org.machinemc.foundry;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Represents a {@link DataHandler} that blocks the thread it runs on, e.g. because it
+ * performs disk or network I/O.
+ * <p>
+ * When a pipeline is processed by {@link Pipeline#processAsync(Object, Executor)}, only
+ * the blocking handlers are submitted to the executor, other handlers run on the thread
+ * that provided their input.
+ * <p>
+ * Existing handlers can be marked as blocking using {@link CommonHandlers#blocking(DataHandler)}.
+ *
+ * @param <I> input data type this handler accepts
+ * @param <O> output data type this handler produces
+ */
+@FunctionalInterface
+public interface BlockingDataHandler<I, O> extends DataHandler<I, O> {
+}
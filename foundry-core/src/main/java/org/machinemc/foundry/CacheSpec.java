@@ -0,0 +1,89 @@
+package org.machinemc.foundry;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Specification of the cache of a {@link CachedDataHandler}.
+ *
+ * @param maximumSize maximum number of cached entries
+ * @param weakKeys whether the keys are weakly referenced, weak keys are compared by identity
+ * @param recordStats whether hit and miss statistics are recorded
+ * @see CommonHandlers#cached(DataHandler, CacheSpec)
+ */
+public record CacheSpec(long maximumSize, boolean weakKeys, boolean recordStats) {
+
+    /**
+     * Creates a new {@link Builder} for a {@link CacheSpec}.
+     *
+     * @return a new builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public CacheSpec {
+        Preconditions.checkArgument(maximumSize >= 0, "Maximum size can not be negative");
+    }
+
+    /**
+     * Builder for the {@link CacheSpec}.
+     */
+    public static final class Builder {
+
+        private long maximumSize = 1024;
+        private boolean weakKeys;
+        private boolean recordStats;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of cached entries, the default is {@code 1024}.
+         * <p>
+         * Once the cache is full, the least recently used entries are evicted.
+         *
+         * @param maximumSize maximum size
+         * @return this builder
+         */
+        public Builder maximumSize(long maximumSize) {
+            Preconditions.checkArgument(maximumSize >= 0, "Maximum size can not be negative");
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Makes the cache reference its keys weakly, so entries of keys that are no
+         * longer used are removed.
+         * <p>
+         * Weak keys are compared by identity instead of {@link Object#equals(Object)}.
+         *
+         * @return this builder
+         */
+        public Builder weakKeys() {
+            weakKeys = true;
+            return this;
+        }
+
+        /**
+         * Enables recording of the cache statistics.
+         *
+         * @return this builder
+         * @see CachedDataHandler#stats()
+         */
+        public Builder recordStats() {
+            recordStats = true;
+            return this;
+        }
+
+        /**
+         * Builds the {@link CacheSpec}.
+         *
+         * @return a new instance of {@link CacheSpec}
+         */
+        public CacheSpec build() {
+            return new CacheSpec(maximumSize, weakKeys, recordStats);
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.machinemc.foundry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Represents a {@link DataHandler} that memoizes results of another handler.
+ * <p>
+ * The cache is concurrent and bounded by the {@link CacheSpec}. Concurrent
+ * transformations of the same input are performed only once. {@code null} results
+ * are cached as well, {@code null} inputs are passed to the handler without caching.
+ * <p>
+ * Handlers are expected to return the same result for equal inputs,
+ * and the results should be immutable, as they are shared.
+ *
+ * @param <I> input data type this handler accepts
+ * @param <O> output data type this handler produces
+ * @see CommonHandlers#cached(DataHandler, CacheSpec)
+ */
+public final class CachedDataHandler<I, O> implements DataHandler<I, O> {
+
+    /**
+     * Represents cached {@code null} result.
+     */
+    private static final Object NULL = new Object();
+
+    private final DataHandler<I, O> handler;
+    private final Cache<Object, Object> cache;
+
+    CachedDataHandler(DataHandler<I, O> handler, CacheSpec spec) {
+        this.handler = handler;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(spec.maximumSize());
+        if (spec.weakKeys()) builder.weakKeys();
+        if (spec.recordStats()) builder.recordStats();
+        cache = builder.build();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public O transform(I instance) throws Exception {
+        if (instance == null) return handler.transform(null);
+        Object result;
+        try {
+            result = cache.get(instance, () -> {
+                O transformed = handler.transform(instance);
+                return transformed != null ? transformed : NULL;
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof Exception e) throw e;
+            if (cause instanceof Error e) throw e;
+            throw exception;
+        }
+        return result != NULL ? (O) result : null;
+    }
+
+    /**
+     * Returns statistics of the cache, all values are zero unless
+     * they are enabled by {@link CacheSpec#recordStats()}.
+     *
+     * @return cache statistics
+     */
+    public Stats stats() {
+        CacheStats stats = cache.stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
+    /**
+     * @return current number of cached entries
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes all cached entries.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Cache statistics of a {@link CachedDataHandler}.
+     *
+     * @param hitCount number of transformations served by the cache
+     * @param missCount number of transformations performed by the handler
+     * @param evictionCount number of evicted entries
+     */
+    public record Stats(long hitCount, long missCount, long evictionCount) {
+
+        /**
+         * @return ratio of transformations served by the cache, {@code 1} if there were none
+         */
+        public double hitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 1 : (double) hitCount / total;
+        }
+
+    }
+
+}
@@ -2,6 +2,10 @@ package org.machinemc.foundry;
 
 import com.google.common.base.Preconditions;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * Represents a bidirectional converter that can transform data between two types.
  * <p>
@@ -77,6 +81,28 @@ public record Codec<A, B>(Pipeline<A, B> encode, Pipeline<B, A> decode) {
         return compose(compose(c1, c2, c3, c4), c5);
     }
 
+    /**
+     * Compiles both encoding and decoding pipelines of this codec.
+     *
+     * @return compiled codec
+     * @see Pipeline#compile()
+     */
+    public Codec<A, B> compile() {
+        return new Codec<>(encode.compile(), decode.compile());
+    }
+
+    /**
+     * Returns codec with instrumented encoding and decoding pipelines.
+     *
+     * @param encodeListener listener for the encoding pipeline
+     * @param decodeListener listener for the decoding pipeline
+     * @return instrumented codec
+     * @see Pipeline#instrument(PipelineListener)
+     */
+    public Codec<A, B> instrument(PipelineListener encodeListener, PipelineListener decodeListener) {
+        return new Codec<>(encode.instrument(encodeListener), decode.instrument(decodeListener));
+    }
+
     /**
      * Processes the given object through the encoding pipeline.
      *
@@ -97,4 +123,50 @@ public record Codec<A, B>(Pipeline<A, B> encode, Pipeline<B, A> decode) {
         return decode.process(obj);
     }
 
+    /**
+     * Processes the given object through the encoding pipeline asynchronously.
+     *
+     * @param obj the object to encode
+     * @param executor executor for the blocking handlers
+     * @return future of the encoded object
+     * @see Pipeline#processAsync(Object, Executor)
+     */
+    public CompletableFuture<B> encodeAsync(A obj, Executor executor) {
+        return encode.processAsync(obj, executor);
+    }
+
+    /**
+     * Processes the given object through the decoding pipeline asynchronously.
+     *
+     * @param obj the object to decode
+     * @param executor executor for the blocking handlers
+     * @return future of the decoded object
+     * @see Pipeline#processAsync(Object, Executor)
+     */
+    public CompletableFuture<A> decodeAsync(B obj, Executor executor) {
+        return decode.processAsync(obj, executor);
+    }
+
+    /**
+     * Processes all given objects through the encoding pipeline.
+     *
+     * @param objs the objects to encode
+     * @return the encoded objects, in the same order
+     * @see Pipeline#processAll(List)
+     */
+    public List<B> encodeAll(List<? extends A> objs) throws Exception {
+        return encode.processAll(objs);
+    }
+
+    /**
+     * Processes all given objects through the decoding pipeline.
+     *
+     * @param objs the objects to decode
+     * @return the decoded objects, in the same order
+     * @see Pipeline#processAll(List)
+     */
+    public List<A> decodeAll(List<? extends B> objs) throws Exception {
+        return decode.processAll(objs);
+    }
+
 }
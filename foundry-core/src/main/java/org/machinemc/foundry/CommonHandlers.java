@@ -1,5 +1,6 @@
 package org.machinemc.foundry;
 
+import com.google.common.base.Preconditions;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
@@ -13,15 +14,51 @@ import java.util.function.Supplier;
  */
 public final class CommonHandlers {
 
+    private static final DataHandler<?, ?> IDENTITY = o -> o;
+
     /**
      * Returns a {@link DataHandler} that performs an identity transformation.
      * That is, it returns the same instance as it receives.
+     * <p>
+     * The same handler instance is always returned, pipelines do not include it
+     * in their handlers.
      *
      * @param <T> data type
      * @return identity data handler
      */
+    @SuppressWarnings("unchecked")
     public static <T> DataHandler<T, T> identity() {
-        return o -> o;
+        return (DataHandler<T, T>) IDENTITY;
+    }
+
+    /**
+     * Returns a {@link DataHandler} that marks given handler as blocking.
+     *
+     * @param handler blocking handler
+     * @return data handler
+     * @param <I> input type
+     * @param <O> output type
+     * @see BlockingDataHandler
+     */
+    public static <I, O> BlockingDataHandler<I, O> blocking(DataHandler<I, O> handler) {
+        if (handler instanceof BlockingDataHandler<I, O> blocking) return blocking;
+        return handler::transform;
+    }
+
+    /**
+     * Returns a {@link DataHandler} that caches results of given handler.
+     *
+     * @param handler handler to cache
+     * @param spec cache specification
+     * @return caching data handler
+     * @param <I> input type
+     * @param <O> output type
+     * @see CachedDataHandler
+     */
+    public static <I, O> CachedDataHandler<I, O> cached(DataHandler<I, O> handler, CacheSpec spec) {
+        Preconditions.checkNotNull(handler, "Handler can not be null");
+        Preconditions.checkNotNull(spec, "Cache specification can not be null");
+        return new CachedDataHandler<>(handler, spec);
     }
 
     /**
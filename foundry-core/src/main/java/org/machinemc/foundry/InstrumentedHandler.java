@@ -0,0 +1,167 @@
+package org.machinemc.foundry;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Data handler wrapping a handler of a pipeline, reporting its invocations
+ * to a {@link PipelineListener}.
+ * <p>
+ * Wrappers of {@link BatchDataHandler}s and {@link BlockingDataHandler}s keep
+ * implementing the same interfaces, so the instrumented pipeline is processed the same way.
+ */
+sealed class InstrumentedHandler implements DataHandler<Object, Object> {
+
+    /**
+     * Wraps the handler.
+     *
+     * @param handler handler to wrap
+     * @param stage index of the stage of the handler
+     * @param listener listener to report to
+     * @param trackAllocations whether allocations of the handler should be reported
+     * @return instrumented handler
+     */
+    @SuppressWarnings("unchecked")
+    static InstrumentedHandler of(DataHandler<?, ?> handler, int stage, PipelineListener listener,
+                                  boolean trackAllocations) {
+        DataHandler<Object, Object> wrapped = (DataHandler<Object, Object>) handler;
+        // the thread bean is resolved only when the allocations are requested
+        boolean allocations = trackAllocations && Allocations.supported();
+        return switch (handler) {
+            case BatchDataHandler<?, ?> _ when handler instanceof BlockingDataHandler<?, ?> ->
+                    new BlockingBatch(wrapped, stage, listener, allocations);
+            case BatchDataHandler<?, ?> _ -> new Batch(wrapped, stage, listener, allocations);
+            case BlockingDataHandler<?, ?> _ -> new Blocking(wrapped, stage, listener, allocations);
+            default -> new InstrumentedHandler(wrapped, stage, listener, allocations);
+        };
+    }
+
+    final DataHandler<Object, Object> handler;
+    final int stage;
+    final PipelineListener listener;
+    final boolean trackAllocations;
+
+    private InstrumentedHandler(DataHandler<Object, Object> handler, int stage, PipelineListener listener,
+                                boolean trackAllocations) {
+        this.handler = handler;
+        this.stage = stage;
+        this.listener = listener;
+        this.trackAllocations = trackAllocations;
+    }
+
+    @Override
+    public Object transform(Object instance) throws Exception {
+        long allocated = trackAllocations ? Allocations.allocatedBytes() : -1;
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = handler.transform(instance);
+        } catch (Throwable throwable) {
+            listener.onException(stage, throwable);
+            throw throwable;
+        }
+        report(start, allocated);
+        return result;
+    }
+
+    /**
+     * Reports finished invocation to the listener.
+     *
+     * @param start start of the invocation
+     * @param allocated allocated bytes of the thread before the invocation, {@code -1} if not tracked
+     */
+    void report(long start, long allocated) {
+        long duration = System.nanoTime() - start;
+        if (allocated != -1) allocated = Allocations.allocatedBytes() - allocated;
+        listener.onInvocation(stage, duration, allocated);
+    }
+
+    /**
+     * Holder of the thread bean reporting allocated bytes of the threads.
+     * <p>
+     * The bean is specific to HotSpot based JVMs, so it is resolved only when the holder
+     * is first used, and is {@code null} on JVMs that do not support it.
+     */
+    private static final class Allocations {
+
+        private static final com.sun.management.ThreadMXBean THREADS = resolve();
+
+        private static com.sun.management.ThreadMXBean resolve() {
+            try {
+                if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                        && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+                    return threads;
+            } catch (LinkageError _) {
+                // the jdk.management module is not present
+            }
+            return null;
+        }
+
+        /**
+         * @return whether allocated bytes of the threads can be reported
+         */
+        static boolean supported() {
+            return THREADS != null;
+        }
+
+        /**
+         * @return bytes allocated by the current thread so far
+         */
+        static long allocatedBytes() {
+            return THREADS.getCurrentThreadAllocatedBytes();
+        }
+
+    }
+
+    /**
+     * Instrumented {@link BatchDataHandler}.
+     */
+    static sealed class Batch extends InstrumentedHandler implements BatchDataHandler<Object, Object> {
+
+        private Batch(DataHandler<Object, Object> handler, int stage, PipelineListener listener,
+                      boolean trackAllocations) {
+            super(handler, stage, listener, trackAllocations);
+        }
+
+        @Override
+        public List<Object> transformAll(List<Object> instances) throws Exception {
+            long allocated = trackAllocations ? Allocations.allocatedBytes() : -1;
+            long start = System.nanoTime();
+            List<Object> result;
+            try {
+                result = ((BatchDataHandler<Object, Object>) handler).transformAll(instances);
+            } catch (Throwable throwable) {
+                listener.onException(stage, throwable);
+                throw throwable;
+            }
+            report(start, allocated);
+            return result;
+        }
+
+    }
+
+    /**
+     * Instrumented {@link BlockingDataHandler}.
+     */
+    static final class Blocking extends InstrumentedHandler implements BlockingDataHandler<Object, Object> {
+
+        private Blocking(DataHandler<Object, Object> handler, int stage, PipelineListener listener,
+                         boolean trackAllocations) {
+            super(handler, stage, listener, trackAllocations);
+        }
+
+    }
+
+    /**
+     * Instrumented {@link BatchDataHandler} that is also a {@link BlockingDataHandler}.
+     */
+    static final class BlockingBatch extends Batch implements BlockingDataHandler<Object, Object> {
+
+        private BlockingBatch(DataHandler<Object, Object> handler, int stage, PipelineListener listener,
+                              boolean trackAllocations) {
+            super(handler, stage, listener, trackAllocations);
+        }
+
+    }
+
+}
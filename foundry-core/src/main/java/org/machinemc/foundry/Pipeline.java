@@ -4,7 +4,6 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
-import com.google.common.collect.ImmutableList;
 import com.google.errorprone.annotations.Immutable;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -12,13 +11,23 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.stream.Gatherer;
 
 /**
  * Represents an immutable, type-safe pipeline for processing data, composed of {@link DataHandler}.
  * <p>
  * A pipeline has a defined input type {@link I} and output type {@link O}.
  * <p>
- * Handlers are executed in the order they are added.
+ * Handlers are executed in the order they are added. When the pipeline is created,
+ * its handlers are optimized: {@link CommonHandlers#identity() identity} handlers are removed
+ * and adjacent operations of {@link ProtectedBuilder}s are merged into a single handler.
+ * <p>
+ * For pipelines on hot paths, {@link #compile()} can be used to fuse all handlers
+ * into a single generated handler.
  *
  * @param <I> the input type of the entire pipeline
  * @param <O> the final output type of the entire pipeline
@@ -26,10 +35,22 @@ import java.util.*;
 @Immutable
 public final class Pipeline<I, O> {
 
-    private final @Unmodifiable List<DataHandler<?, ?>> handlers;
+    private static final Executor VIRTUAL_THREAD_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final DataHandler<?, ?>[] handlers;
+    private final @Nullable DataHandler<I, O> compiled;
+    private final boolean batching;
+    private final boolean blocking;
+
+    private Pipeline(Iterable<? extends DataHandler<?, ?>> handlers) {
+        this(PipelineOptimizer.optimize(handlers), null);
+    }
 
-    private Pipeline(SequencedCollection<DataHandler<?, ?>> handlers) {
-        this.handlers = ImmutableList.copyOf(handlers);
+    private Pipeline(DataHandler<?, ?>[] handlers, @Nullable DataHandler<I, O> compiled) {
+        this.handlers = handlers;
+        this.compiled = compiled;
+        batching = Arrays.stream(handlers).anyMatch(handler -> handler instanceof BatchDataHandler<?, ?>);
+        blocking = Arrays.stream(handlers).anyMatch(handler -> handler instanceof BlockingDataHandler<?, ?>);
     }
 
     /**
@@ -141,11 +162,28 @@ public final class Pipeline<I, O> {
     }
 
     private static <First, Last> Pipeline<First, Last> compose(List<Pipeline<?, ?>> pipelines) {
-        List<DataHandler<?, ?>> combined = new LinkedList<>();
-        pipelines.forEach(p -> combined.addAll(p.handlers));
+        List<DataHandler<?, ?>> combined = new ArrayList<>();
+        pipelines.forEach(p -> combined.addAll(p.handlers()));
         return new Pipeline<>(combined);
     }
 
+    /**
+     * @return handlers of this pipeline
+     */
+    @Unmodifiable List<DataHandler<?, ?>> handlers() {
+        return Collections.unmodifiableList(Arrays.asList(handlers));
+    }
+
+    /**
+     * Returns the number of stages of this pipeline, that is the number of
+     * its handlers after optimization.
+     *
+     * @return number of stages
+     */
+    public int stages() {
+        return handlers.length;
+    }
+
     /**
      * Processes the given input through the entire pipeline, transforming it through each handler in order.
      *
@@ -154,11 +192,251 @@ public final class Pipeline<I, O> {
      */
     @SuppressWarnings({"unchecked", "rawtypes"})
     public O process(I input) throws Exception {
+        if (compiled != null) return compiled.transform(input);
         Object currentData = input;
         for (DataHandler handler : handlers) currentData = handler.transform(currentData);
         return (O) currentData;
     }
 
+    /**
+     * Processes the given input through the entire pipeline asynchronously, using
+     * virtual threads for the {@link BlockingDataHandler}s.
+     *
+     * @param input the initial data to process
+     * @return future of the result
+     * @see #processAsync(Object, Executor)
+     */
+    public CompletableFuture<O> processAsync(I input) {
+        return processAsync(input, VIRTUAL_THREAD_EXECUTOR);
+    }
+
+    /**
+     * Processes the given input through the entire pipeline asynchronously.
+     * <p>
+     * Only {@link BlockingDataHandler}s are submitted to the executor, other handlers run on
+     * the calling thread, or after a blocking handler, on the thread that executed it.
+     * If the pipeline has no blocking handlers, it is processed on the calling thread
+     * and the returned future is already completed.
+     * <p>
+     * Exceptions thrown by the handlers complete the returned future exceptionally.
+     *
+     * @param input the initial data to process
+     * @param executor executor for the blocking handlers
+     * @return future of the result
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<O> processAsync(I input, Executor executor) {
+        Preconditions.checkNotNull(executor, "Executor cannot be null");
+        if (!blocking) {
+            try {
+                return CompletableFuture.completedFuture(process(input));
+            } catch (Throwable throwable) {
+                return CompletableFuture.failedFuture(throwable);
+            }
+        }
+        return (CompletableFuture<O>) processAsync(input, 0, executor);
+    }
+
+    /**
+     * Processes the item through the handlers starting at given index, submitting
+     * the blocking handlers to the executor.
+     *
+     * @param item item to process
+     * @param from index of the first handler to process the item with
+     * @param executor executor for the blocking handlers
+     * @return future of the result
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CompletableFuture<Object> processAsync(Object item, int from, Executor executor) {
+        try {
+            Object currentData = item;
+            for (int i = from; i < handlers.length; i++) {
+                DataHandler handler = handlers[i];
+                if (!(handler instanceof BlockingDataHandler<?, ?>)) {
+                    currentData = handler.transform(currentData);
+                    continue;
+                }
+                Object input = currentData;
+                int next = i + 1;
+                CompletableFuture<Object> result = new CompletableFuture<>();
+                executor.execute(() -> {
+                    // the remaining handlers continue on this thread
+                    CompletableFuture<Object> remaining;
+                    try {
+                        remaining = processAsync(handler.transform(input), next, executor);
+                    } catch (Throwable throwable) {
+                        remaining = CompletableFuture.failedFuture(throwable);
+                    }
+                    remaining.whenComplete((value, throwable) -> {
+                        if (throwable != null) result.completeExceptionally(throwable);
+                        else result.complete(value);
+                    });
+                });
+                return result;
+            }
+            return CompletableFuture.completedFuture(currentData);
+        } catch (Throwable throwable) {
+            return CompletableFuture.failedFuture(throwable);
+        }
+    }
+
+    /**
+     * Processes all given inputs through the entire pipeline.
+     * <p>
+     * The batch is processed handler by handler, {@link BatchDataHandler}s receive the whole
+     * batch at once and other handlers are called for each item.
+     *
+     * @param inputs the initial data to process
+     * @return the results, in the same order as the inputs
+     */
+    @SuppressWarnings("unchecked")
+    public List<O> processAll(List<? extends I> inputs) throws Exception {
+        Object[] batch = inputs.toArray();
+        processBatch(batch);
+        return (List<O>) Arrays.asList(batch);
+    }
+
+    /**
+     * Processes all given inputs through the entire pipeline and writes
+     * the results to the output array.
+     *
+     * @param inputs the initial data to process
+     * @param outputs array for the results, must have the same length as the inputs
+     * @see #processAll(List)
+     */
+    public void processInto(I[] inputs, O[] outputs) throws Exception {
+        Preconditions.checkArgument(inputs.length == outputs.length,
+                "Output array length %s does not match the input array length %s", outputs.length, inputs.length);
+        Object[] batch = Arrays.copyOf(inputs, inputs.length, Object[].class);
+        processBatch(batch);
+        System.arraycopy(batch, 0, outputs, 0, batch.length);
+    }
+
+    /**
+     * Processes the batch in place.
+     *
+     * @param batch batch to process
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void processBatch(Object[] batch) throws Exception {
+        if (!batching && compiled != null) {
+            for (int i = 0; i < batch.length; i++) batch[i] = compiled.transform((I) batch[i]);
+            return;
+        }
+        for (DataHandler handler : handlers) {
+            if (handler instanceof BatchDataHandler batchHandler) {
+                List<?> transformed = batchHandler.transformAll(Arrays.asList(batch));
+                Preconditions.checkState(transformed.size() == batch.length, "Batch data handler returned "
+                        + "%s items for batch of size %s", transformed.size(), batch.length);
+                transformed.toArray(batch);
+                continue;
+            }
+            for (int i = 0; i < batch.length; i++) batch[i] = handler.transform(batch[i]);
+        }
+    }
+
+    /**
+     * Compiles this pipeline, fusing all of its handlers into a single generated handler.
+     * <p>
+     * The generated handler calls each handler through its own call site, so the
+     * JIT can inline the whole pipeline instead of dispatching through a shared
+     * megamorphic call. Compilation generates a new class, so it should be done once,
+     * for pipelines that are used repeatedly.
+     * <p>
+     * The returned pipeline behaves exactly the same as this pipeline. Pipelines
+     * created from the compiled pipeline (e.g. using {@link #compose(Pipeline, Pipeline)})
+     * are not compiled.
+     *
+     * @return compiled pipeline
+     */
+    @SuppressWarnings("unchecked")
+    public Pipeline<I, O> compile() {
+        if (compiled != null) return this;
+        return new Pipeline<>(handlers, (DataHandler<I, O>) PipelineCompiler.compile(handlers()));
+    }
+
+    /**
+     * @return whether this pipeline is compiled
+     * @see #compile()
+     */
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    /**
+     * Returns a {@link Gatherer} processing the stream elements by this pipeline.
+     * <p>
+     * Elements the pipeline transforms to {@code null} (e.g. filtered out by a protected
+     * pipeline) are dropped. Checked exceptions thrown by the handlers are wrapped in
+     * {@link PipelineException}. The gatherer is stateless and can be used by parallel streams.
+     *
+     * @return gatherer for {@link java.util.stream.Stream#gather(Gatherer)}
+     */
+    public Gatherer<I, ?, O> asGatherer() {
+        return Gatherer.of(Gatherer.Integrator.<Void, I, O>ofGreedy((_, element, downstream) -> {
+            O result;
+            try {
+                result = process(element);
+            } catch (RuntimeException exception) {
+                throw exception;
+            } catch (Exception exception) {
+                throw new PipelineException(exception);
+            }
+            return result == null || downstream.push(result);
+        }));
+    }
+
+    /**
+     * Returns a {@link Flow.Processor} processing the published items by this pipeline.
+     * <p>
+     * The processor supports a single subscriber and does not buffer any items, the demand
+     * of the subscriber is forwarded to the publisher. Items the pipeline transforms to
+     * {@code null} are dropped, and another item is requested instead. Exception thrown
+     * by the pipeline cancels the subscription to the publisher and is passed to the subscriber.
+     *
+     * @return new processor
+     */
+    public Flow.Processor<I, O> asProcessor() {
+        return new PipelineProcessor<>(this);
+    }
+
+    /**
+     * Returns instrumented copy of this pipeline, reporting invocations of each
+     * stage to given listener.
+     *
+     * @param listener listener
+     * @return instrumented pipeline
+     * @see #instrument(PipelineListener, boolean)
+     */
+    public Pipeline<I, O> instrument(PipelineListener listener) {
+        return instrument(listener, false);
+    }
+
+    /**
+     * Returns instrumented copy of this pipeline, reporting invocations of each
+     * stage to given listener.
+     * <p>
+     * Only the returned pipeline is instrumented, this pipeline stays unchanged and
+     * does not pay any cost of the instrumentation. If this pipeline is compiled,
+     * the instrumented pipeline is compiled as well.
+     * <p>
+     * Allocations are tracked using the allocation counter of the current thread, which
+     * is not supported by all JVMs, and has a cost of its own.
+     *
+     * @param listener listener
+     * @param trackAllocations whether allocated bytes of each invocation should be reported
+     * @return instrumented pipeline
+     * @see PipelineMetrics
+     */
+    public Pipeline<I, O> instrument(PipelineListener listener, boolean trackAllocations) {
+        Preconditions.checkNotNull(listener, "Listener cannot be null");
+        DataHandler<?, ?>[] instrumented = new DataHandler<?, ?>[handlers.length];
+        for (int i = 0; i < handlers.length; i++)
+            instrumented[i] = InstrumentedHandler.of(handlers[i], i, listener, trackAllocations);
+        Pipeline<I, O> pipeline = new Pipeline<>(instrumented, null);
+        return compiled != null ? pipeline.compile() : pipeline;
+    }
+
     /**
      * A builder for creating {@link Pipeline} instances with compile-time type safety.
      *
@@ -167,7 +445,7 @@ public final class Pipeline<I, O> {
      */
     public static class Builder<I, Current> {
 
-        protected final List<DataHandler<?, ?>> handlers = new LinkedList<>();
+        protected final List<DataHandler<?, ?>> handlers = new ArrayList<>();
 
         private Builder(DataHandler<I, Current> firstHandler) {
             Preconditions.checkNotNull(firstHandler, "First handler cannot be null");
@@ -206,7 +484,7 @@ public final class Pipeline<I, O> {
         @SuppressWarnings("unchecked")
         public <Next> Builder<I, Next> next(Pipeline<Current, Next> pipeline) {
             Preconditions.checkNotNull(pipeline, "Pipeline to be chained cannot be null");
-            handlers.addAll(pipeline.handlers);
+            handlers.addAll(pipeline.handlers());
             return (Builder<I, Next>) this;
         }
 
@@ -217,13 +495,13 @@ public final class Pipeline<I, O> {
          * @return protected builder
          */
         public ProtectedBuilder<I, Current> protect() {
-            ProtectedBuilder<I, Current> protectedBuilder = new ProtectedBuilder<>(handlers);
-            protectedBuilder.handlers.add(CommonHandlers.protect());
-            return protectedBuilder;
+            return new ProtectedBuilder<>(handlers);
         }
 
         /**
          * Builds the immutable {@link Pipeline}.
+         * <p>
+         * The handlers are optimized before the pipeline is created, see {@link Pipeline}.
          */
         public Pipeline<I, Current> build() {
             return new Pipeline<>(handlers);
@@ -232,14 +510,24 @@ public final class Pipeline<I, O> {
     }
 
     /**
-     * A builder that added {@link CommonHandlers#protect()} into its pipeline, allowing
+     * A builder that protects its pipeline against missing items, allowing
      * application of additional operations on the items.
+     * <p>
+     * Operations added to this builder are only applied on present items, once the
+     * item is missing (e.g. filtered out, or a handler returned {@code null}) the remaining
+     * operations are skipped until {@link #or(Supplier)} provides a replacement.
+     * <p>
+     * All operations are executed by a single handler that represents missing items as
+     * {@code null}, so no {@link Optional} is allocated for each operation. Only pipelines
+     * built with {@link #buildOpt()} wrap the final result into an optional.
      *
      * @param <I> the input type of the pipeline being built
      * @param <Current> the output type of the last handler added to the builder
      */
     public static class ProtectedBuilder<I, Current> extends Builder<I, Current> {
 
+        private final List<ProtectedChain.Stage> stages = new ArrayList<>();
+
         private ProtectedBuilder(List<DataHandler<?, ?>> handlers) {
             super(handlers);
         }
@@ -247,14 +535,17 @@ public final class Pipeline<I, O> {
         @Override
         @SuppressWarnings("unchecked")
         public <Next> ProtectedBuilder<I, Next> next(DataHandler<Current, Next> handler) {
-            handlers.add(CommonHandlers.map(handler));
+            Preconditions.checkNotNull(handler, "Next handler cannot be null");
+            stages.add(new ProtectedChain.Map((DataHandler<Object, Object>) handler));
             return (ProtectedBuilder<I, Next>) this;
         }
 
         @Override
         @SuppressWarnings("unchecked")
         public <Next> ProtectedBuilder<I, Next> next(Pipeline<Current, Next> pipeline) {
-            handlers.addAll(pipeline.handlers.stream().map(CommonHandlers::map).toList());
+            Preconditions.checkNotNull(pipeline, "Pipeline to be chained cannot be null");
+            for (DataHandler<?, ?> handler : pipeline.handlers)
+                stages.add(new ProtectedChain.Map((DataHandler<Object, Object>) handler));
             return (ProtectedBuilder<I, Next>) this;
         }
 
@@ -265,8 +556,9 @@ public final class Pipeline<I, O> {
 
         @Override
         public Pipeline<I, @Nullable Current> build() {
-            handlers.add(CommonHandlers.elseNull());
-            return new Pipeline<>(this.handlers);
+            List<DataHandler<?, ?>> handlers = new ArrayList<>(this.handlers);
+            handlers.add(new ProtectedChain(stages));
+            return new Pipeline<>(handlers);
         }
 
         /**
@@ -278,7 +570,8 @@ public final class Pipeline<I, O> {
          */
         @SuppressWarnings("unchecked")
         public <Next> ProtectedBuilder<I, Next> map(Function<@NotNull Current, @NotNull Next> mapper) {
-            handlers.add(CommonHandlers.map(mapper));
+            Preconditions.checkNotNull(mapper, "Mapping function cannot be null");
+            stages.add(new ProtectedChain.Map(item -> mapper.apply((Current) item)));
             return (ProtectedBuilder<I, Next>) this;
         }
 
@@ -288,8 +581,10 @@ public final class Pipeline<I, O> {
          * @param filter filter function
          * @return this
          */
+        @SuppressWarnings("unchecked")
         public ProtectedBuilder<I, Current> filter(Predicate<@NotNull Current> filter) {
-            handlers.add(CommonHandlers.filter(filter));
+            Preconditions.checkNotNull(filter, "Filter function cannot be null");
+            stages.add(new ProtectedChain.Filter(item -> filter.apply((Current) item)));
             return this;
         }
 
@@ -300,15 +595,21 @@ public final class Pipeline<I, O> {
          * @return this
          */
         public ProtectedBuilder<I, Current> or(Supplier<@NotNull Current> supplier) {
-            handlers.add(CommonHandlers.or(supplier));
+            Preconditions.checkNotNull(supplier, "Supplier cannot be null");
+            stages.add(new ProtectedChain.Or(supplier::get));
             return this;
         }
 
         /**
          * Builds the immutable {@link Pipeline}.
+         * <p>
+         * Missing items are represented by an empty optional.
          */
         public Pipeline<I, Optional<Current>> buildOpt() {
-            return new Pipeline<>(this.handlers);
+            List<DataHandler<?, ?>> handlers = new ArrayList<>(this.handlers);
+            handlers.add(new ProtectedChain(stages));
+            handlers.add(CommonHandlers.protect());
+            return new Pipeline<>(handlers);
         }
 
     }
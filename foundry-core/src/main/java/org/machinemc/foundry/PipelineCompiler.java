@@ -0,0 +1,145 @@
+package org.machinemc.foundry;
+
+import org.machinemc.foundry.util.ASMUtil;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Class responsible for generating fused {@link DataHandler} implementation
+ * of a {@link Pipeline}.
+ * <p>
+ * The generated handler calls each handler of the pipeline in a single method. Each handler
+ * is stored in its own static final field of a hidden class, so the JIT treats them as constants
+ * and every call site in the generated method stays monomorphic and can be inlined.
+ */
+final class PipelineCompiler {
+
+    private static final String TRANSFORM_METHOD_NAME = "transform";
+
+    private PipelineCompiler() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Generates data handler that executes given handlers in order.
+     *
+     * @param handlers handlers to fuse
+     * @return fused data handler
+     */
+    static DataHandler<?, ?> compile(List<DataHandler<?, ?>> handlers) {
+        Type thisT = Type.getObjectType(Type.getInternalName(Pipeline.class) + "$Compiled");
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V21, ACC_PUBLIC | ACC_FINAL, thisT.getInternalName(), null, Type.getInternalName(Object.class),
+                new String[]{Type.getInternalName(DataHandler.class)});
+
+        for (int i = 0; i < handlers.size(); i++) {
+            cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, fieldNameOf(i),
+                    Type.getDescriptor(DataHandler.class), null, null);
+        }
+
+        visitStaticBlock(cw, thisT, handlers.size());
+        visitDefaultConstructor(cw);
+        visitTransformMethod(cw, thisT, handlers.size());
+        cw.visitEnd();
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup()
+                    .defineHiddenClassWithClassData(cw.toByteArray(), List.copyOf(handlers), true);
+            return (DataHandler<?, ?>) lookup.lookupClass().getDeclaredConstructor().newInstance();
+        } catch (Exception exception) {
+            throw new RuntimeException("Failed to define and instantiate compiled pipeline", exception);
+        }
+    }
+
+    /**
+     * Visits the static block that loads the handlers from the class data to the static fields.
+     *
+     * @param cv class visitor
+     * @param thisT type of the class this visitor is for
+     * @param size number of handlers
+     */
+    private static void visitStaticBlock(ClassVisitor cv, Type thisT, int size) {
+        MethodVisitor mv = cv.visitMethod(ACC_STATIC, ConstantDescs.CLASS_INIT_NAME,
+                Type.getMethodDescriptor(Type.VOID_TYPE), null, null);
+        mv.visitCode();
+        for (int i = 0; i < size; i++) {
+            mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodHandles.class), "lookup",
+                    Type.getMethodDescriptor(Type.getType(MethodHandles.Lookup.class)), false);
+            mv.visitLdcInsn(ConstantDescs.DEFAULT_NAME);
+            mv.visitLdcInsn(Type.getType(DataHandler.class));
+            ASMUtil.push(mv, i);
+            mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodHandles.class), "classDataAt",
+                    Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(MethodHandles.Lookup.class),
+                            Type.getType(String.class), Type.getType(Class.class), Type.INT_TYPE), false);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(DataHandler.class));
+            mv.visitFieldInsn(PUTSTATIC, thisT.getInternalName(), fieldNameOf(i),
+                    Type.getDescriptor(DataHandler.class));
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Visits the default constructor (no arguments) with Object as the class with super constructor.
+     *
+     * @param cv class visitor
+     */
+    private static void visitDefaultConstructor(ClassVisitor cv) {
+        Method init = new Method(ConstantDescs.INIT_NAME, Type.VOID_TYPE, new Type[0]);
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, init, null, null, cv);
+        ga.visitCode();
+        ga.loadThis();
+        ga.invokeConstructor(Type.getType(Object.class), init);
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Visits the {@link DataHandler#transform(Object)} method, passing the input
+     * through all handlers.
+     *
+     * @param cv class visitor
+     * @param thisT type of the class this visitor is for
+     * @param size number of handlers
+     */
+    private static void visitTransformMethod(ClassVisitor cv, Type thisT, int size) {
+        Method transform = new Method(TRANSFORM_METHOD_NAME, Type.getType(Object.class),
+                new Type[]{Type.getType(Object.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, transform, null,
+                new Type[]{Type.getType(Exception.class)}, cv);
+        ga.visitCode();
+
+        ga.loadArg(0);
+        for (int i = 0; i < size; i++) {
+            ga.getStatic(thisT, fieldNameOf(i), Type.getType(DataHandler.class));
+            ga.swap();
+            ga.invokeInterface(Type.getType(DataHandler.class), transform);
+        }
+
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Returns the field name of the field holding handler with given index.
+     *
+     * @param idx index
+     * @return field name
+     */
+    private static String fieldNameOf(int idx) {
+        return "handler_" + idx;
+    }
+
+}
@@ -0,0 +1,18 @@
+package org.machinemc.foundry;
+
+/**
+ * Unchecked exception wrapping a checked exception thrown by a {@link Pipeline}
+ * processed in a context that does not allow checked exceptions, such as streams.
+ *
+ * @see Pipeline#asGatherer()
+ */
+public class PipelineException extends RuntimeException {
+
+    /**
+     * @param cause exception thrown by the pipeline
+     */
+    public PipelineException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,36 @@
+package org.machinemc.foundry;
+
+/**
+ * Listener receiving measurements of each handler (stage) invocation
+ * of an instrumented {@link Pipeline}.
+ * <p>
+ * Stages are identified by their index in the handlers of the pipeline after its optimization,
+ * see {@link Pipeline}. The listener is called on the thread that invoked the handler,
+ * so it needs to be thread-safe if the pipeline is used concurrently.
+ *
+ * @see Pipeline#instrument(PipelineListener, boolean)
+ * @see PipelineMetrics
+ */
+public interface PipelineListener {
+
+    /**
+     * Called after a handler successfully finished.
+     * <p>
+     * For {@link BatchDataHandler}s processing a whole batch, this is called
+     * once for the whole batch.
+     *
+     * @param stage index of the stage
+     * @param durationNanos duration of the invocation in nanoseconds
+     * @param allocatedBytes bytes allocated by the invocation, {@code -1} if allocations are not tracked
+     */
+    void onInvocation(int stage, long durationNanos, long allocatedBytes);
+
+    /**
+     * Called after a handler threw an exception.
+     *
+     * @param stage index of the stage
+     * @param exception thrown exception
+     */
+    void onException(int stage, Throwable exception);
+
+}
@@ -0,0 +1,140 @@
+package org.machinemc.foundry;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link PipelineListener} collecting invocation counts, exception counts, allocations
+ * and latency histograms of each stage of a pipeline.
+ * <p>
+ * The latency histogram has power of two buckets, bucket {@code i} counts
+ * invocations that took less than {@code 2^i} nanoseconds (and at least {@code 2^(i-1)}).
+ * <p>
+ * The metrics are thread-safe and can be read while the pipeline is in use.
+ */
+public final class PipelineMetrics implements PipelineListener {
+
+    private static final int BUCKETS = Long.SIZE;
+
+    /**
+     * Creates metrics for stages of given pipeline.
+     *
+     * @param pipeline pipeline
+     * @return metrics for the pipeline
+     */
+    public static PipelineMetrics of(Pipeline<?, ?> pipeline) {
+        Preconditions.checkNotNull(pipeline, "Pipeline can not be null");
+        return new PipelineMetrics(pipeline.stages());
+    }
+
+    private final LongAdder[] invocations;
+    private final LongAdder[] exceptions;
+    private final LongAdder[] durations;
+    private final LongAdder[] allocations;
+    private final LongAdder[][] histograms;
+
+    private PipelineMetrics(int stages) {
+        invocations = adders(stages);
+        exceptions = adders(stages);
+        durations = adders(stages);
+        allocations = adders(stages);
+        histograms = new LongAdder[stages][];
+        for (int i = 0; i < stages; i++) histograms[i] = adders(BUCKETS);
+    }
+
+    private static LongAdder[] adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+
+    @Override
+    public void onInvocation(int stage, long durationNanos, long allocatedBytes) {
+        invocations[stage].increment();
+        durations[stage].add(durationNanos);
+        if (allocatedBytes > 0) allocations[stage].add(allocatedBytes);
+        histograms[stage][BUCKETS - Long.numberOfLeadingZeros(Math.max(durationNanos, 0))].increment();
+    }
+
+    @Override
+    public void onException(int stage, Throwable exception) {
+        exceptions[stage].increment();
+    }
+
+    /**
+     * @return number of stages
+     */
+    public int stages() {
+        return invocations.length;
+    }
+
+    /**
+     * Returns snapshot of the metrics of given stage.
+     *
+     * @param stage index of the stage
+     * @return snapshot of the stage metrics
+     */
+    public Snapshot stage(int stage) {
+        Preconditions.checkElementIndex(stage, stages(), "Stage");
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) histogram[i] = histograms[stage][i].sum();
+        return new Snapshot(stage, invocations[stage].sum(), exceptions[stage].sum(), durations[stage].sum(),
+                allocations[stage].sum(), histogram);
+    }
+
+    /**
+     * Resets all metrics.
+     */
+    public void reset() {
+        for (int stage = 0; stage < stages(); stage++) {
+            invocations[stage].reset();
+            exceptions[stage].reset();
+            durations[stage].reset();
+            allocations[stage].reset();
+            for (LongAdder bucket : histograms[stage]) bucket.reset();
+        }
+    }
+
+    /**
+     * Snapshot of metrics of a single stage.
+     *
+     * @param stage index of the stage
+     * @param invocations number of successful invocations
+     * @param exceptions number of invocations that threw an exception
+     * @param totalNanos total duration of the successful invocations
+     * @param allocatedBytes total bytes allocated by the invocations, {@code 0} if allocations are not tracked
+     * @param histogram latency histogram
+     */
+    public record Snapshot(int stage, long invocations, long exceptions, long totalNanos, long allocatedBytes,
+                           long[] histogram) {
+
+        /**
+         * @return mean duration of an invocation in nanoseconds
+         */
+        public double meanNanos() {
+            return invocations == 0 ? 0 : (double) totalNanos / invocations;
+        }
+
+        /**
+         * Returns the upper bound of the latency percentile, based on the histogram.
+         *
+         * @param percentile percentile, between {@code 0} and {@code 100}
+         * @return upper bound of the percentile in nanoseconds
+         */
+        public long percentileNanos(double percentile) {
+            Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "Invalid percentile %s", percentile);
+            long total = 0;
+            for (long count : histogram) total += count;
+            long target = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= target && seen != 0) return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+            return 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.machinemc.foundry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class responsible for optimizing handlers of a {@link Pipeline} before
+ * it is constructed.
+ * <p>
+ * The optimizer removes {@link CommonHandlers#identity() identity} handlers and merges
+ * adjacent {@link ProtectedChain}s into a single chain, so each item goes through
+ * fewer virtual calls. {@link BlockingDataHandler}s are split out of the chains, so they
+ * keep being submitted to the executor by {@link Pipeline#processAsync(Object, java.util.concurrent.Executor)}.
+ */
+final class PipelineOptimizer {
+
+    private PipelineOptimizer() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Optimizes the given handlers.
+     * <p>
+     * The returned handlers produce the same results as the provided ones.
+     *
+     * @param handlers handlers to optimize
+     * @return optimized handlers
+     */
+    static DataHandler<?, ?>[] optimize(Iterable<? extends DataHandler<?, ?>> handlers) {
+        List<DataHandler<?, ?>> optimized = new ArrayList<>();
+        List<ProtectedChain.Stage> pending = new ArrayList<>();
+        for (DataHandler<?, ?> handler : handlers) {
+            if (handler == CommonHandlers.identity()) continue;
+            if (handler instanceof ProtectedChain chain) {
+                // passing a missing item to the next chain is the same as continuing
+                // with the stages of the next chain, so the chains can be merged
+                for (ProtectedChain.Stage stage : chain.stages()) {
+                    if (stage instanceof ProtectedChain.Map(DataHandler<Object, Object> mapper)) {
+                        if (mapper == CommonHandlers.identity()) continue;
+                        if (mapper instanceof BlockingDataHandler<?, ?>) {
+                            // blocking handlers are split out of the chain, so they can be
+                            // recognized when the pipeline is processed asynchronously
+                            flush(optimized, pending);
+                            optimized.add(mapper instanceof ProtectedChain.Blocking
+                                    ? mapper : new ProtectedChain.Blocking(mapper));
+                            continue;
+                        }
+                    }
+                    pending.add(stage);
+                }
+                continue;
+            }
+            flush(optimized, pending);
+            optimized.add(handler);
+        }
+        flush(optimized, pending);
+        return optimized.toArray(new DataHandler<?, ?>[0]);
+    }
+
+    /**
+     * Adds the pending stages to the handlers as a single chain.
+     * <p>
+     * Chain without stages is an identity and is not added.
+     *
+     * @param handlers handlers
+     * @param pending pending stages, cleared after the call
+     */
+    private static void flush(List<DataHandler<?, ?>> handlers, List<ProtectedChain.Stage> pending) {
+        if (pending.isEmpty()) return;
+        handlers.add(new ProtectedChain(pending));
+        pending.clear();
+    }
+
+}
@@ -0,0 +1,222 @@
+package org.machinemc.foundry;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Processor} processing the published items by a {@link Pipeline}.
+ * <p>
+ * The processor does not buffer any items, the demand of its subscriber is forwarded
+ * to the upstream publisher. Items the pipeline transforms to {@code null} are dropped
+ * and replaced by requesting another item from the upstream.
+ *
+ * @param <I> the input type of the pipeline
+ * @param <O> the output type of the pipeline
+ * @see Pipeline#asProcessor()
+ */
+final class PipelineProcessor<I, O> implements Flow.Processor<I, O> {
+
+    private final Pipeline<I, O> pipeline;
+
+    private @Nullable Flow.Subscription upstream;
+    private @Nullable Flow.Subscriber<? super O> downstream;
+    private long pendingDemand;
+    private boolean cancelled;
+    private boolean done;
+    private @Nullable Throwable pendingError;
+    private boolean pendingComplete;
+
+    /**
+     * Whether {@link Flow.Subscriber#onSubscribe(Flow.Subscription)} of the subscriber returned,
+     * terminal signals arriving before are kept pending until then.
+     */
+    private boolean subscribed;
+
+    /**
+     * Whether an item is being processed and signalled to the subscriber by the upstream thread.
+     */
+    private boolean emitting;
+
+    /**
+     * Error raised by the subscriber while an item was being signalled, delivered by the
+     * upstream thread once it finishes, so the signals to the subscriber stay serialized.
+     */
+    private @Nullable Throwable deferredError;
+
+    PipelineProcessor(Pipeline<I, O> pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super O> subscriber) {
+        Preconditions.checkNotNull(subscriber, "Subscriber can not be null");
+        synchronized (this) {
+            if (downstream != null) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) { }
+
+                    @Override
+                    public void cancel() { }
+                });
+                subscriber.onError(new IllegalStateException("Processor supports only a single subscriber"));
+                return;
+            }
+            downstream = subscriber;
+        }
+        subscriber.onSubscribe(new DownstreamSubscription());
+        Throwable error;
+        boolean complete;
+        synchronized (this) {
+            subscribed = true;
+            error = pendingError;
+            complete = pendingComplete;
+        }
+        if (error != null) subscriber.onError(error);
+        else if (complete) subscriber.onComplete();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Preconditions.checkNotNull(subscription, "Subscription can not be null");
+        long demand;
+        synchronized (this) {
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            demand = pendingDemand;
+            pendingDemand = 0;
+        }
+        if (demand > 0) subscription.request(demand);
+    }
+
+    @Override
+    public void onNext(I item) {
+        Preconditions.checkNotNull(item, "Item can not be null");
+        Flow.Subscriber<? super O> subscriber;
+        Flow.Subscription subscription;
+        synchronized (this) {
+            if (done) return;
+            subscriber = downstream;
+            subscription = upstream;
+            if (subscriber == null || subscription == null) return;
+            emitting = true;
+        }
+        try {
+            O result;
+            try {
+                result = pipeline.process(item);
+            } catch (Throwable throwable) {
+                boolean signal;
+                synchronized (this) {
+                    // the subscriber might have already failed with a deferred error
+                    signal = !done && subscribed;
+                    if (!done && !subscribed) pendingError = throwable;
+                    done = true;
+                }
+                subscription.cancel();
+                if (signal) subscriber.onError(throwable);
+                return;
+            }
+            if (result == null) subscription.request(1);
+            else subscriber.onNext(result);
+        } finally {
+            Throwable error;
+            synchronized (this) {
+                emitting = false;
+                error = deferredError;
+                deferredError = null;
+            }
+            if (error != null) subscriber.onError(error);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Flow.Subscriber<? super O> subscriber;
+        synchronized (this) {
+            if (done) return;
+            done = true;
+            subscriber = subscribed ? downstream : null;
+            if (subscriber == null) pendingError = throwable;
+        }
+        if (subscriber != null) subscriber.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        Flow.Subscriber<? super O> subscriber;
+        synchronized (this) {
+            if (done) return;
+            done = true;
+            subscriber = subscribed ? downstream : null;
+            if (subscriber == null) pendingComplete = true;
+        }
+        if (subscriber != null) subscriber.onComplete();
+    }
+
+    /**
+     * Subscription of the downstream subscriber, forwarding the demand to the upstream.
+     */
+    private final class DownstreamSubscription implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest(new IllegalArgumentException("Requested non-positive number of items: " + n));
+                return;
+            }
+            Flow.Subscription subscription;
+            synchronized (PipelineProcessor.this) {
+                subscription = upstream;
+                if (subscription == null) {
+                    pendingDemand = pendingDemand + n < 0 ? Long.MAX_VALUE : pendingDemand + n;
+                    return;
+                }
+            }
+            subscription.request(n);
+        }
+
+        /**
+         * Cancels the upstream and signals the error to the subscriber, or defers it
+         * to the upstream thread if it is signalling an item at the moment, or until
+         * the subscriber is subscribed.
+         *
+         * @param error error to signal
+         */
+        private void invalidRequest(Throwable error) {
+            Flow.Subscriber<? super O> subscriber;
+            Flow.Subscription subscription;
+            boolean deferred;
+            synchronized (PipelineProcessor.this) {
+                if (done) return;
+                done = true;
+                cancelled = true;
+                subscriber = downstream;
+                subscription = upstream;
+                deferred = emitting || !subscribed;
+                if (!subscribed) pendingError = error;
+                else if (emitting) deferredError = error;
+            }
+            if (subscription != null) subscription.cancel();
+            if (!deferred && subscriber != null) subscriber.onError(error);
+        }
+
+        @Override
+        public void cancel() {
+            Flow.Subscription subscription;
+            synchronized (PipelineProcessor.this) {
+                cancelled = true;
+                done = true;
+                subscription = upstream;
+            }
+            if (subscription != null) subscription.cancel();
+        }
+
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.machinemc.foundry;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Data handler executing the operations added to a {@link Pipeline.ProtectedBuilder}.
+ * <p>
+ * Missing items are represented by {@code null} instead of an empty {@link java.util.Optional},
+ * so the operations do not allocate per item. Once the item is missing, all following stages
+ * are skipped up to the next {@link Or} stage, which can provide a replacement.
+ */
+final class ProtectedChain implements DataHandler<Object, Object> {
+
+    private final Stage[] stages;
+
+    /**
+     * Index of the first {@link Or} stage at or after given index, or the number of
+     * stages if there is none.
+     */
+    private final int[] recoveries;
+
+    /**
+     * @param stages stages of the chain
+     */
+    ProtectedChain(List<Stage> stages) {
+        this.stages = stages.toArray(new Stage[0]);
+        recoveries = new int[this.stages.length + 1];
+        recoveries[this.stages.length] = this.stages.length;
+        for (int i = this.stages.length - 1; i >= 0; i--)
+            recoveries[i] = this.stages[i] instanceof Or ? i : recoveries[i + 1];
+    }
+
+    /**
+     * @return stages of the chain
+     */
+    List<Stage> stages() {
+        return List.of(stages);
+    }
+
+    @Override
+    public @Nullable Object transform(@Nullable Object instance) throws Exception {
+        Object current = instance;
+        int i = current != null ? 0 : recoveries[0];
+        while (i < stages.length) {
+            current = stages[i].apply(current);
+            i = current != null ? i + 1 : recoveries[i + 1];
+        }
+        return current;
+    }
+
+    /**
+     * Single operation of the protected chain.
+     */
+    sealed interface Stage {
+
+        /**
+         * Applies the operation on the item.
+         * <p>
+         * Only {@link Or} stages are applied on missing items.
+         *
+         * @param item item, {@code null} if missing
+         * @return result, {@code null} if missing
+         */
+        @Nullable Object apply(@Nullable Object item) throws Exception;
+
+    }
+
+    /**
+     * Maps present items using the data handler, {@code null} results are considered missing.
+     *
+     * @param handler handler
+     */
+    record Map(DataHandler<Object, Object> handler) implements Stage {
+
+        @Override
+        public @Nullable Object apply(@Nullable Object item) throws Exception {
+            return handler.transform(item);
+        }
+
+    }
+
+    /**
+     * Blocking handler of a protected chain, split out of the chain by the {@link PipelineOptimizer}
+     * so it keeps its {@link BlockingDataHandler} marker.
+     * <p>
+     * Missing items are passed through without calling the handler, the following chain
+     * then skips to its next {@link Or} stage as if the stages were still merged.
+     *
+     * @param handler blocking handler
+     */
+    record Blocking(DataHandler<Object, Object> handler) implements BlockingDataHandler<Object, Object> {
+
+        @Override
+        public @Nullable Object transform(@Nullable Object item) throws Exception {
+            return item != null ? handler.transform(item) : null;
+        }
+
+    }
+
+    /**
+     * Removes present items not matching the filter.
+     *
+     * @param filter filter predicate
+     */
+    record Filter(Predicate<Object> filter) implements Stage {
+
+        @Override
+        public @Nullable Object apply(@Nullable Object item) {
+            return filter.test(item) ? item : null;
+        }
+
+    }
+
+    /**
+     * Provides new items in place of the missing ones.
+     *
+     * @param supplier supplier for missing items
+     */
+    record Or(Supplier<Object> supplier) implements Stage {
+
+        @Override
+        public Object apply(@Nullable Object item) {
+            if (item != null) return item;
+            return Preconditions.checkNotNull(supplier.get(), "Supplier for missing items provided null");
+        }
+
+    }
+
+}
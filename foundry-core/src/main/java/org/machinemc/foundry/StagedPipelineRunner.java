@@ -0,0 +1,268 @@
+package org.machinemc.foundry;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a {@link Pipeline} over large amounts of items, processing each of its
+ * handlers (stages) on its own group of worker threads.
+ * <p>
+ * Stages are connected by bounded queues. Once a queue is full, the stage
+ * feeding it waits until the next stage catches up, so slow stages apply backpressure
+ * to the faster ones instead of buffering the whole input. Slow stages (e.g. compression)
+ * can be given more workers using {@link Builder#parallelism(int, int)}, while cheap stages
+ * stay single-threaded.
+ * <p>
+ * The stages are the handlers of the pipeline after its optimization, see {@link Pipeline}.
+ * Handlers of stages with more than one worker are called concurrently, so they need
+ * to be thread-safe. {@link BatchDataHandler}s are called for each item separately.
+ *
+ * @param <I> the input type of the pipeline
+ * @param <O> the output type of the pipeline
+ */
+public final class StagedPipelineRunner<I, O> {
+
+    /**
+     * Marks the end of the items in a queue, each worker of the stage receives one.
+     */
+    private static final Item END = new Item(-1, null);
+
+    /**
+     * Creates a new {@link Builder} for a {@link StagedPipelineRunner}.
+     *
+     * @param pipeline pipeline to run
+     * @return a new builder instance
+     * @param <I> the input type of the pipeline
+     * @param <O> the output type of the pipeline
+     */
+    public static <I, O> Builder<I, O> builder(Pipeline<I, O> pipeline) {
+        return new Builder<>(pipeline);
+    }
+
+    private final DataHandler<?, ?>[] stages;
+    private final int[] parallelism;
+    private final int queueCapacity;
+    private final ThreadFactory threadFactory;
+
+    private StagedPipelineRunner(DataHandler<?, ?>[] stages, int[] parallelism, int queueCapacity,
+                                 ThreadFactory threadFactory) {
+        this.stages = stages;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * @return number of stages of the runner
+     */
+    public int stages() {
+        return stages.length;
+    }
+
+    /**
+     * Processes all given inputs through the pipeline.
+     * <p>
+     * If any of the handlers fails, the processing is stopped and the exception
+     * is rethrown.
+     *
+     * @param inputs the initial data to process
+     * @return the results, in the same order as the inputs
+     */
+    @SuppressWarnings("unchecked")
+    public List<O> processAll(List<? extends I> inputs) throws Exception {
+        Object[] results = inputs.toArray();
+        if (stages.length == 0) return (List<O>) Arrays.asList(results);
+        new Run(results).execute();
+        return (List<O>) Arrays.asList(results);
+    }
+
+    /**
+     * Single processing of a batch of inputs.
+     */
+    private final class Run {
+
+        private final Object[] items;
+        private final List<BlockingQueue<Item>> queues = new ArrayList<>(stages.length);
+        private final List<Thread> threads = new ArrayList<>();
+        private final AtomicReference<@Nullable Throwable> failure = new AtomicReference<>();
+
+        /**
+         * @param items inputs, replaced by the results once processed
+         */
+        private Run(Object[] items) {
+            this.items = items;
+            for (int i = 0; i < stages.length; i++) queues.add(new ArrayBlockingQueue<>(queueCapacity));
+            threads.add(threadFactory.newThread(this::feed));
+            for (int stage = 0; stage < stages.length; stage++) {
+                AtomicInteger running = new AtomicInteger(parallelism[stage]);
+                for (int i = 0; i < parallelism[stage]; i++) {
+                    int current = stage;
+                    threads.add(threadFactory.newThread(() -> work(current, running)));
+                }
+            }
+        }
+
+        /**
+         * Starts all workers and waits until they finish.
+         */
+        private void execute() throws Exception {
+            try {
+                threads.forEach(Thread::start);
+                // workers failing before all threads were started could not interrupt them
+                if (failure.get() != null) threads.forEach(Thread::interrupt);
+                for (Thread thread : threads) thread.join();
+            } catch (InterruptedException exception) {
+                threads.forEach(Thread::interrupt);
+                throw exception;
+            }
+            switch (failure.get()) {
+                case null -> { }
+                case Exception exception -> throw exception;
+                case Error error -> throw error;
+                case Throwable throwable -> throw new RuntimeException(throwable);
+            }
+        }
+
+        /**
+         * Puts all inputs to the queue of the first stage.
+         */
+        private void feed() {
+            BlockingQueue<Item> queue = queues.getFirst();
+            try {
+                for (int i = 0; i < items.length; i++) queue.put(new Item(i, items[i]));
+                for (int i = 0; i < parallelism[0]; i++) queue.put(END);
+            } catch (Throwable throwable) {
+                fail(throwable);
+            }
+        }
+
+        /**
+         * Processes items of a stage until the end of its queue is reached.
+         * <p>
+         * The last worker of the stage to finish marks the end of the queue of the next stage.
+         *
+         * @param stage index of the stage
+         * @param running number of running workers of the stage
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void work(int stage, AtomicInteger running) {
+            DataHandler handler = stages[stage];
+            BlockingQueue<Item> input = queues.get(stage);
+            @Nullable BlockingQueue<Item> output = stage + 1 < queues.size() ? queues.get(stage + 1) : null;
+            try {
+                Item item;
+                while ((item = input.take()) != END) {
+                    Object transformed = handler.transform(item.value());
+                    if (output != null) output.put(new Item(item.index(), transformed));
+                    else items[item.index()] = transformed;
+                }
+                if (running.decrementAndGet() != 0 || output == null) return;
+                for (int i = 0; i < parallelism[stage + 1]; i++) output.put(END);
+            } catch (Throwable throwable) {
+                fail(throwable);
+            }
+        }
+
+        /**
+         * Records the failure and stops all workers, only the first failure is kept.
+         *
+         * @param throwable thrown exception
+         */
+        private void fail(Throwable throwable) {
+            if (!failure.compareAndSet(null, throwable)) return;
+            threads.forEach(Thread::interrupt);
+        }
+
+    }
+
+    /**
+     * Item passed between the stages.
+     *
+     * @param index index of the input the item belongs to
+     * @param value value of the item
+     */
+    private record Item(int index, @Nullable Object value) {
+    }
+
+    /**
+     * Builder for the {@link StagedPipelineRunner}.
+     *
+     * @param <I> the input type of the pipeline
+     * @param <O> the output type of the pipeline
+     */
+    public static final class Builder<I, O> {
+
+        private final DataHandler<?, ?>[] stages;
+        private final int[] parallelism;
+        private int queueCapacity = 1024;
+        private ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("foundry-stage-%d")
+                .setDaemon(true)
+                .build();
+
+        private Builder(Pipeline<I, O> pipeline) {
+            Preconditions.checkNotNull(pipeline, "Pipeline can not be null");
+            stages = pipeline.handlers().toArray(new DataHandler<?, ?>[0]);
+            parallelism = new int[stages.length];
+            Arrays.fill(parallelism, 1);
+        }
+
+        /**
+         * Sets the number of workers of a stage, by default each stage has a single worker.
+         *
+         * @param stage index of the stage
+         * @param workers number of workers
+         * @return this builder
+         */
+        public Builder<I, O> parallelism(int stage, int workers) {
+            Preconditions.checkElementIndex(stage, stages.length, "Stage");
+            Preconditions.checkArgument(workers > 0, "Number of workers must be positive");
+            parallelism[stage] = workers;
+            return this;
+        }
+
+        /**
+         * Sets the capacity of the queue before each stage, the default is {@code 1024}.
+         *
+         * @param capacity queue capacity
+         * @return this builder
+         */
+        public Builder<I, O> queueCapacity(int capacity) {
+            Preconditions.checkArgument(capacity > 0, "Queue capacity must be positive");
+            queueCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets the factory for the worker threads, by default daemon platform threads are used.
+         *
+         * @param threadFactory thread factory
+         * @return this builder
+         */
+        public Builder<I, O> threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = Preconditions.checkNotNull(threadFactory, "Thread factory can not be null");
+            return this;
+        }
+
+        /**
+         * Builds the {@link StagedPipelineRunner}.
+         *
+         * @return a new instance of {@link StagedPipelineRunner}
+         */
+        public StagedPipelineRunner<I, O> build() {
+            return new StagedPipelineRunner<>(stages, parallelism.clone(), queueCapacity, threadFactory);
+        }
+
+    }
+
+}
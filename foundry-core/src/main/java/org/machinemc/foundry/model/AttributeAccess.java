@@ -5,6 +5,7 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.RecordComponent;
 import java.util.List;
 
 /**
@@ -70,6 +71,29 @@ public record AttributeAccess(Get getter, @Nullable Set setter) {
 
     }
 
+    /**
+     * Represents access to a component of a record attribute flattened into its declaring class.
+     * <p>
+     * The component is read using the record accessor, the record itself is
+     * accessed by the access of the outer attribute.
+     *
+     * @param outer attribute holding the record
+     * @param component index of the record component
+     * @see Flatten
+     */
+    public record Flattened(ModelAttribute outer, int component) implements Get, Set {
+
+        /**
+         * Resolves and returns the record component of this access.
+         *
+         * @return record component of this access
+         */
+        public RecordComponent reflect() {
+            return outer.type().getRecordComponents()[component];
+        }
+
+    }
+
     /**
      * Represents a custom, possibly more complex getter.
      *
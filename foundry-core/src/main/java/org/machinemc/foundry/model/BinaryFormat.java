@@ -0,0 +1,483 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+import org.machinemc.foundry.Codec;
+import org.machinemc.foundry.Pipeline;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary format of objects described by a {@link ClassModel}.
+ * <p>
+ * The attributes are written in the order of the class model, with the following encoding:
+ * <ul>
+ *     <li>all boolean attributes are packed into bits at the start, eight per byte</li>
+ *     <li>{@code byte} as a single byte, {@code char} as an unsigned varint</li>
+ *     <li>{@code short}, {@code int} and {@code long} as zigzag encoded varints</li>
+ *     <li>{@code float} and {@code double} as their fixed size big-endian IEEE 754 bits</li>
+ *     <li>object attributes using their {@link ValueEncoding}, with the primitive values encoded
+ *     as above, strings and lengths of arrays, collections and maps as varints followed by their
+ *     UTF-8 bytes (or elements), and nested objects using the binary format of the declared type</li>
+ * </ul>
+ * The format does not include any field names or type information, both sides need to use
+ * the same class model.
+ * <p>
+ * Binary formats are thread-safe.
+ *
+ * @param <T> type of the objects
+ */
+public final class BinaryFormat<T> {
+
+    private static final ClassValue<BinaryFormat<?>> DEFAULT_FORMATS = new ClassValue<>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected BinaryFormat<?> computeValue(Class<?> type) {
+            return new BinaryFormat(type, ClassModel.of(type));
+        }
+    };
+
+    /**
+     * Returns binary format for objects of given type using the default class model of the type.
+     *
+     * @param type type of the objects
+     * @return binary format for objects of given type
+     * @param <T> type of the objects
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BinaryFormat<T> of(Class<T> type) {
+        Preconditions.checkNotNull(type, "Type can not be null");
+        return (BinaryFormat<T>) DEFAULT_FORMATS.get(type);
+    }
+
+    /**
+     * Returns binary format for objects of given type.
+     *
+     * @param type type of the objects
+     * @param classModel class model to use for the (de)construction
+     * @return binary format for objects of given type
+     * @param <T> type of the objects
+     */
+    public static <T> BinaryFormat<T> of(Class<T> type, ClassModel<T> classModel) {
+        Preconditions.checkNotNull(type, "Type can not be null");
+        Preconditions.checkNotNull(classModel, "Class model can not be null");
+        return new BinaryFormat<>(type, classModel);
+    }
+
+    /**
+     * Creates a codec that transforms objects of type {@link T} into their binary
+     * format and back.
+     *
+     * @param type type of the objects
+     * @return codec between the objects and their binary format
+     * @param <T> type of the objects
+     */
+    public static <T> Codec<T, byte[]> codec(Class<T> type) {
+        return of(type).codec();
+    }
+
+    private final ObjectFactory<T> objectFactory;
+    private final ModelDataContainer.Factory containers;
+
+    /**
+     * Slots of the boolean attributes.
+     */
+    private final int[] bools;
+
+    /**
+     * Slots, types and value encodings of all other attributes.
+     */
+    private final int[] slots;
+    private final ContainerTypeMapping[] types;
+    private final ValueEncoding[] encodings;
+
+    private BinaryFormat(Class<T> type, ClassModel<T> classModel) {
+        objectFactory = ObjectFactory.create(type, classModel);
+        containers = objectFactory.containerFactory();
+
+        ModelAttribute[] attributes = classModel.getAttributes();
+        // enums are resolved only by their name
+        int count = type.isEnum() ? 1 : attributes.length;
+        int[] bools = new int[count];
+        int[] slots = new int[count];
+        ContainerTypeMapping[] types = new ContainerTypeMapping[count];
+        ValueEncoding[] encodings = new ValueEncoding[count];
+        int boolCount = 0, otherCount = 0;
+        for (int i = 0; i < count; i++) {
+            ContainerTypeMapping mapping = ContainerTypeMapping.of(attributes[i].type());
+            if (mapping == ContainerTypeMapping.BOOLEAN) {
+                bools[boolCount++] = containers.slotOf(i);
+                continue;
+            }
+            slots[otherCount] = containers.slotOf(i);
+            types[otherCount] = mapping;
+            // fails right away for attributes that can not be encoded
+            if (mapping == ContainerTypeMapping.OBJECT) encodings[otherCount] = checked(type, attributes[i]);
+            otherCount++;
+        }
+        this.bools = Arrays.copyOf(bools, boolCount);
+        this.slots = Arrays.copyOf(slots, otherCount);
+        this.types = Arrays.copyOf(types, otherCount);
+        this.encodings = Arrays.copyOf(encodings, otherCount);
+    }
+
+    private static ValueEncoding checked(Class<?> type, ModelAttribute attribute) {
+        try {
+            return ValueEncoding.of(attribute).checked();
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Attribute '" + attribute.name() + "' of " + type.getName()
+                    + " can not be encoded: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * @return codec between the objects and their binary format
+     */
+    public Codec<T, byte[]> codec() {
+        return new Codec<>(Pipeline.of(this::encode), Pipeline.<byte[], T>of(this::decode));
+    }
+
+    /**
+     * @return codec between the objects and byte buffers with their binary format
+     */
+    public Codec<T, ByteBuffer> bufferCodec() {
+        return new Codec<>(Pipeline.of(instance -> ByteBuffer.wrap(encode(instance))),
+                Pipeline.<ByteBuffer, T>of(this::decode));
+    }
+
+    /**
+     * Encodes the object to its binary format.
+     *
+     * @param instance object to encode
+     * @return encoded object
+     */
+    public byte[] encode(T instance) {
+        Output output = new Output();
+        write(output, instance);
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes the object from its binary format.
+     *
+     * @param bytes encoded object
+     * @return decoded object
+     */
+    public T decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes the object from its binary format, starting at the position of the buffer.
+     * <p>
+     * The position of the buffer is moved after the encoded object.
+     *
+     * @param buffer buffer with the encoded object
+     * @return decoded object
+     * @throws java.nio.BufferUnderflowException if the buffer does not contain the whole object
+     */
+    public T decode(ByteBuffer buffer) {
+        return read(new Input(buffer));
+    }
+
+    private void write(Output output, T instance) {
+        ModelDataContainer container = containers.acquire();
+        try {
+            objectFactory.write(instance, container);
+            for (int i = 0; i < bools.length; i += 8) {
+                int bits = 0;
+                for (int bit = 0; bit < 8 && i + bit < bools.length; bit++) {
+                    if (container.getBool(bools[i + bit])) bits |= 1 << bit;
+                }
+                output.writeByte((byte) bits);
+            }
+            for (int i = 0; i < slots.length; i++) {
+                int slot = slots[i];
+                switch (types[i]) {
+                    case CHAR -> output.writeChar(container.getChar(slot));
+                    case BYTE -> output.writeByte(container.getByte(slot));
+                    case SHORT -> output.writeShort(container.getShort(slot));
+                    case INT -> output.writeInt(container.getInt(slot));
+                    case LONG -> output.writeLong(container.getLong(slot));
+                    case FLOAT -> output.writeFloat(container.getFloat(slot));
+                    case DOUBLE -> output.writeDouble(container.getDouble(slot));
+                    case OBJECT -> encodings[i].write(output, container.getObject(slot));
+                    case BOOLEAN -> throw new AssertionError();
+                }
+            }
+        } finally {
+            containers.release(container);
+        }
+    }
+
+    private T read(Input input) {
+        ModelDataContainer container = containers.acquire();
+        try {
+            container.reset();
+            for (int i = 0; i < bools.length; i += 8) {
+                int bits = input.readByte();
+                for (int bit = 0; bit < 8 && i + bit < bools.length; bit++)
+                    container.setBool(bools[i + bit], (bits & (1 << bit)) != 0);
+            }
+            for (int i = 0; i < slots.length; i++) {
+                int slot = slots[i];
+                switch (types[i]) {
+                    case CHAR -> container.setChar(slot, input.readChar());
+                    case BYTE -> container.setByte(slot, input.readByte());
+                    case SHORT -> container.setShort(slot, input.readShort());
+                    case INT -> container.setInt(slot, input.readInt());
+                    case LONG -> container.setLong(slot, input.readLong());
+                    case FLOAT -> container.setFloat(slot, input.readFloat());
+                    case DOUBLE -> container.setDouble(slot, input.readDouble());
+                    case OBJECT -> container.setObject(slot, encodings[i].read(input));
+                    case BOOLEAN -> throw new AssertionError();
+                }
+            }
+            return objectFactory.read(container);
+        } finally {
+            containers.release(container);
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Growable output for the encoded bytes.
+     */
+    private static final class Output implements ValueEncoding.Sink {
+
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        private void ensure(int additional) {
+            if (size + additional > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + additional));
+        }
+
+        @Override
+        public void writeBool(boolean value) {
+            writeByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void writeChar(char value) {
+            writeVarInt(value);
+        }
+
+        @Override
+        public void writeByte(byte value) {
+            ensure(1);
+            bytes[size++] = value;
+        }
+
+        @Override
+        public void writeShort(short value) {
+            writeVarInt(zigzag(value));
+        }
+
+        @Override
+        public void writeInt(int value) {
+            writeVarInt(zigzag(value));
+        }
+
+        @Override
+        public void writeLong(long value) {
+            writeVarLong(zigzag(value));
+        }
+
+        @Override
+        public void writeFloat(float value) {
+            writeFixedInt(Float.floatToRawIntBits(value));
+        }
+
+        @Override
+        public void writeDouble(double value) {
+            writeFixedLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void writeLength(int length) {
+            writeVarInt(length);
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public void writeModel(Object value, Class<?> type) {
+            ((BinaryFormat) of(type)).write(this, value);
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeFixedInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) bytes[size++] = (byte) (value >>> shift);
+        }
+
+        void writeFixedLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) bytes[size++] = (byte) (value >>> shift);
+        }
+
+        @Override
+        public void writeString(String value) {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) >= 0x80) {
+                    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(encoded.length);
+                    ensure(encoded.length);
+                    System.arraycopy(encoded, 0, bytes, size, encoded.length);
+                    size += encoded.length;
+                    return;
+                }
+            }
+            // ASCII fast path, each char is a single byte
+            writeVarInt(length);
+            ensure(length);
+            for (int i = 0; i < length; i++) bytes[size++] = (byte) value.charAt(i);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+    }
+
+    /**
+     * Input reading the encoded bytes from a byte buffer.
+     * <p>
+     * Fixed size values are always read as big-endian, regardless of the byte order of the buffer.
+     *
+     * @param buffer buffer to read from
+     */
+    private record Input(ByteBuffer buffer) implements ValueEncoding.Source {
+
+        @Override
+        public boolean readBool() {
+            return buffer.get() != 0;
+        }
+
+        @Override
+        public char readChar() {
+            return (char) readVarInt();
+        }
+
+        @Override
+        public byte readByte() {
+            return buffer.get();
+        }
+
+        @Override
+        public short readShort() {
+            return (short) unzigzag(readVarInt());
+        }
+
+        @Override
+        public int readInt() {
+            return unzigzag(readVarInt());
+        }
+
+        @Override
+        public long readLong() {
+            return unzigzag(readVarLong());
+        }
+
+        @Override
+        public float readFloat() {
+            return Float.intBitsToFloat((int) readFixed(Integer.BYTES));
+        }
+
+        @Override
+        public double readDouble() {
+            return Double.longBitsToDouble(readFixed(Long.BYTES));
+        }
+
+        @Override
+        public String readString() {
+            int length = readLength(byte.class);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            // ASCII fast path, Latin-1 decoding copies the bytes without validation
+            for (byte current : bytes) {
+                if (current < 0) return new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public int readLength(Class<?> elementType) {
+            int length = readVarInt();
+            Preconditions.checkArgument(length >= 0, "Negative length %s", length);
+            // variable length values and presence markers of objects take at least a byte
+            int elementSize = elementType == double.class ? Long.BYTES
+                    : elementType == float.class ? Integer.BYTES : Byte.BYTES;
+            Preconditions.checkArgument((long) length * elementSize <= buffer.remaining(),
+                    "Length %s exceeds the remaining %s bytes", length, buffer.remaining());
+            return length;
+        }
+
+        @Override
+        public Object readModel(Class<?> type) {
+            return of(type).read(this);
+        }
+
+        private long readFixed(int bytes) {
+            long value = 0;
+            for (int i = 0; i < bytes; i++) value = (value << 8) | (buffer.get() & 0xFF);
+            return value;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte current = buffer.get();
+                value |= (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("VarInt is too long");
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                byte current = buffer.get();
+                value |= (long) (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("VarLong is too long");
+        }
+
+    }
+
+}
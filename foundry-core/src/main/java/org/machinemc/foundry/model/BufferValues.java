@@ -0,0 +1,225 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes attribute values that can not be written to a {@link ByteBuffer} directly
+ * by the generated object factories.
+ * <p>
+ * Object attributes are written using their {@link ValueEncoding}: presence markers and booleans
+ * as a single byte, strings as length-prefixed UTF-8, other primitive values, lengths of arrays,
+ * collections and maps with their fixed size and the byte order of the buffer, and nested objects
+ * using the object factory of their declared type.
+ */
+@ApiStatus.Internal
+public final class BufferValues {
+
+    private BufferValues() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Reads a boolean value, written as a single byte.
+     *
+     * @param buffer buffer to read from
+     * @return read value
+     */
+    public static boolean readBool(ByteBuffer buffer) {
+        return buffer.get() != 0;
+    }
+
+    /**
+     * Writes an object attribute value.
+     *
+     * @param buffer buffer to write to
+     * @param value value to write
+     * @param encoding encoding of the attribute
+     */
+    public static void writeObject(ByteBuffer buffer, @Nullable Object value, ValueEncoding encoding) {
+        encoding.write(new Sink(buffer), value);
+    }
+
+    /**
+     * Writes an object attribute value, using the encoding of its declared type.
+     *
+     * @param buffer buffer to write to
+     * @param value value to write
+     * @param type declared type of the attribute
+     * @see ValueEncoding#of(java.lang.reflect.Type)
+     */
+    public static void writeObject(ByteBuffer buffer, @Nullable Object value, Class<?> type) {
+        writeObject(buffer, value, ValueEncoding.of(type));
+    }
+
+    /**
+     * Reads an object attribute value.
+     *
+     * @param buffer buffer to read from
+     * @param encoding encoding of the attribute
+     * @return read value
+     */
+    public static @Nullable Object readObject(ByteBuffer buffer, ValueEncoding encoding) {
+        return encoding.read(new Source(buffer));
+    }
+
+    /**
+     * Reads an object attribute value, using the encoding of its declared type.
+     *
+     * @param buffer buffer to read from
+     * @param type declared type of the attribute
+     * @return read value
+     * @see ValueEncoding#of(java.lang.reflect.Type)
+     */
+    public static @Nullable Object readObject(ByteBuffer buffer, Class<?> type) {
+        return readObject(buffer, ValueEncoding.of(type));
+    }
+
+    /**
+     * Sink writing the values to a byte buffer.
+     *
+     * @param buffer buffer to write to
+     */
+    private record Sink(ByteBuffer buffer) implements ValueEncoding.Sink {
+
+        @Override
+        public void writeBool(boolean value) {
+            buffer.put((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void writeChar(char value) {
+            buffer.putChar(value);
+        }
+
+        @Override
+        public void writeByte(byte value) {
+            buffer.put(value);
+        }
+
+        @Override
+        public void writeShort(short value) {
+            buffer.putShort(value);
+        }
+
+        @Override
+        public void writeInt(int value) {
+            buffer.putInt(value);
+        }
+
+        @Override
+        public void writeLong(long value) {
+            buffer.putLong(value);
+        }
+
+        @Override
+        public void writeFloat(float value) {
+            buffer.putFloat(value);
+        }
+
+        @Override
+        public void writeDouble(double value) {
+            buffer.putDouble(value);
+        }
+
+        @Override
+        public void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        @Override
+        public void writeLength(int length) {
+            buffer.putInt(length);
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public void writeModel(Object value, Class<?> type) {
+            ((ObjectFactory) ObjectFactory.create(type)).write(value, buffer);
+        }
+
+    }
+
+    /**
+     * Source reading the values from a byte buffer.
+     *
+     * @param buffer buffer to read from
+     */
+    private record Source(ByteBuffer buffer) implements ValueEncoding.Source {
+
+        @Override
+        public boolean readBool() {
+            return buffer.get() != 0;
+        }
+
+        @Override
+        public char readChar() {
+            return buffer.getChar();
+        }
+
+        @Override
+        public byte readByte() {
+            return buffer.get();
+        }
+
+        @Override
+        public short readShort() {
+            return buffer.getShort();
+        }
+
+        @Override
+        public int readInt() {
+            return buffer.getInt();
+        }
+
+        @Override
+        public long readLong() {
+            return buffer.getLong();
+        }
+
+        @Override
+        public float readFloat() {
+            return buffer.getFloat();
+        }
+
+        @Override
+        public double readDouble() {
+            return buffer.getDouble();
+        }
+
+        @Override
+        public String readString() {
+            byte[] bytes = new byte[readLength(byte.class)];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int readLength(Class<?> elementType) {
+            int length = buffer.getInt();
+            Preconditions.checkArgument(length >= 0, "Negative length %s", length);
+            // objects take at least their presence marker
+            int elementSize;
+            if (elementType == long.class || elementType == double.class) elementSize = Long.BYTES;
+            else if (elementType == int.class || elementType == float.class) elementSize = Integer.BYTES;
+            else if (elementType == char.class || elementType == short.class) elementSize = Short.BYTES;
+            else elementSize = Byte.BYTES;
+            Preconditions.checkArgument((long) length * elementSize <= buffer.remaining(),
+                    "Length %s exceeds the remaining %s bytes", length, buffer.remaining());
+            return length;
+        }
+
+        @Override
+        public Object readModel(Class<?> type) {
+            return ObjectFactory.create(type).read(buffer);
+        }
+
+    }
+
+}
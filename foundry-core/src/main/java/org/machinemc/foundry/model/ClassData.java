@@ -36,16 +36,20 @@ final class ClassData {
     private final List<ModelAttribute> getters;
     private final List<ModelAttribute> setters;
     private final Map<Class<?>, ObjectFactory.ObjectFactoryPart<?>> parentAccessors;
+    private final List<ModelAttribute> encodings;
     private final int size;
 
     private ClassData(@Nullable ClassModel.ConstructionMethod constructor,
                       List<ModelAttribute> getters, List<ModelAttribute> setters,
-                      Map<Class<?>, ObjectFactory.ObjectFactoryPart<?>> parentAccessors) {
+                      Map<Class<?>, ObjectFactory.ObjectFactoryPart<?>> parentAccessors,
+                      List<ModelAttribute> encodings) {
         this.constructor = constructor;
         this.getters = getters;
         this.setters = setters;
         this.parentAccessors = parentAccessors;
-        size = getters.size() + setters.size() + parentAccessors.size() + (constructor != null ? 1 : 0);
+        this.encodings = encodings;
+        size = getters.size() + setters.size() + parentAccessors.size() + encodings.size()
+                + (constructor != null ? 1 : 0);
     }
 
     /**
@@ -80,12 +84,21 @@ final class ClassData {
         return getters.size() + setters.size() + i;
     }
 
+    /**
+     * @param attribute attribute
+     * @return index of value encoding for given attribute
+     */
+    int encodingIdx(ModelAttribute attribute) {
+        Preconditions.checkState(encodings.contains(attribute), "Missing value encoding");
+        return getters.size() + setters.size() + parentAccessors.size() + encodings.indexOf(attribute);
+    }
+
     /**
      * @return constructor index
      */
     int constructorIdx() {
         Preconditions.checkState(constructor != null, "Missing constructor");
-        return getters.size() + setters.size() + parentAccessors.size();
+        return getters.size() + setters.size() + parentAccessors.size() + encodings.size();
     }
 
     private Class<?> getConstructorType() {
@@ -112,6 +125,8 @@ final class ClassData {
         }
         for (var _ : parentAccessors.values())
             visitField(visitor, i++, ObjectFactory.ObjectFactoryPart.class);
+        for (var _ : encodings)
+            visitField(visitor, i++, ValueEncoding.class);
         if (constructor != null)
             visitField(visitor, i, getConstructorType());
     }
@@ -158,6 +173,8 @@ final class ClassData {
         }
         for (var _ : parentAccessors.values())
             putField(owner, mv, i++, ObjectFactory.ObjectFactoryPart.class);
+        for (var _ : encodings)
+            putField(owner, mv, i++, ValueEncoding.class);
         if (constructor != null)
             putField(owner, mv, i, getConstructorType());
     }
@@ -209,6 +226,10 @@ final class ClassData {
         else if (idx < getters.size() + setters.size() + parentAccessors.size()) {
             type = ObjectFactory.ObjectFactoryPart.class;
         }
+        // value encodings
+        else if (idx < getters.size() + setters.size() + parentAccessors.size() + encodings.size()) {
+            type = ValueEncoding.class;
+        }
         // constructor
         else if (constructor != null && idx == constructorIdx()) {
             type = getConstructorType();
@@ -235,6 +256,8 @@ final class ClassData {
             data[offset++] = setter.access().setter();
         for (var accessor : parentAccessors.values())
             data[offset++] = accessor;
+        for (var attribute : encodings)
+            data[offset++] = ValueEncoding.of(attribute);
         if (constructor != null)
             data[offset] = constructor;
         return List.of(data);
@@ -282,6 +305,7 @@ final class ClassData {
         private final List<ModelAttribute> getters = new ArrayList<>();
         private final List<ModelAttribute> setters = new ArrayList<>();
         private final Map<Class<?>, ObjectFactory.ObjectFactoryPart<?>> parentAccessors = new LinkedHashMap<>();
+        private final List<ModelAttribute> encodings = new ArrayList<>();
 
         /**
          * Reserves new index for a custom constructor.
@@ -330,6 +354,18 @@ final class ClassData {
             parentAccessors.put(parent, instance);
         }
 
+        /**
+         * Reserves new index for the value encoding of an object attribute.
+         *
+         * @param attribute attribute to reserve the encoding for
+         * @see ValueEncoding#of(ModelAttribute)
+         */
+        void reserveEncoding(ModelAttribute attribute) {
+            Preconditions.checkState(!attribute.primitive(), "You can reserve encoding place only for "
+                    + "an object attribute");
+            if (!encodings.contains(attribute)) encodings.add(attribute);
+        }
+
         /**
          * @return new class data instance for this builder
          */
@@ -338,7 +374,8 @@ final class ClassData {
                     constructor,
                     ImmutableList.copyOf(getters),
                     ImmutableList.copyOf(setters),
-                    ImmutableMap.copyOf(parentAccessors)
+                    ImmutableMap.copyOf(parentAccessors),
+                    ImmutableList.copyOf(encodings)
             );
         }
 
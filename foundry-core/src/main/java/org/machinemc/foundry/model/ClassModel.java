@@ -15,6 +15,7 @@ public class ClassModel<T> {
     private final Class<T> source;
     private final ModelAttribute[] attributes;
     private final ConstructionMethod constructionMethod;
+    private final int hashCode;
 
     /**
      * Automatically creates a class model from the given type by inferring the correct mapping route.
@@ -151,6 +152,8 @@ public class ClassModel<T> {
         this.source = source;
         this.attributes = attributes;
         this.constructionMethod = constructionMethod;
+        // class models are used as keys for the generated object factories, so the hash is computed only once
+        hashCode = Objects.hash(Arrays.hashCode(attributes), constructionMethod.hashCode());
     }
 
     /**
@@ -190,7 +193,7 @@ public class ClassModel<T> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(Arrays.hashCode(attributes), constructionMethod.hashCode());
+        return hashCode;
     }
 
     /**
@@ -237,7 +240,7 @@ public class ClassModel<T> {
          * @param <T> enum type
          */
         static <T extends Enum<T>> EnumConstructor<T> valueOf(Class<T> type) {
-            return name -> Enum.valueOf(type, name);
+            return new ValueOfConstructor<>(type);
         }
 
         /**
@@ -247,6 +250,24 @@ public class ClassModel<T> {
 
     }
 
+    /**
+     * Enum constructor returned by {@link EnumConstructor#valueOf(Class)}.
+     * <p>
+     * Unlike a lambda, two instances for the same enum type are equal, so
+     * class models using the default enum constructor are equal as well.
+     *
+     * @param type enum type
+     * @param <T> enum type
+     */
+    private record ValueOfConstructor<T extends Enum<T>>(Class<T> type) implements EnumConstructor<T> {
+
+        @Override
+        public T get(String name) {
+            return Enum.valueOf(type, name);
+        }
+
+    }
+
     /**
      * Custom constructor implementation.
      *
@@ -5,6 +5,8 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Class that automatically generates class models for types.
@@ -55,13 +57,16 @@ final class ClassModelFactory {
     static <T extends Record> ClassModel<T> mapRecord(Class<T> type) {
         Preconditions.checkArgument(type.isRecord(), "Type '%s' must be a record", type.getName());
 
-        ModelAttribute[] attributes = Arrays.stream(type.getRecordComponents())
+        RecordComponent[] components = type.getRecordComponents();
+        Constructor<?> constructor = allArgsConstructor(type, Arrays.stream(components)
                 .map(ClassModelFactory::asAttribute)
-                .toArray(ModelAttribute[]::new);
-
-        Constructor<?> constructor = allArgsConstructor(type, attributes);
+                .toArray(ModelAttribute[]::new));
         Preconditions.checkNotNull(constructor); // always present
 
+        ModelAttribute[] attributes = Arrays.stream(components)
+                .flatMap(component -> flatten(asAttribute(component), component))
+                .toArray(ModelAttribute[]::new);
+
         return new ClassModel<>(type, attributes, ClassModel.RecordConstructor.INSTANCE);
     }
 
@@ -112,7 +117,7 @@ final class ClassModelFactory {
         if (strategy == ClassModel.ModellingStrategy.STRUCTURE) {
             return getAllFields(type).stream()
                     .filter(ClassModelFactory::keepField)
-                    .map(ClassModelFactory::asAttribute)
+                    .flatMap(field -> flatten(asAttribute(field), field))
                     .toArray(ModelAttribute[]::new);
         } else {
             return extractExposedAttributes(type);
@@ -225,6 +230,29 @@ final class ClassModelFactory {
                 null));
     }
 
+    /**
+     * Replaces attribute annotated with {@link Flatten} with the components of its record.
+     *
+     * @param attribute attribute
+     * @param element annotated element of the attribute
+     * @return attributes of the class model
+     */
+    private static Stream<ModelAttribute> flatten(ModelAttribute attribute, AnnotatedElement element) {
+        if (!element.isAnnotationPresent(Flatten.class))
+            return Stream.of(attribute);
+        Preconditions.checkState(attribute.type().isRecord(), "Flattened attribute '%s' of class '%s' "
+                + "must be a record", attribute.name(), attribute.source().getName());
+        RecordComponent[] components = attribute.type().getRecordComponents();
+        Preconditions.checkState(components.length > 0, "Flattened record of attribute '%s' of class '%s' "
+                + "has no components", attribute.name(), attribute.source().getName());
+        return IntStream.range(0, components.length).mapToObj(i -> {
+            AttributeAccess.Flattened access = new AttributeAccess.Flattened(attribute, i);
+            return new ModelAttribute(attribute.source(), attribute.name() + "." + components[i].getName(),
+                    components[i].getType(), components[i].getAnnotatedType(),
+                    new AttributeAccess(access, attribute.access().setter() != null ? access : null));
+        });
+    }
+
     private static AttributeAccess createAccess(Field field) {
         Class<?> declaring = field.getDeclaringClass();
         Method getter = findFieldAccessMethod(field, declaring, false);
@@ -12,70 +12,70 @@ enum ContainerTypeMapping {
     /**
      * Primitive boolean mapping.
      */
-    BOOLEAN(boolean.class, Type.BOOLEAN_TYPE, "readBool", "writeBool",
+    BOOLEAN(boolean.class, Type.BOOLEAN_TYPE, "getBool", "setBool",
             AttributeAccess.CustomGetter.Bool.class, AttributeAccess.CustomSetter.Bool.class),
 
     /**
      * Primitive char mapping.
      */
-    CHAR(char.class, Type.CHAR_TYPE, "readChar", "writeChar",
+    CHAR(char.class, Type.CHAR_TYPE, "getChar", "setChar",
             AttributeAccess.CustomGetter.Char.class, AttributeAccess.CustomSetter.Char.class),
 
     /**
      * Primitive byte mapping.
      */
-    BYTE(byte.class, Type.BYTE_TYPE, "readByte", "writeByte",
+    BYTE(byte.class, Type.BYTE_TYPE, "getByte", "setByte",
             AttributeAccess.CustomGetter.Byte.class, AttributeAccess.CustomSetter.Byte.class),
 
     /**
      * Primitive short mapping.
      */
-    SHORT(short.class, Type.SHORT_TYPE, "readShort", "writeShort",
+    SHORT(short.class, Type.SHORT_TYPE, "getShort", "setShort",
             AttributeAccess.CustomGetter.Short.class, AttributeAccess.CustomSetter.Short.class),
 
     /**
      * Primitive int mapping.
      */
-    INT(int.class, Type.INT_TYPE, "readInt", "writeInt",
+    INT(int.class, Type.INT_TYPE, "getInt", "setInt",
             AttributeAccess.CustomGetter.Int.class, AttributeAccess.CustomSetter.Int.class),
 
     /**
      * Primitive long mapping.
      */
-    LONG(long.class, Type.LONG_TYPE, "readLong", "writeLong",
+    LONG(long.class, Type.LONG_TYPE, "getLong", "setLong",
             AttributeAccess.CustomGetter.Long.class, AttributeAccess.CustomSetter.Long.class),
 
     /**
      * Primitive float mapping.
      */
-    FLOAT(float.class, Type.FLOAT_TYPE, "readFloat", "writeFloat",
+    FLOAT(float.class, Type.FLOAT_TYPE, "getFloat", "setFloat",
             AttributeAccess.CustomGetter.Float.class, AttributeAccess.CustomSetter.Float.class),
 
     /**
      * Primitive double mapping.
      */
-    DOUBLE(double.class, Type.DOUBLE_TYPE, "readDouble", "writeDouble",
+    DOUBLE(double.class, Type.DOUBLE_TYPE, "getDouble", "setDouble",
             AttributeAccess.CustomGetter.Double.class, AttributeAccess.CustomSetter.Double.class),
 
     /**
      * Object mapping.
      */
-    OBJECT(Object.class, Type.getType(Object.class), "readObject", "writeObject",
+    OBJECT(Object.class, Type.getType(Object.class), "getObject", "setObject",
             AttributeAccess.CustomGetter.Object.class, AttributeAccess.CustomSetter.Object.class);
 
     final Class<?> javaType;
     final Type asmType;
-    final String readMethod;
-    final String writeMethod;
+    final String getMethod;
+    final String setMethod;
     final Class<?> customGetter;
     final Class<?> customSetter;
 
-    ContainerTypeMapping(Class<?> javaType, Type asmType, String readMethod, String writeMethod,
+    ContainerTypeMapping(Class<?> javaType, Type asmType, String getMethod, String setMethod,
                          Class<?> customGetter, Class<?> customSetter) {
         this.javaType = javaType;
         this.asmType = asmType;
-        this.readMethod = readMethod;
-        this.writeMethod = writeMethod;
+        this.getMethod = getMethod;
+        this.setMethod = setMethod;
         this.customGetter = customGetter;
         this.customSetter = customSetter;
     }
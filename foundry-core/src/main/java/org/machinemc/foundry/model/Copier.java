@@ -0,0 +1,89 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+import org.machinemc.foundry.DataHandler;
+
+/**
+ * Data handler creating copies of objects.
+ * <p>
+ * The attributes are copied directly from the source to the new object by its
+ * {@link ObjectFactory}, without any intermediate container. Primitive attributes are always
+ * copied by value, object attributes are either shared with the source (shallow copy), or copied
+ * recursively (deep copy). Deep copies preserve the identity of objects shared within the
+ * copied graph, including cycles between non-record classes.
+ * <p>
+ * Copiers are thread-safe.
+ *
+ * @param <T> type of the copied objects
+ */
+public final class Copier<T> implements DataHandler<T, T> {
+
+    /**
+     * Creates copier sharing the object attributes with the source.
+     *
+     * @param type type of the copied objects
+     * @return shallow copier
+     * @param <T> type of the copied objects
+     */
+    public static <T> Copier<T> shallow(Class<T> type) {
+        return new Copier<>(ObjectFactory.create(type), false);
+    }
+
+    /**
+     * Creates copier copying the object attributes recursively.
+     *
+     * @param type type of the copied objects
+     * @return deep copier
+     * @param <T> type of the copied objects
+     */
+    public static <T> Copier<T> deep(Class<T> type) {
+        return new Copier<>(ObjectFactory.create(type), true);
+    }
+
+    /**
+     * Creates copier using given class model.
+     *
+     * @param type type of the copied objects
+     * @param classModel class model of the type
+     * @param deep whether the object attributes should be copied recursively
+     * @return copier
+     * @param <T> type of the copied objects
+     */
+    public static <T> Copier<T> of(Class<T> type, ClassModel<T> classModel, boolean deep) {
+        return new Copier<>(ObjectFactory.create(type, classModel), deep);
+    }
+
+    private final ObjectFactory<T> objectFactory;
+    private final boolean deep;
+
+    private Copier(ObjectFactory<T> objectFactory, boolean deep) {
+        this.objectFactory = objectFactory;
+        this.deep = deep;
+    }
+
+    /**
+     * @return whether the object attributes are copied recursively
+     */
+    public boolean isDeep() {
+        return deep;
+    }
+
+    /**
+     * Creates copy of given object.
+     *
+     * @param instance object to copy
+     * @return copy of the object
+     * @throws IllegalArgumentException if a deep copy reaches a value it can not copy, such as
+     * a mutable JDK type it does not know or a cycle leading back to a record
+     */
+    public T copy(T instance) {
+        Preconditions.checkNotNull(instance, "Copied object can not be null");
+        return (deep ? CopyContext.deep() : CopyContext.shallow()).copyRoot(instance, objectFactory);
+    }
+
+    @Override
+    public T transform(T instance) {
+        return copy(instance);
+    }
+
+}
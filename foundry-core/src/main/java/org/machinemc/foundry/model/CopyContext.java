@@ -0,0 +1,339 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Context of a single copy of an object, deciding how its object attributes are copied.
+ * <p>
+ * Shallow context keeps the object attributes as they are. Deep context copies them
+ * recursively using the object factories of their runtime types and remembers all copied
+ * objects, so objects shared within the copied graph stay shared and cycles are preserved.
+ * <p>
+ * This class is for internal use only, see {@link Copier}.
+ */
+@ApiStatus.Internal
+public sealed class CopyContext {
+
+    private static final CopyContext SHALLOW = new CopyContext();
+
+    /**
+     * @return context for shallow copies
+     */
+    public static CopyContext shallow() {
+        return SHALLOW;
+    }
+
+    /**
+     * Creates new context for a deep copy, each copied object graph needs its own context.
+     *
+     * @return new context for a deep copy
+     */
+    public static CopyContext deep() {
+        return new Deep();
+    }
+
+    private CopyContext() {
+    }
+
+    /**
+     * Copies value of an object attribute.
+     *
+     * @param value value to copy
+     * @return copied value
+     */
+    public @Nullable Object copy(@Nullable Object value) {
+        return value;
+    }
+
+    /**
+     * Copies the object the copy was started with, using given object factory.
+     *
+     * @param instance object to copy
+     * @param factory object factory of the object
+     * @return copy of the object
+     * @param <T> type of the object
+     */
+    public <T> T copyRoot(T instance, ObjectFactory<T> factory) {
+        return factory.copy(instance, this);
+    }
+
+    /**
+     * Registers copy of an object before its attributes are copied.
+     *
+     * @param source copied object
+     * @param copy copy of the object
+     */
+    public void register(Object source, Object copy) {
+    }
+
+    /**
+     * Context of a deep copy.
+     * <p>
+     * Strings, boxed primitives, big numbers, UUIDs, types of the {@code java.time} packages,
+     * enums and classes are immutable values and kept as they are. Atomic values, dates, calendars,
+     * bit sets and string builders are copied with their current value. Other types of the
+     * {@code java} packages are not known to be immutable and can not be copied, so they are
+     * rejected rather than shared with the copy.
+     * <p>
+     * Arrays are copied with the same component type. Collections and maps are copied to new
+     * instances of their own class, keeping the comparators of sorted ones, and immutable JDK
+     * collections and optionals to new immutable ones. Collections that can not be instantiated
+     * this way, e.g. unmodifiable views, are rejected.
+     * <p>
+     * Records, immutable collections and optionals can be created only once their contents are
+     * copied, so a cycle leading back to them can not be copied.
+     */
+    private static final class Deep extends CopyContext {
+
+        /**
+         * Public constructors of collection and map classes used for their copies, accepting
+         * the comparator for sorted collections, empty if the class can not be instantiated.
+         */
+        private static final ClassValue<Optional<Constructor<?>>> CONSTRUCTORS = new ClassValue<>() {
+            @Override
+            protected Optional<Constructor<?>> computeValue(Class<?> type) {
+                boolean sorted = SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type)
+                        || PriorityQueue.class.isAssignableFrom(type);
+                try {
+                    Constructor<?> constructor = sorted ? type.getConstructor(Comparator.class) : type.getConstructor();
+                    return Modifier.isAbstract(type.getModifiers()) || !constructor.canAccess(null)
+                            ? Optional.empty()
+                            : Optional.of(constructor);
+                } catch (NoSuchMethodException _) {
+                    return Optional.empty();
+                }
+            }
+        };
+
+        /**
+         * Final classes of the {@code java} packages kept as they are, in addition
+         * to the {@code java.time} packages.
+         */
+        private static final Set<Class<?>> IMMUTABLE = Set.of(String.class, Boolean.class, Character.class,
+                Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+                BigInteger.class, BigDecimal.class, UUID.class);
+
+        private final Map<Object, Object> copies = new IdentityHashMap<>();
+        private final Set<Object> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        @Override
+        public @Nullable Object copy(@Nullable Object value) {
+            switch (value) {
+                case null -> {
+                    return null;
+                }
+                case Enum<?> _, Class<?> _ -> {
+                    return value;
+                }
+                default -> {
+                    if (isImmutable(value.getClass())) return value;
+                }
+            }
+            Object copy = copies.get(value);
+            if (copy != null) return copy;
+            Preconditions.checkArgument(!inProgress.contains(value), "Object graph contains a cycle leading back "
+                    + "to %s, which can not be created before its contents are copied", value.getClass().getName());
+            return switch (value) {
+                case AtomicInteger atomic -> registered(atomic, new AtomicInteger(atomic.get()));
+                case AtomicLong atomic -> registered(atomic, new AtomicLong(atomic.get()));
+                case AtomicBoolean atomic -> registered(atomic, new AtomicBoolean(atomic.get()));
+                case AtomicReference<?> atomic -> copyAtomicReference(atomic);
+                case Date date -> registered(date, date.clone());
+                case Calendar calendar -> registered(calendar, calendar.clone());
+                case BitSet bits -> registered(bits, bits.clone());
+                case StringBuilder builder -> registered(builder, new StringBuilder(builder));
+                case Object array when array.getClass().isArray() -> copyArray(array);
+                case Object immutable when isImmutableCollection(immutable) -> copyImmutable(immutable);
+                case Optional<?> optional -> copyImmutable(optional);
+                case EnumSet<?> set -> registered(set, set.clone());
+                case EnumMap<?, ?> map -> copyEnumMap(map);
+                case Collection<?> collection -> copyCollection(collection);
+                case Map<?, ?> map -> copyMap(map);
+                case Object object when object.getClass().getName().startsWith("java.") ->
+                        throw new IllegalArgumentException("Can not deep copy " + object.getClass().getName()
+                                + ", it is not known to be immutable");
+                case Record record -> copyRecord(record, factoryOf(record));
+                default -> factoryOf(value).copy(value, this);
+            };
+        }
+
+        @Override
+        public void register(Object source, Object copy) {
+            copies.put(source, copy);
+        }
+
+        /**
+         * Registers copy of an object and returns it.
+         *
+         * @param source copied object
+         * @param copy copy of the object
+         * @return the copy
+         */
+        private Object registered(Object source, Object copy) {
+            register(source, copy);
+            return copy;
+        }
+
+        private Object copyArray(Object array) {
+            int length = Array.getLength(array);
+            Class<?> componentType = array.getClass().getComponentType();
+            Object copied = Array.newInstance(componentType, length);
+            register(array, copied);
+            if (componentType.isPrimitive()) {
+                System.arraycopy(array, 0, copied, 0, length);
+                return copied;
+            }
+            Object[] source = (Object[]) array, target = (Object[]) copied;
+            for (int i = 0; i < length; i++) target[i] = copy(source[i]);
+            return copied;
+        }
+
+        /**
+         * @param type type of a value
+         * @return whether values of the type are immutable and can be shared with the copy
+         */
+        private static boolean isImmutable(Class<?> type) {
+            return IMMUTABLE.contains(type) || type.getPackageName().startsWith("java.time");
+        }
+
+        private Object copyAtomicReference(AtomicReference<?> atomic) {
+            AtomicReference<Object> copied = new AtomicReference<>();
+            register(atomic, copied);
+            copied.set(copy(atomic.get()));
+            return copied;
+        }
+
+        /**
+         * @param value value
+         * @return whether the value is an immutable collection or map created by the JDK,
+         * e.g. by {@link List#of()} or {@link java.util.stream.Stream#toList()}
+         */
+        private static boolean isImmutableCollection(Object value) {
+            return value.getClass().getName().startsWith("java.util.ImmutableCollections$")
+                    && (value instanceof Collection<?> || value instanceof Map<?, ?>);
+        }
+
+        private Object copyImmutable(Object value) {
+            inProgress.add(value);
+            try {
+                Object copied = switch (value) {
+                    // stream lists are immutable and, unlike List.copyOf, accept null elements
+                    case List<?> list -> list.stream().map(this::copy).toList();
+                    case Set<?> set -> Set.copyOf(set.stream().map(this::copy).toList());
+                    case Map<?, ?> map -> {
+                        Map<Object, Object> entries = new LinkedHashMap<>();
+                        map.forEach((key, entry) -> entries.put(copy(key), copy(entry)));
+                        yield Map.copyOf(entries);
+                    }
+                    case Optional<?> optional -> optional.map(this::copy);
+                    default -> throw new IllegalStateException("Unexpected immutable collection " + value.getClass());
+                };
+                return registered(value, copied);
+            } finally {
+                inProgress.remove(value);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object copyEnumMap(EnumMap<?, ?> map) {
+            EnumMap<?, Object> copied = new EnumMap(map);
+            register(map, copied);
+            copied.replaceAll((_, entry) -> copy(entry));
+            return copied;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object copyCollection(Collection<?> collection) {
+            Collection<Object> copied = (Collection<Object>) newInstance(collection);
+            Preconditions.checkArgument(copied != null, "Can not deep copy collection %s",
+                    collection.getClass().getName());
+            register(collection, copied);
+            for (Object element : collection) copied.add(copy(element));
+            return copied;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object copyMap(Map<?, ?> map) {
+            Map<Object, Object> copied = (Map<Object, Object>) newInstance(map);
+            Preconditions.checkArgument(copied != null, "Can not deep copy map %s", map.getClass().getName());
+            register(map, copied);
+            map.forEach((key, entry) -> copied.put(copy(key), copy(entry)));
+            return copied;
+        }
+
+        /**
+         * Creates new empty instance of the class of given collection or map, with the same comparator
+         * if it is sorted.
+         *
+         * @param source collection or map
+         * @return new empty instance, or {@code null} if the class can not be instantiated
+         */
+        private static @Nullable Object newInstance(Object source) {
+            Constructor<?> constructor = CONSTRUCTORS.get(source.getClass()).orElse(null);
+            if (constructor == null) return null;
+            try {
+                if (constructor.getParameterCount() == 0) return constructor.newInstance();
+                Comparator<?> comparator = switch (source) {
+                    case SortedSet<?> set -> set.comparator();
+                    case SortedMap<?, ?> map -> map.comparator();
+                    case PriorityQueue<?> queue -> queue.comparator();
+                    default -> null;
+                };
+                return constructor.newInstance(comparator);
+            } catch (ReflectiveOperationException exception) {
+                throw new RuntimeException("Failed to create copy of " + source.getClass().getName(), exception);
+            }
+        }
+
+        @Override
+        public <T> T copyRoot(T instance, ObjectFactory<T> factory) {
+            return instance instanceof Record ? copyRecord(instance, factory) : factory.copy(instance, this);
+        }
+
+        private <T> T copyRecord(T record, ObjectFactory<T> factory) {
+            inProgress.add(record);
+            try {
+                return factory.copy(record, this);
+            } finally {
+                inProgress.remove(record);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static ObjectFactory<Object> factoryOf(Object value) {
+            return (ObjectFactory<Object>) ObjectFactory.create(value.getClass());
+        }
+
+    }
+
+}
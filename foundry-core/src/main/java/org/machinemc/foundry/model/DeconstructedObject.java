@@ -1,6 +1,8 @@
 package org.machinemc.foundry.model;
 
+import com.google.common.base.Preconditions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 import org.machinemc.foundry.Codec;
 import org.machinemc.foundry.DataHandler;
@@ -8,10 +10,19 @@ import org.machinemc.foundry.Pipeline;
 
 import java.lang.reflect.AnnotatedType;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents an object that has been deconstructed.
  * It effectively flattens an object into a sequence of {@link Field}s.
+ * <p>
+ * Deconstructed objects created by the {@link #createDeconstructor(Class) deconstructors} are views
+ * of the data extracted from the object. The fields are described by a schema shared by all objects
+ * of the same class model, and are created only once they are accessed.
+ * <p>
+ * Fields can be also accessed by their index or name, using the typed getters such as {@link #getInt(int)},
+ * which read primitive values without creating the {@link Field} records. Names are looked up
+ * in a hash table precomputed for the class model.
  */
 public final class DeconstructedObject implements Iterable<DeconstructedObject.Field> {
 
@@ -43,8 +54,8 @@ public final class DeconstructedObject implements Iterable<DeconstructedObject.F
     public static <T> Codec<T, DeconstructedObject> codec(Class<T> type, ClassModel<T> classModel) {
         ObjectFactory<T> objectFactory = ObjectFactory.create(type, classModel);
         return new Codec<>(
-                Pipeline.of(createDeconstructor(classModel, objectFactory)),
-                Pipeline.of(createConstructor(classModel, objectFactory))
+                Pipeline.of(createDeconstructor(type, classModel, objectFactory)),
+                Pipeline.of(createConstructor(type, classModel, objectFactory))
         );
     }
 
@@ -74,7 +85,7 @@ public final class DeconstructedObject implements Iterable<DeconstructedObject.F
      * @return a data handler that converts an instance of {@link T} into a deconstructed object
      */
     public static <T> DataHandler<T, DeconstructedObject> createDeconstructor(Class<T> type, ClassModel<T> classModel) {
-        return createDeconstructor(classModel, ObjectFactory.create(type, classModel));
+        return createDeconstructor(type, classModel, ObjectFactory.create(type, classModel));
     }
 
     /**
@@ -109,21 +120,52 @@ public final class DeconstructedObject implements Iterable<DeconstructedObject.F
      * @return a data handler that converts deconstructed object into an instance of {@link T}
      */
     public static <T> DataHandler<DeconstructedObject, T> createConstructor(Class<T> type, ClassModel<T> classModel) {
-        return createConstructor(classModel, ObjectFactory.create(type, classModel));
+        return createConstructor(type, classModel, ObjectFactory.create(type, classModel));
     }
 
-    private final @Unmodifiable List<Field> fields;
+    /**
+     * Schemas of deconstructed objects of a type, mapped by their class models.
+     */
+    private static final ClassValue<Map<ClassModel<?>, Schema>> SCHEMAS = new ClassValue<>() {
+        @Override
+        protected Map<ClassModel<?>, Schema> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final @Nullable Schema schema;
+    private final @Nullable ModelDataContainer container;
+    private @Nullable @Unmodifiable List<Field> fields;
+    private @Nullable NameTable names;
 
     DeconstructedObject(List<Field> fields) {
+        schema = null;
+        container = null;
         this.fields = Collections.unmodifiableList(fields);
     }
 
+    /**
+     * Creates deconstructed object reading its fields from the container.
+     *
+     * @param schema schema of the object
+     * @param container container with the data of the object, owned by the deconstructed object
+     */
+    private DeconstructedObject(Schema schema, ModelDataContainer container) {
+        this.schema = schema;
+        this.container = container;
+    }
+
     /**
      * Returns an unmodifiable list of the fields in this deconstructed object.
      *
      * @return list of fields
      */
     public @Unmodifiable List<Field> asList() {
+        List<Field> fields = this.fields;
+        if (fields == null) {
+            assert schema != null && container != null;
+            this.fields = fields = new FieldsView(schema, container);
+        }
         return fields;
     }
 
@@ -131,24 +173,434 @@ public final class DeconstructedObject implements Iterable<DeconstructedObject.F
      * @return number of fields in this object
      */
     public int size() {
-        return fields.size();
+        return schema != null ? schema.attributes().length : asList().size();
+    }
+
+    /**
+     * Returns index of the field with given name.
+     *
+     * @param name name of the field
+     * @return index of the field, or {@code -1} if there is no such field
+     */
+    public int indexOf(String name) {
+        Preconditions.checkNotNull(name, "Name can not be null");
+        NameTable names = this.names;
+        if (names == null) {
+            names = schema != null ? schema.names() : new NameTable(asList().stream().map(Field::name).toList());
+            this.names = names;
+        }
+        return names.indexOf(name);
+    }
+
+    /**
+     * Returns the field at given index.
+     *
+     * @param index index of the field
+     * @return field
+     */
+    public Field get(int index) {
+        return asList().get(index);
+    }
+
+    /**
+     * Returns the field with given name.
+     *
+     * @param name name of the field
+     * @return field
+     * @throws IllegalArgumentException if there is no such field
+     */
+    public Field get(String name) {
+        return get(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the boolean field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a boolean field
+     */
+    public boolean getBool(int index) {
+        if (container != null) return container.getBool(slot(index, ContainerTypeMapping.BOOLEAN));
+        return field(index, BoolField.class).value();
+    }
+
+    /**
+     * Returns value of the char field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a char field
+     */
+    public char getChar(int index) {
+        if (container != null) return container.getChar(slot(index, ContainerTypeMapping.CHAR));
+        return field(index, CharField.class).value();
+    }
+
+    /**
+     * Returns value of the byte field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a byte field
+     */
+    public byte getByte(int index) {
+        if (container != null) return container.getByte(slot(index, ContainerTypeMapping.BYTE));
+        return field(index, ByteField.class).value();
+    }
+
+    /**
+     * Returns value of the short field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a short field
+     */
+    public short getShort(int index) {
+        if (container != null) return container.getShort(slot(index, ContainerTypeMapping.SHORT));
+        return field(index, ShortField.class).value();
+    }
+
+    /**
+     * Returns value of the int field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a int field
+     */
+    public int getInt(int index) {
+        if (container != null) return container.getInt(slot(index, ContainerTypeMapping.INT));
+        return field(index, IntField.class).value();
+    }
+
+    /**
+     * Returns value of the long field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a long field
+     */
+    public long getLong(int index) {
+        if (container != null) return container.getLong(slot(index, ContainerTypeMapping.LONG));
+        return field(index, LongField.class).value();
+    }
+
+    /**
+     * Returns value of the float field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a float field
+     */
+    public float getFloat(int index) {
+        if (container != null) return container.getFloat(slot(index, ContainerTypeMapping.FLOAT));
+        return field(index, FloatField.class).value();
+    }
+
+    /**
+     * Returns value of the double field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a double field
+     */
+    public double getDouble(int index) {
+        if (container != null) return container.getDouble(slot(index, ContainerTypeMapping.DOUBLE));
+        return field(index, DoubleField.class).value();
+    }
+
+    /**
+     * Returns value of the object field at given index.
+     *
+     * @param index index of the field
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the field is not a object field
+     */
+    public @Nullable Object getObject(int index) {
+        if (container != null) return container.getObject(slot(index, ContainerTypeMapping.OBJECT));
+        return field(index, ObjectField.class).value();
+    }
+
+    /**
+     * Returns value of the boolean field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a boolean field
+     */
+    public boolean getBool(String name) {
+        return getBool(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the char field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a char field
+     */
+    public char getChar(String name) {
+        return getChar(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the byte field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a byte field
+     */
+    public byte getByte(String name) {
+        return getByte(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the short field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a short field
+     */
+    public short getShort(String name) {
+        return getShort(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the int field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a int field
+     */
+    public int getInt(String name) {
+        return getInt(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the long field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a long field
+     */
+    public long getLong(String name) {
+        return getLong(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the float field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a float field
+     */
+    public float getFloat(String name) {
+        return getFloat(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the double field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a double field
+     */
+    public double getDouble(String name) {
+        return getDouble(requireIndex(name));
+    }
+
+    /**
+     * Returns value of the object field with given name.
+     *
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if there is no such field or it is not a object field
+     */
+    public @Nullable Object getObject(String name) {
+        return getObject(requireIndex(name));
+    }
+
+    /**
+     * Returns index of the field with given name, failing if there is no such field.
+     *
+     * @param name name of the field
+     * @return index of the field
+     */
+    private int requireIndex(String name) {
+        int index = indexOf(name);
+        Preconditions.checkArgument(index != -1, "There is no field named '%s'", name);
+        return index;
+    }
+
+    /**
+     * Returns slot of a field in the container after checking its type.
+     *
+     * @param index index of the field
+     * @param type expected type of the field
+     * @return slot of the field
+     */
+    private int slot(int index, ContainerTypeMapping type) {
+        assert schema != null;
+        Preconditions.checkElementIndex(index, schema.types().length, "Field");
+        Preconditions.checkArgument(schema.types()[index] == type, "Field '%s' is of type %s, not %s",
+                schema.attributes()[index].name(), schema.types()[index], type);
+        return schema.containers().slotOf(index);
+    }
+
+    /**
+     * Returns field after checking its type.
+     *
+     * @param index index of the field
+     * @param type expected type of the field
+     * @return field
+     */
+    private <F extends Field> F field(int index, Class<F> type) {
+        Field field = asList().get(index);
+        Preconditions.checkArgument(type.isInstance(field), "Field '%s' is %s, not %s",
+                field.name(), field.getClass().getSimpleName(), type.getSimpleName());
+        return type.cast(field);
     }
 
     @Override
     public @NotNull ListIterator<Field> iterator() {
-        return fields.listIterator();
+        return asList().listIterator();
     }
 
     @Override
     public boolean equals(Object object) {
         if (!(object instanceof DeconstructedObject other))
             return false;
-        return fields.equals(other.fields);
+        return asList().equals(other.asList());
     }
 
     @Override
     public int hashCode() {
-        return fields.hashCode();
+        return asList().hashCode();
+    }
+
+    /**
+     * Schema of deconstructed objects created for a class model, shared by all of them.
+     *
+     * @param attributes attributes of the class model, describing the fields
+     * @param types container types of the attributes
+     * @param names table of the attribute names
+     * @param containers factory of the containers the fields are read from
+     * @param extractor reader of the fields
+     * @param injector writer of the fields
+     */
+    private record Schema(ModelAttribute[] attributes, ContainerTypeMapping[] types, NameTable names,
+                          ModelDataContainer.Factory containers, FieldsExtractor extractor,
+                          FieldsInjector injector) {
+
+        /**
+         * Creates schema for given class model.
+         *
+         * @param model class model
+         * @param containers factory of the containers for the class model
+         * @return schema
+         */
+        static Schema of(ClassModel<?> model, ModelDataContainer.Factory containers) {
+            ModelAttribute[] attributes = model.getAttributes();
+            ContainerTypeMapping[] types = new ContainerTypeMapping[attributes.length];
+            for (int i = 0; i < attributes.length; i++) types[i] = ContainerTypeMapping.of(attributes[i].type());
+            NameTable names = new NameTable(Arrays.stream(attributes).map(ModelAttribute::name).toList());
+            return new Schema(attributes, types, names, containers, FieldsExtractor.of(model),
+                    FieldsInjector.of(model));
+        }
+
+        /**
+         * @param containers container factory
+         * @return whether containers of this schema have the layout of containers of given factory
+         */
+        boolean accepts(ModelDataContainer.Factory containers) {
+            return this.containers == containers || Arrays.equals(attributes, containers.attributes());
+        }
+
+    }
+
+    /**
+     * Open addressing hash table mapping field names to their indices.
+     * <p>
+     * If multiple fields have the same name, the first one is found.
+     */
+    private static final class NameTable {
+
+        private final String[] names;
+        private final int[] indices;
+        private final int mask;
+
+        /**
+         * @param names names of the fields, in their order
+         */
+        NameTable(List<String> names) {
+            // at most half full, so the probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(2, names.size() * 2) - 1) << 1;
+            this.names = new String[capacity];
+            indices = new int[capacity];
+            mask = capacity - 1;
+            insert:
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                int slot = hash(name) & mask;
+                for (; this.names[slot] != null; slot = (slot + 1) & mask) {
+                    if (this.names[slot].equals(name)) continue insert;
+                }
+                this.names[slot] = name;
+                indices[slot] = i;
+            }
+        }
+
+        /**
+         * @param name name of the field
+         * @return index of the field, or {@code -1} if there is no such field
+         */
+        int indexOf(String name) {
+            for (int slot = hash(name) & mask; names[slot] != null; slot = (slot + 1) & mask) {
+                if (names[slot].equals(name)) return indices[slot];
+            }
+            return -1;
+        }
+
+        private static int hash(String name) {
+            int hash = name.hashCode();
+            return hash ^ (hash >>> 16);
+        }
+
+    }
+
+    /**
+     * Unmodifiable list of fields created from the container on access.
+     */
+    private static final class FieldsView extends AbstractList<Field> implements RandomAccess {
+
+        private final Schema schema;
+        private final ModelDataContainer container;
+
+        private FieldsView(Schema schema, ModelDataContainer container) {
+            this.schema = schema;
+            this.container = container;
+        }
+
+        @Override
+        public Field get(int index) {
+            Preconditions.checkElementIndex(index, schema.attributes().length);
+            return schema.extractor().read(index, container);
+        }
+
+        @Override
+        public int size() {
+            return schema.attributes().length;
+        }
+
     }
 
     /**
@@ -266,23 +718,37 @@ public final class DeconstructedObject implements Iterable<DeconstructedObject.F
     public record ObjectField(String name, Class<?> type, AnnotatedType annotatedType, Object value) implements Field {
     }
 
-    private static <T> DataHandler<T, DeconstructedObject> createDeconstructor(ClassModel<T> classModel,
+    private static <T> DataHandler<T, DeconstructedObject> createDeconstructor(Class<T> type,
+                                                                               ClassModel<T> classModel,
                                                                                ObjectFactory<T> objectFactory) {
-        FieldsExtractor fieldsExtractor = FieldsExtractor.of(classModel);
+        ModelDataContainer.Factory containers = objectFactory.containerFactory();
+        Schema schema = SCHEMAS.get(type).computeIfAbsent(classModel, model -> Schema.of(model, containers));
         return obj -> {
-            ModelDataContainer container = objectFactory.write(obj);
-            var fields = fieldsExtractor.read(container);
-            return new DeconstructedObject(fields);
+            // the container is not pooled, it is owned by the deconstructed object
+            ModelDataContainer container = containers.get();
+            objectFactory.write(obj, container);
+            return new DeconstructedObject(schema, container);
         };
     }
 
-    private static <T> DataHandler<DeconstructedObject, T> createConstructor(ClassModel<T> classModel,
+    private static <T> DataHandler<DeconstructedObject, T> createConstructor(Class<T> type,
+                                                                             ClassModel<T> classModel,
                                                                              ObjectFactory<T> objectFactory) {
-        FieldsInjector fieldsInjector = FieldsInjector.of(classModel);
+        ModelDataContainer.Factory containers = objectFactory.containerFactory();
+        FieldsInjector fieldsInjector = SCHEMAS.get(type).computeIfAbsent(classModel,
+                model -> Schema.of(model, containers)).injector();
         return deconstructed -> {
-            ModelDataContainer container = objectFactory.newContainer();
-            fieldsInjector.write(deconstructed.asList(), container);
-            return objectFactory.read(container);
+            // views of the same class model are read directly from their containers
+            if (deconstructed.schema != null && deconstructed.container != null
+                    && deconstructed.schema.accepts(containers))
+                return objectFactory.read(deconstructed.container);
+            ModelDataContainer container = containers.acquire();
+            try {
+                fieldsInjector.write(deconstructed.asList(), container);
+                return objectFactory.read(container);
+            } finally {
+                containers.release(container);
+            }
         };
     }
 
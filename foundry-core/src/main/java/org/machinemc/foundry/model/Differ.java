@@ -0,0 +1,134 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Detects changes between two states of an object and creates deltas containing only
+ * the changed attributes.
+ * <p>
+ * The objects are compared attribute by attribute by their generated {@link ObjectFactory},
+ * primitive attributes without boxing, so no intermediate representation of the objects is created.
+ * Changes are reported as a bitmask where bit {@code i} stands for the attribute at index
+ * {@code i} of the {@link ClassModel}.
+ * <p>
+ * Differs are thread-safe.
+ *
+ * @param <T> type of the compared objects
+ */
+public final class Differ<T> {
+
+    /**
+     * Creates differ for given type using its default class model.
+     *
+     * @param type type of the compared objects
+     * @return differ
+     * @param <T> type of the compared objects
+     */
+    public static <T> Differ<T> of(Class<T> type) {
+        return new Differ<>(ObjectFactory.create(type));
+    }
+
+    /**
+     * Creates differ for given type using given class model.
+     *
+     * @param type type of the compared objects
+     * @param classModel class model of the type
+     * @return differ
+     * @param <T> type of the compared objects
+     */
+    public static <T> Differ<T> of(Class<T> type, ClassModel<T> classModel) {
+        return new Differ<>(ObjectFactory.create(type, classModel));
+    }
+
+    private final ObjectFactory<T> objectFactory;
+    private final ModelDataContainer.Factory containerFactory;
+    private final int maskLength;
+
+    private Differ(ObjectFactory<T> objectFactory) {
+        this.objectFactory = objectFactory;
+        containerFactory = objectFactory.containerFactory();
+        maskLength = ModelDataDelta.maskLength(containerFactory.attributes().length);
+    }
+
+    /**
+     * Compares two states of an object.
+     *
+     * @param previous previous state of the object
+     * @param current current state of the object
+     * @return bitmask of the changed attributes
+     */
+    public long[] diff(T previous, T current) {
+        Preconditions.checkNotNull(previous, "Previous state can not be null");
+        Preconditions.checkNotNull(current, "Current state can not be null");
+        long[] changed = new long[maskLength];
+        objectFactory.diff(previous, current, changed);
+        return changed;
+    }
+
+    /**
+     * Checks whether any attribute differs between two states of an object.
+     *
+     * @param previous previous state of the object
+     * @param current current state of the object
+     * @return whether any attribute changed
+     */
+    public boolean changed(T previous, T current) {
+        for (long word : diff(previous, current)) {
+            if (word != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates delta of the attributes changed between two states of an object.
+     *
+     * @param previous previous state of the object
+     * @param current current state of the object
+     * @return delta with the new values of changed attributes
+     */
+    public ModelDataDelta delta(T previous, T current) {
+        Preconditions.checkNotNull(previous, "Previous state can not be null");
+        Preconditions.checkNotNull(current, "Current state can not be null");
+        long[] changed = new long[maskLength];
+        // only the changed attributes are written to the container, while they are compared
+        ModelDataContainer values = containerFactory.get();
+        objectFactory.diff(previous, current, changed, values);
+        return new ModelDataDelta(containerFactory, changed, values);
+    }
+
+    /**
+     * Reads delta written by {@link ModelDataDelta#write(ByteBuffer)}, starting at the position of the buffer.
+     *
+     * @param buffer buffer to read from
+     * @return read delta
+     * @throws java.nio.BufferUnderflowException if the buffer does not contain the whole delta
+     */
+    public ModelDataDelta read(ByteBuffer buffer) {
+        Preconditions.checkNotNull(buffer, "Buffer can not be null");
+        return ModelDataDelta.read(containerFactory, buffer);
+    }
+
+    /**
+     * Creates new object from its previous state with the changes of given delta applied.
+     *
+     * @param previous previous state of the object
+     * @param delta delta created for the class model of this differ
+     * @return new object in the current state
+     */
+    public T apply(T previous, ModelDataDelta delta) {
+        Preconditions.checkNotNull(previous, "Previous state can not be null");
+        Preconditions.checkArgument(delta.accepts(containerFactory),
+                "Delta was not created for the class model of this differ");
+        ModelDataContainer container = containerFactory.acquire();
+        try {
+            objectFactory.write(previous, container);
+            delta.applyTo(container);
+            return objectFactory.read(container);
+        } finally {
+            containerFactory.release(container);
+        }
+    }
+
+}
@@ -1,18 +1,20 @@
 package org.machinemc.foundry.model;
 
+import com.google.common.base.Preconditions;
+
 import java.lang.reflect.AnnotatedType;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Function;
+import java.util.Arrays;
 
 /**
  * Optimized reader of {@link ModelDataContainer} to map them to deconstructed objects.
  * <p>
+ * Implementations are generated for each class model by {@link FieldsGenerator}, reading
+ * each field directly from the slot of its attribute, so fields can be read in any order
+ * and the reader indices of the container are not used.
+ * <p>
  * This class is for internal use only.
- *
- * @param fieldReaders field readers
  */
-record FieldsExtractor(Function<ModelDataContainer, DeconstructedObject.Field>[] fieldReaders) {
+abstract class FieldsExtractor {
 
     /**
      * Creates new fields extractor instance for given class model.
@@ -21,59 +23,46 @@ record FieldsExtractor(Function<ModelDataContainer, DeconstructedObject.Field>[]
      * @return fields extractor for given model
      */
     static FieldsExtractor of(ClassModel<?> model) {
-        ModelAttribute[] attributes = model.getAttributes();
-        //noinspection unchecked
-        Function<ModelDataContainer, DeconstructedObject.Field>[] fieldReaders = new Function[attributes.length];
-        for (int i = 0; i < attributes.length; i++) {
-            ModelAttribute attribute = attributes[i];
-            String name = attribute.name();
-            AnnotatedType annotatedType = attribute.annotatedType();
-            Function<ModelDataContainer, DeconstructedObject.Field> reader;
-            if (attribute.type() == boolean.class) {
-                reader = dataContainer ->
-                        new DeconstructedObject.BoolField(name, annotatedType, dataContainer.readBool());
-            } else if (attribute.type() == char.class) {
-                reader = dataContainer ->
-                        new DeconstructedObject.CharField(name, annotatedType, dataContainer.readChar());
-            } else if (attribute.type() == byte.class) {
-                reader = dataContainer ->
-                        new DeconstructedObject.ByteField(name, annotatedType, dataContainer.readByte());
-            } else if (attribute.type() == short.class) {
-                reader = dataContainer ->
-                        new DeconstructedObject.ShortField(name, annotatedType, dataContainer.readShort());
-            } else if (attribute.type() == int.class) {
-                reader = dataContainer ->
-                        new DeconstructedObject.IntField(name, annotatedType, dataContainer.readInt());
-            } else if (attribute.type() == long.class) {
-                reader = dataContainer ->
-                        new DeconstructedObject.LongField(name, annotatedType, dataContainer.readLong());
-            } else if (attribute.type() == float.class) {
-                reader = dataContainer ->
-                        new DeconstructedObject.FloatField(name, annotatedType, dataContainer.readFloat());
-            } else if (attribute.type() == double.class) {
-                reader = dataContainer ->
-                        new DeconstructedObject.DoubleField(name, annotatedType, dataContainer.readDouble());
-            } else {
-                reader = dataContainer ->
-                        new DeconstructedObject.ObjectField(name, attribute.type(), annotatedType, dataContainer.readObject());
-            }
-            fieldReaders[i] = reader;
-        }
-        return new FieldsExtractor(fieldReaders);
+        return FieldsGenerator.generateExtractor(model);
     }
 
     /**
-     * Reads fields from a container.
+     * Annotated types of the attributes, used by the generated implementation.
+     */
+    protected final AnnotatedType[] annotatedTypes;
+
+    /**
+     * Types of the attributes, used by the generated implementation.
+     */
+    protected final Class<?>[] types;
+
+    /**
+     * @param attributes attributes of the class model
+     */
+    protected FieldsExtractor(ModelAttribute[] attributes) {
+        annotatedTypes = Arrays.stream(attributes).map(ModelAttribute::annotatedType).toArray(AnnotatedType[]::new);
+        types = Arrays.stream(attributes).map(ModelAttribute::type).toArray(Class<?>[]::new);
+    }
+
+    /**
+     * Reads a single field from a container.
      *
+     * @param index index of the attribute in the class model
      * @param dataContainer container to read
-     * @return list of fields
+     * @return field
      */
-    List<DeconstructedObject.Field> read(ModelDataContainer dataContainer) {
-        List<DeconstructedObject.Field> fields = new ArrayList<>(fieldReaders.length);
-        for (var reader : fieldReaders) {
-            fields.add(reader.apply(dataContainer));
-        }
-        return fields;
+    DeconstructedObject.Field read(int index, ModelDataContainer dataContainer) {
+        Preconditions.checkElementIndex(index, types.length);
+        return readField(index, dataContainer);
     }
 
+    /**
+     * Reads a single field from a container.
+     *
+     * @param index valid index of the attribute in the class model
+     * @param dataContainer container to read
+     * @return field
+     */
+    protected abstract DeconstructedObject.Field readField(int index, ModelDataContainer dataContainer);
+
 }
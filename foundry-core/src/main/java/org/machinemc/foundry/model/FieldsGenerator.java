@@ -0,0 +1,213 @@
+package org.machinemc.foundry.model;
+
+import org.machinemc.foundry.util.ASMUtil;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+import org.objectweb.asm.commons.TableSwitchGenerator;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.reflect.AnnotatedType;
+import java.util.List;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Class responsible for generating {@link FieldsExtractor} and {@link FieldsInjector}
+ * implementations based on a provided {@link ClassModel}.
+ * <p>
+ * The generated implementations access each attribute with straight-line code,
+ * without any dispatch on the attribute types.
+ */
+final class FieldsGenerator {
+
+    private FieldsGenerator() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Generates fields extractor for given class model.
+     *
+     * @param classModel class model
+     * @return fields extractor
+     */
+    static FieldsExtractor generateExtractor(ClassModel<?> classModel) {
+        ModelAttribute[] attributes = classModel.getAttributes();
+        ModelDataContainer.Factory containerLayout = ModelDataContainer.Factory.of(classModel);
+
+        Type superT = Type.getType(FieldsExtractor.class);
+        Type thisT = Type.getObjectType(superT.getInternalName() + "$Generated");
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V21, ACC_PUBLIC | ACC_FINAL, thisT.getInternalName(), null, superT.getInternalName(), new String[0]);
+
+        visitConstructor(cw, superT, Type.getType(ModelAttribute[].class));
+
+        visitReadFieldMethod(cw, superT, attributes, containerLayout);
+
+        cw.visitEnd();
+
+        return ObjectFactoryGenerator.defineAndInstantiate(FieldsExtractor.class, cw.toByteArray(),
+                ClassData.builder().build(), ModelAttribute[].class, attributes);
+    }
+
+    /**
+     * Generates fields injector for given class model.
+     *
+     * @param classModel class model
+     * @return fields injector
+     */
+    static FieldsInjector generateInjector(ClassModel<?> classModel) {
+        ModelAttribute[] attributes = classModel.getAttributes();
+        ModelDataContainer.Factory containerLayout = ModelDataContainer.Factory.of(classModel);
+
+        Type superT = Type.getType(FieldsInjector.class);
+        Type thisT = Type.getObjectType(superT.getInternalName() + "$Generated");
+        Type containerT = Type.getType(ModelDataContainer.class);
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V21, ACC_PUBLIC | ACC_FINAL, thisT.getInternalName(), null, superT.getInternalName(), new String[0]);
+
+        visitConstructor(cw, superT);
+
+        Method write = new Method("write", Type.VOID_TYPE, new Type[]{Type.getType(List.class), containerT});
+        GeneratorAdapter ga = new GeneratorAdapter(0, write, null, null, cw);
+        ga.visitCode();
+        for (int i = 0; i < attributes.length; i++) {
+            ContainerTypeMapping mapping = ContainerTypeMapping.of(attributes[i].type());
+            Type fieldT = fieldType(mapping);
+            ga.loadArg(1);
+            ASMUtil.push(ga, containerLayout.slotOf(i));
+            ga.loadArg(0);
+            ASMUtil.push(ga, i);
+            ga.invokeInterface(Type.getType(List.class), new Method("get", Type.getType(Object.class),
+                    new Type[]{Type.INT_TYPE}));
+            ga.checkCast(fieldT);
+            ga.invokeVirtual(fieldT, new Method("value", mapping.asmType, new Type[0]));
+            ga.invokeVirtual(containerT, new Method(mapping.setMethod, Type.VOID_TYPE,
+                    new Type[]{Type.INT_TYPE, mapping.asmType}));
+        }
+        ga.returnValue();
+        ga.endMethod();
+
+        cw.visitEnd();
+
+        return ObjectFactoryGenerator.defineAndInstantiate(FieldsInjector.class, cw.toByteArray(),
+                ClassData.builder().build());
+    }
+
+    /**
+     * Visits the {@link FieldsExtractor#readField(int, ModelDataContainer)} method.
+     *
+     * @param cv class visitor
+     * @param superT type of the fields extractor
+     * @param attributes attributes of the class model
+     * @param containerLayout container factory of the class model
+     */
+    private static void visitReadFieldMethod(ClassVisitor cv, Type superT, ModelAttribute[] attributes,
+                                             ModelDataContainer.Factory containerLayout) {
+        Method readField = new Method("readField", Type.getType(DeconstructedObject.Field.class),
+                new Type[]{Type.INT_TYPE, Type.getType(ModelDataContainer.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PROTECTED, readField, null, null, cv);
+        ga.visitCode();
+        int[] keys = new int[attributes.length];
+        for (int i = 0; i < keys.length; i++) keys[i] = i;
+        ga.loadArg(0);
+        ga.tableSwitch(keys, new TableSwitchGenerator() {
+            @Override
+            public void generateCase(int key, Label end) {
+                visitNewField(ga, superT, attributes[key], key, containerLayout.slotOf(key));
+                ga.returnValue();
+            }
+
+            @Override
+            public void generateDefault() {
+                // the index is checked by the fields extractor
+                ga.throwException(Type.getType(IndexOutOfBoundsException.class), "Invalid field index");
+            }
+        });
+        ga.endMethod();
+    }
+
+    /**
+     * Visits the constructor passing all its arguments to the parent constructor.
+     *
+     * @param cv class visitor
+     * @param superT type of the parent class
+     * @param params parameters of the constructor
+     */
+    private static void visitConstructor(ClassVisitor cv, Type superT, Type... params) {
+        Method init = new Method(ConstantDescs.INIT_NAME, Type.VOID_TYPE, params);
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, init, null, null, cv);
+        ga.visitCode();
+        ga.loadThis();
+        ga.loadArgs();
+        ga.invokeConstructor(superT, init);
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Creates new field of a deconstructed object with value read from the container.
+     * <p>
+     * Expects the container as the second argument of the method and leaves the field on the stack.
+     *
+     * @param ga generator adapter
+     * @param superT type of the fields extractor
+     * @param attribute attribute of the field
+     * @param index index of the attribute in the class model
+     * @param slot slot of the attribute in the container
+     */
+    private static void visitNewField(GeneratorAdapter ga, Type superT, ModelAttribute attribute,
+                                      int index, int slot) {
+        ContainerTypeMapping mapping = ContainerTypeMapping.of(attribute.type());
+        Type fieldT = fieldType(mapping);
+        Type annotatedTypeT = Type.getType(AnnotatedType.class);
+        Type classT = Type.getType(Class.class);
+
+        ga.newInstance(fieldT);
+        ga.dup();
+        ga.push(attribute.name());
+        if (mapping == ContainerTypeMapping.OBJECT) {
+            ga.loadThis();
+            ga.getField(superT, "types", Type.getType(Class[].class));
+            ASMUtil.push(ga, index);
+            ga.arrayLoad(classT);
+        }
+        ga.loadThis();
+        ga.getField(superT, "annotatedTypes", Type.getType(AnnotatedType[].class));
+        ASMUtil.push(ga, index);
+        ga.arrayLoad(annotatedTypeT);
+        ga.loadArg(1);
+        ASMUtil.push(ga, slot);
+        ga.invokeVirtual(Type.getType(ModelDataContainer.class), new Method(mapping.getMethod, mapping.asmType,
+                new Type[]{Type.INT_TYPE}));
+
+        Type[] params = mapping == ContainerTypeMapping.OBJECT
+                ? new Type[]{Type.getType(String.class), classT, annotatedTypeT, mapping.asmType}
+                : new Type[]{Type.getType(String.class), annotatedTypeT, mapping.asmType};
+        ga.invokeConstructor(fieldT, new Method(ConstantDescs.INIT_NAME, Type.VOID_TYPE, params));
+    }
+
+    /**
+     * @param mapping container type of an attribute
+     * @return type of the deconstructed object field for the attribute
+     */
+    private static Type fieldType(ContainerTypeMapping mapping) {
+        return Type.getType(switch (mapping) {
+            case BOOLEAN -> DeconstructedObject.BoolField.class;
+            case CHAR -> DeconstructedObject.CharField.class;
+            case BYTE -> DeconstructedObject.ByteField.class;
+            case SHORT -> DeconstructedObject.ShortField.class;
+            case INT -> DeconstructedObject.IntField.class;
+            case LONG -> DeconstructedObject.LongField.class;
+            case FLOAT -> DeconstructedObject.FloatField.class;
+            case DOUBLE -> DeconstructedObject.DoubleField.class;
+            case OBJECT -> DeconstructedObject.ObjectField.class;
+        });
+    }
+
+}
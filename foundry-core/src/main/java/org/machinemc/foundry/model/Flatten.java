@@ -0,0 +1,38 @@
+package org.machinemc.foundry.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a record attribute to be flattened into the attributes of its declaring class by {@link ClassModel}.
+ * <p>
+ * Instead of a single object attribute holding the record, the class model contains an attribute for
+ * each component of the record, named {@code attribute.component}. Primitive components then occupy
+ * primitive slots of the parent's {@link ModelDataContainer}, and the generated object factory accesses
+ * them directly, without a separate pass over the record. The record is created again, using its canonical
+ * constructor, only when the parent is read.
+ * <p>
+ * The annotated attribute must be a record type accessible from its declaring class, and its value can
+ * not be {@code null}. Only the direct components of the record are flattened.
+ * Flattening is supported for fields of standard classes modelled by
+ * {@link ClassModel.ModellingStrategy#STRUCTURE} and for record components.
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * public record Vec3(double x, double y, double z) {
+ * }
+ *
+ * public record Entity(int id, @Flatten Vec3 position) {
+ * }}</pre>
+ *
+ * In this example, the class model of {@code Entity} has the attributes {@code id},
+ * {@code position.x}, {@code position.y} and {@code position.z}.
+ *
+ * @see ClassModel
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface Flatten {
+}
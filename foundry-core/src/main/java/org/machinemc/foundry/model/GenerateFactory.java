@@ -0,0 +1,31 @@
+package org.machinemc.foundry.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a record to have its {@link ObjectFactory} generated at compile time.
+ * <p>
+ * With the {@code foundry-processor} annotation processor on the annotation processor path,
+ * the factory for the default class model of the record is generated as a source file.
+ * {@link ObjectFactory#create(Class)} then uses the generated factory instead of creating
+ * the class model and generating the factory at runtime, which avoids both the reflection
+ * and the bytecode generation on first use.
+ * <p>
+ * The record can not be private, the generated factory is placed in the same package.
+ * If the processor did not run, the factory is generated at runtime as usual.
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * @GenerateFactory
+ * public record Position(double x, double y, double z) {
+ * }}</pre>
+ *
+ * @see ObjectFactory#create(Class)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateFactory {
+}
@@ -0,0 +1,270 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Container of extracted data from many objects of a single {@link ClassModel}, stored
+ * column-wise.
+ * <p>
+ * Each attribute of the class model has its own column, an array holding the values
+ * of the attribute for all objects of the batch. Primitive attributes are stored in
+ * primitive arrays, so a single attribute can be scanned across the whole batch
+ * in a tight loop, without accessing the objects or their containers.
+ * <p>
+ * The column arrays are returned without copying, the batch can be modified through them.
+ *
+ * @see ObjectFactory#writeAll(Object[])
+ * @see ObjectFactory#readAll(ModelDataBatch)
+ */
+public final class ModelDataBatch {
+
+    private final ModelDataContainer.Factory factory;
+    private final ModelAttribute[] attributes;
+    private final ContainerTypeMapping[] types;
+    private final Object[] columns;
+    private final int size;
+
+    /**
+     * @param factory container factory of the class model
+     * @param size number of objects in the batch
+     */
+    ModelDataBatch(ModelDataContainer.Factory factory, int size) {
+        Preconditions.checkArgument(size >= 0, "Batch size can not be negative");
+        this.factory = factory;
+        this.size = size;
+        attributes = factory.attributes();
+        types = new ContainerTypeMapping[attributes.length];
+        columns = new Object[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            types[i] = ContainerTypeMapping.of(attributes[i].type());
+            columns[i] = switch (types[i]) {
+                case BOOLEAN -> new boolean[size];
+                case CHAR -> new char[size];
+                case BYTE -> new byte[size];
+                case SHORT -> new short[size];
+                case INT -> new int[size];
+                case LONG -> new long[size];
+                case FLOAT -> new float[size];
+                case DOUBLE -> new double[size];
+                case OBJECT -> new Object[size];
+            };
+        }
+    }
+
+    /**
+     * @return number of objects in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of columns (attributes of the class model)
+     */
+    public int columns() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the attribute stored in given column.
+     *
+     * @param column column index
+     * @return attribute of the column
+     */
+    public ModelAttribute attribute(int column) {
+        Preconditions.checkElementIndex(column, columns.length, "Column");
+        return attributes[column];
+    }
+
+    /**
+     * Returns index of the column of attribute with given name.
+     *
+     * @param name name of the attribute
+     * @return column index, or {@code -1} if there is no such attribute
+     */
+    public int columnOf(String name) {
+        for (int i = 0; i < attributes.length; i++) {
+            if (attributes[i].name().equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns values of the boolean attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of boolean type
+     */
+    public boolean[] boolColumn(int column) {
+        return (boolean[]) column(column, ContainerTypeMapping.BOOLEAN);
+    }
+
+    /**
+     * Returns values of the char attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of char type
+     */
+    public char[] charColumn(int column) {
+        return (char[]) column(column, ContainerTypeMapping.CHAR);
+    }
+
+    /**
+     * Returns values of the byte attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of byte type
+     */
+    public byte[] byteColumn(int column) {
+        return (byte[]) column(column, ContainerTypeMapping.BYTE);
+    }
+
+    /**
+     * Returns values of the short attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of short type
+     */
+    public short[] shortColumn(int column) {
+        return (short[]) column(column, ContainerTypeMapping.SHORT);
+    }
+
+    /**
+     * Returns values of the int attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of int type
+     */
+    public int[] intColumn(int column) {
+        return (int[]) column(column, ContainerTypeMapping.INT);
+    }
+
+    /**
+     * Returns values of the long attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of long type
+     */
+    public long[] longColumn(int column) {
+        return (long[]) column(column, ContainerTypeMapping.LONG);
+    }
+
+    /**
+     * Returns values of the float attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of float type
+     */
+    public float[] floatColumn(int column) {
+        return (float[]) column(column, ContainerTypeMapping.FLOAT);
+    }
+
+    /**
+     * Returns values of the double attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of double type
+     */
+    public double[] doubleColumn(int column) {
+        return (double[]) column(column, ContainerTypeMapping.DOUBLE);
+    }
+
+    /**
+     * Returns values of the object attribute stored in given column.
+     *
+     * @param column column index
+     * @return column array, backed by this batch
+     * @throws IndexOutOfBoundsException if the column index is out of range
+     * @throws IllegalArgumentException if the attribute of the column is not of object type
+     */
+    public Object[] objectColumn(int column) {
+        return (Object[]) column(column, ContainerTypeMapping.OBJECT);
+    }
+
+    /**
+     * Returns column array after checking its type.
+     *
+     * @param column column index
+     * @param type expected type of the column
+     * @return column array
+     */
+    private Object column(int column, ContainerTypeMapping type) {
+        Preconditions.checkElementIndex(column, columns.length, "Column");
+        Preconditions.checkArgument(types[column] == type, "Column %s is of type %s, not %s",
+                column, types[column], type);
+        return columns[column];
+    }
+
+    /**
+     * @param factory container factory
+     * @return whether rows of this batch can be copied to and from containers of given factory
+     */
+    boolean accepts(ModelDataContainer.Factory factory) {
+        return Arrays.equals(attributes, factory.attributes());
+    }
+
+    /**
+     * Copies the attributes from the container to a row of this batch.
+     *
+     * @param row row index
+     * @param container container to copy from
+     */
+    void writeRow(int row, ModelDataContainer container) {
+        for (int i = 0; i < columns.length; i++) {
+            int slot = factory.slotOf(i);
+            switch (types[i]) {
+                case BOOLEAN -> ((boolean[]) columns[i])[row] = container.getBool(slot);
+                case CHAR -> ((char[]) columns[i])[row] = container.getChar(slot);
+                case BYTE -> ((byte[]) columns[i])[row] = container.getByte(slot);
+                case SHORT -> ((short[]) columns[i])[row] = container.getShort(slot);
+                case INT -> ((int[]) columns[i])[row] = container.getInt(slot);
+                case LONG -> ((long[]) columns[i])[row] = container.getLong(slot);
+                case FLOAT -> ((float[]) columns[i])[row] = container.getFloat(slot);
+                case DOUBLE -> ((double[]) columns[i])[row] = container.getDouble(slot);
+                case OBJECT -> ((Object[]) columns[i])[row] = container.getObject(slot);
+            }
+        }
+    }
+
+    /**
+     * Copies the attributes of a row of this batch to the container.
+     *
+     * @param row row index
+     * @param container container to copy to
+     */
+    void readRow(int row, ModelDataContainer container) {
+        for (int i = 0; i < columns.length; i++) {
+            int slot = factory.slotOf(i);
+            switch (types[i]) {
+                case BOOLEAN -> container.setBool(slot, ((boolean[]) columns[i])[row]);
+                case CHAR -> container.setChar(slot, ((char[]) columns[i])[row]);
+                case BYTE -> container.setByte(slot, ((byte[]) columns[i])[row]);
+                case SHORT -> container.setShort(slot, ((short[]) columns[i])[row]);
+                case INT -> container.setInt(slot, ((int[]) columns[i])[row]);
+                case LONG -> container.setLong(slot, ((long[]) columns[i])[row]);
+                case FLOAT -> container.setFloat(slot, ((float[]) columns[i])[row]);
+                case DOUBLE -> container.setDouble(slot, ((double[]) columns[i])[row]);
+                case OBJECT -> container.setObject(slot, ((Object[]) columns[i])[row]);
+            }
+        }
+    }
+
+}
@@ -1,23 +1,49 @@
 package org.machinemc.foundry.model;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Suppliers;
 import org.jetbrains.annotations.ApiStatus;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Supplier;
 
 /**
  * Container of extracted data from an object using a {@link ClassModel}.
  * <p>
+ * All primitive attributes are stored in a single {@code long} slab, which is either on heap or
+ * off-heap (see {@link Factory#allocate(Arena)}), and all other attributes in a single object slab,
+ * each attribute at a fixed slot computed by the {@link Factory}.
+ * <p>
+ * Attributes are accessed either directly by their slots, or sequentially using the cursor methods,
+ * e.g. {@link #readInt()} or {@link #writeObject(Object)}. There is one cursor for the primitive slab
+ * and one for the object slab, so the typed cursor methods do not skip attributes of other types:
+ * {@code readInt()} reads the next primitive slot, whatever the type of its attribute is. Sequential
+ * access therefore has to follow the primitive (and object) attributes in the order of the class model,
+ * using the method matching the type of each attribute.
+ * <p>
  * This class is intentionally unsafe to keep it optimized for fast
  * writes and reads, and is for internal use only.
  */
 @ApiStatus.Internal
-public final class ModelDataContainer {
+public sealed class ModelDataContainer permits ModelDataContainer.OffHeap {
 
     /**
      * Factory for producing empty model data containers for given class model.
+     * <p>
+     * Apart from creating new containers, the factory keeps a small lock-free pool
+     * of released containers, see {@link #acquire()}.
      */
     public static final class Factory implements Supplier<ModelDataContainer> {
 
+        /**
+         * Number of slots in the pool, must be a power of two.
+         */
+        private static final int POOL_SIZE = 16;
+
         /**
          * Creates new model data container factory for given class model.
          *
@@ -25,179 +51,499 @@ public final class ModelDataContainer {
          * @return model data container factory
          */
         public static Factory of(ClassModel<?> model) {
-            return new Factory(model);
+            ModelAttribute[] attributes = model.getAttributes();
+            boolean[] primitive = new boolean[attributes.length];
+            for (int i = 0; i < attributes.length; i++) primitive[i] = attributes[i].primitive();
+            return new Factory(Suppliers.ofInstance(attributes), primitive);
         }
 
-        private final int booleans, chars, bytes, shorts, ints, longs, floats, doubles, objects;
+        /**
+         * Creates new model data container factory for the default class model of given type,
+         * without creating the class model.
+         * <p>
+         * This is used by object factories generated at compile time, which know the layout of the
+         * class model in advance. The class model is created only once its attributes are needed.
+         *
+         * @param type type of the default class model
+         * @param primitive whether the attributes of the class model are primitive, in their order
+         * @return model data container factory
+         * @see ClassModel#of(Class)
+         */
+        public static Factory of(Class<?> type, boolean... primitive) {
+            Preconditions.checkNotNull(type, "Type can not be null");
+            return new Factory(Suppliers.memoize(() -> ClassModel.of(type).getAttributes()), primitive.clone());
+        }
 
-        private Factory(ClassModel<?> model) {
-            ModelAttribute[] attributes = model.getAttributes();
-            int booleans = 0, chars = 0, bytes = 0, shorts = 0, ints = 0, longs = 0, floats = 0, doubles = 0, objects = 0;
-            for (ModelAttribute attribute : attributes) {
-                if (!attribute.primitive()) {
-                    objects++;
+        private final Supplier<ModelAttribute[]> attributes;
+        private final int primitives, objects;
+        private final int[] slots;
+        private final AtomicReferenceArray<ModelDataContainer> pool = new AtomicReferenceArray<>(POOL_SIZE);
+
+        private Factory(Supplier<ModelAttribute[]> attributes, boolean[] primitive) {
+            this.attributes = attributes;
+            slots = new int[primitive.length];
+            int primitives = 0, objects = 0;
+            for (int i = 0; i < primitive.length; i++) {
+                if (!primitive[i]) {
+                    slots[i] = objects++;
                     continue;
                 }
-                Class<?> type = attribute.type();
-                if (type == boolean.class) booleans++;
-                else if (type == char.class) chars++;
-                else if (type == byte.class) bytes++;
-                else if (type == short.class) shorts++;
-                else if (type == int.class) ints++;
-                else if (type == long.class) longs++;
-                else if (type == float.class) floats++;
-                else if (type == double.class) doubles++;
-                else throw new RuntimeException("Unexpected type: '" + type.getName() + "'");
+                slots[i] = primitives++;
             }
-            this.booleans = booleans;
-            this.chars = chars;
-            this.bytes = bytes;
-            this.shorts = shorts;
-            this.ints = ints;
-            this.longs = longs;
-            this.floats = floats;
-            this.doubles = doubles;
+            this.primitives = primitives;
             this.objects = objects;
         }
 
+        /**
+         * @return attributes of the class model of this factory
+         */
+        ModelAttribute[] attributes() {
+            return attributes.get();
+        }
+
+        /**
+         * Returns the slot of the attribute with given index in the class model.
+         * <p>
+         * Primitive attributes have slots in the primitive slab and other attributes in the
+         * object slab. The slots follow the order of the attributes in the class model.
+         *
+         * @param attributeIndex index of the attribute
+         * @return slot of the attribute
+         */
+        public int slotOf(int attributeIndex) {
+            return slots[attributeIndex];
+        }
+
         @Override
         public ModelDataContainer get() {
-            return new ModelDataContainer(booleans, chars, bytes, shorts, ints, longs, floats, doubles, objects);
+            return new ModelDataContainer(primitives, objects);
+        }
+
+        /**
+         * Creates new model data container with the primitive attributes stored off-heap,
+         * in memory allocated by given arena. Object attributes stay on heap.
+         * <p>
+         * The container can be used only while the arena is alive, all containers
+         * allocated by the arena are freed at once once it is closed.
+         * Off-heap containers are never pooled.
+         *
+         * @param arena arena to allocate the container memory with
+         * @return new off-heap container
+         */
+        public ModelDataContainer allocate(Arena arena) {
+            Preconditions.checkNotNull(arena, "Arena can not be null");
+            return new OffHeap(arena.allocate(ValueLayout.JAVA_LONG, primitives), objects);
+        }
+
+        /**
+         * Returns container from the pool, or a new container if the pool is empty.
+         * <p>
+         * The container should be returned to the pool using {@link #release(ModelDataContainer)}
+         * once it is no longer used.
+         *
+         * @return reset container
+         */
+        public ModelDataContainer acquire() {
+            // threads start at different slots to avoid contention
+            int start = (int) Thread.currentThread().threadId();
+            for (int i = 0; i < POOL_SIZE; i++) {
+                int slot = (start + i) & (POOL_SIZE - 1);
+                ModelDataContainer container = pool.get(slot);
+                if (container != null && pool.compareAndSet(slot, container, null)) return container;
+            }
+            return get();
+        }
+
+        /**
+         * Clears the container and returns it to the pool. If the pool is full, or the container
+         * is off-heap, the container is discarded.
+         * <p>
+         * The container must not be used after it is released.
+         *
+         * @param container container to release
+         */
+        public void release(ModelDataContainer container) {
+            Preconditions.checkArgument(accepts(container), "Container does not belong to this factory");
+            container.clear();
+            if (container.isNative()) return;
+            int start = (int) Thread.currentThread().threadId();
+            for (int i = 0; i < POOL_SIZE; i++) {
+                int slot = (start + i) & (POOL_SIZE - 1);
+                if (pool.get(slot) == null && pool.compareAndSet(slot, null, container)) return;
+            }
+        }
+
+        /**
+         * Checks whether given container has the layout of the containers produced by this factory.
+         *
+         * @param container container
+         * @return whether the container has the same layout
+         */
+        public boolean accepts(ModelDataContainer container) {
+            return container.primitiveSlots() == primitives && container.objects.length == objects;
         }
 
     }
 
-    private final boolean[] booleans;
-    private final char[] chars;
-    private final byte[] bytes;
-    private final short[] shorts;
-    private final int[] ints;
-    private final long[] longs;
-    private final float[] floats;
-    private final double[] doubles;
+    private final long[] primitives;
     private final Object[] objects;
 
-    private int booleansRead = 0, booleansWrite = 0;
-    private int charsRead = 0, charsWrite = 0;
-    private int bytesRead = 0, bytesWrite = 0;
-    private int shortsRead = 0, shortsWrite = 0;
-    private int intsRead = 0, intsWrite = 0;
-    private int longsRead = 0, longsWrite = 0;
-    private int floatsRead = 0, floatsWrite = 0;
-    private int doublesRead = 0, doublesWrite = 0;
+    private int primitivesRead = 0, primitivesWrite = 0;
     private int objectsRead = 0, objectsWrite = 0;
 
-    private ModelDataContainer(int booleans, int chars, int bytes, int shorts, int ints, int longs,
-                               int floats, int doubles, int objects) {
-        this.booleans = new boolean[booleans];
-        this.chars = new char[chars];
-        this.bytes = new byte[bytes];
-        this.shorts = new short[shorts];
-        this.ints = new int[ints];
-        this.longs = new long[longs];
-        this.floats = new float[floats];
-        this.doubles = new double[doubles];
+    private ModelDataContainer(int primitives, int objects) {
+        this(new long[primitives], objects);
+    }
+
+    private ModelDataContainer(long[] primitives, int objects) {
+        this.primitives = primitives;
         this.objects = new Object[objects];
     }
 
+    /**
+     * @return whether the primitive attributes of this container are stored off-heap
+     */
+    public boolean isNative() {
+        return false;
+    }
+
+    /**
+     * @return number of primitive slots of this container
+     */
+    int primitiveSlots() {
+        return primitives.length;
+    }
+
+    /**
+     * Loads raw value of primitive slot.
+     *
+     * @param slot slot
+     * @return raw value
+     */
+    long load(int slot) {
+        return primitives[slot];
+    }
+
+    /**
+     * Stores raw value to primitive slot.
+     *
+     * @param slot slot
+     * @param value raw value
+     */
+    void store(int slot, long value) {
+        primitives[slot] = value;
+    }
+
+    public boolean getBool(int slot) {
+        return load(slot) != 0;
+    }
+
+    public char getChar(int slot) {
+        return (char) load(slot);
+    }
+
+    public byte getByte(int slot) {
+        return (byte) load(slot);
+    }
+
+    public short getShort(int slot) {
+        return (short) load(slot);
+    }
+
+    public int getInt(int slot) {
+        return (int) load(slot);
+    }
+
+    public long getLong(int slot) {
+        return load(slot);
+    }
+
+    public float getFloat(int slot) {
+        return Float.intBitsToFloat((int) load(slot));
+    }
+
+    public double getDouble(int slot) {
+        return Double.longBitsToDouble(load(slot));
+    }
+
+    public Object getObject(int slot) {
+        return objects[slot];
+    }
+
+    public void setBool(int slot, boolean value) {
+        store(slot, value ? 1 : 0);
+    }
+
+    public void setChar(int slot, char value) {
+        store(slot, value);
+    }
+
+    public void setByte(int slot, byte value) {
+        store(slot, value);
+    }
+
+    public void setShort(int slot, short value) {
+        store(slot, value);
+    }
+
+    public void setInt(int slot, int value) {
+        store(slot, value);
+    }
+
+    public void setLong(int slot, long value) {
+        store(slot, value);
+    }
+
+    public void setFloat(int slot, float value) {
+        store(slot, Float.floatToRawIntBits(value));
+    }
+
+    public void setDouble(int slot, double value) {
+        store(slot, Double.doubleToRawLongBits(value));
+    }
+
+    public void setObject(int slot, Object value) {
+        objects[slot] = value;
+    }
+
+    /**
+     * Reads the next primitive slot as {@code boolean} and advances the primitive read cursor.
+     *
+     * @return value of the slot
+     */
     public boolean readBool() {
-        return booleans[booleansRead++];
+        return getBool(primitivesRead++);
     }
 
+    /**
+     * Reads the next primitive slot as {@code char} and advances the primitive read cursor.
+     *
+     * @return value of the slot
+     */
     public char readChar() {
-        return chars[charsRead++];
+        return getChar(primitivesRead++);
     }
 
+    /**
+     * Reads the next primitive slot as {@code byte} and advances the primitive read cursor.
+     *
+     * @return value of the slot
+     */
     public byte readByte() {
-        return bytes[bytesRead++];
+        return getByte(primitivesRead++);
     }
 
+    /**
+     * Reads the next primitive slot as {@code short} and advances the primitive read cursor.
+     *
+     * @return value of the slot
+     */
     public short readShort() {
-        return shorts[shortsRead++];
+        return getShort(primitivesRead++);
     }
 
+    /**
+     * Reads the next primitive slot as {@code int} and advances the primitive read cursor.
+     *
+     * @return value of the slot
+     */
     public int readInt() {
-        return ints[intsRead++];
+        return getInt(primitivesRead++);
     }
 
+    /**
+     * Reads the next primitive slot as {@code long} and advances the primitive read cursor.
+     *
+     * @return value of the slot
+     */
     public long readLong() {
-        return longs[longsRead++];
+        return getLong(primitivesRead++);
     }
 
+    /**
+     * Reads the next primitive slot as {@code float} and advances the primitive read cursor.
+     *
+     * @return value of the slot
+     */
     public float readFloat() {
-        return floats[floatsRead++];
+        return getFloat(primitivesRead++);
     }
 
+    /**
+     * Reads the next primitive slot as {@code double} and advances the primitive read cursor.
+     *
+     * @return value of the slot
+     */
     public double readDouble() {
-        return doubles[doublesRead++];
+        return getDouble(primitivesRead++);
     }
 
+    /**
+     * Reads the next object slot and advances the object read cursor.
+     *
+     * @return value of the slot
+     */
     public Object readObject() {
-        return objects[objectsRead++];
+        return getObject(objectsRead++);
     }
 
+    /**
+     * Writes {@code boolean} to the next primitive slot and advances the primitive write cursor.
+     *
+     * @param value value to write
+     */
     public void writeBool(boolean value) {
-        booleans[booleansWrite++] = value;
+        setBool(primitivesWrite++, value);
     }
 
+    /**
+     * Writes {@code char} to the next primitive slot and advances the primitive write cursor.
+     *
+     * @param value value to write
+     */
     public void writeChar(char value) {
-        chars[charsWrite++] = value;
+        setChar(primitivesWrite++, value);
     }
 
+    /**
+     * Writes {@code byte} to the next primitive slot and advances the primitive write cursor.
+     *
+     * @param value value to write
+     */
     public void writeByte(byte value) {
-        bytes[bytesWrite++] = value;
+        setByte(primitivesWrite++, value);
     }
 
+    /**
+     * Writes {@code short} to the next primitive slot and advances the primitive write cursor.
+     *
+     * @param value value to write
+     */
     public void writeShort(short value) {
-        shorts[shortsWrite++] = value;
+        setShort(primitivesWrite++, value);
     }
 
+    /**
+     * Writes {@code int} to the next primitive slot and advances the primitive write cursor.
+     *
+     * @param value value to write
+     */
     public void writeInt(int value) {
-        ints[intsWrite++] = value;
+        setInt(primitivesWrite++, value);
     }
 
+    /**
+     * Writes {@code long} to the next primitive slot and advances the primitive write cursor.
+     *
+     * @param value value to write
+     */
     public void writeLong(long value) {
-        longs[longsWrite++] = value;
+        setLong(primitivesWrite++, value);
     }
 
+    /**
+     * Writes {@code float} to the next primitive slot and advances the primitive write cursor.
+     *
+     * @param value value to write
+     */
     public void writeFloat(float value) {
-        floats[floatsWrite++] = value;
+        setFloat(primitivesWrite++, value);
     }
 
+    /**
+     * Writes {@code double} to the next primitive slot and advances the primitive write cursor.
+     *
+     * @param value value to write
+     */
     public void writeDouble(double value) {
-        doubles[doublesWrite++] = value;
+        setDouble(primitivesWrite++, value);
     }
 
+    /**
+     * Writes the value to the next object slot and advances the object write cursor.
+     *
+     * @param value value to write
+     */
     public void writeObject(Object value) {
-        objects[objectsWrite++] = value;
+        setObject(objectsWrite++, value);
     }
 
     /**
      * Resets all the reader indices.
      */
     public void resetReader() {
-        booleansRead = 0;
-        charsRead = 0;
-        bytesRead = 0;
-        shortsRead = 0;
-        intsRead = 0;
-        longsRead = 0;
-        floatsRead = 0;
-        doublesRead = 0;
+        primitivesRead = 0;
+        objectsRead = 0;
     }
 
     /**
      * Resets all the writer indices.
      */
     public void resetWriter() {
-        booleansWrite = 0;
-        charsWrite = 0;
-        bytesWrite = 0;
-        shortsWrite = 0;
-        intsWrite = 0;
-        longsWrite = 0;
-        floatsWrite = 0;
-        doublesWrite = 0;
+        primitivesWrite = 0;
+        objectsWrite = 0;
+    }
+
+    /**
+     * Copies values of all slots of this container to a container with the same layout.
+     *
+     * @param target container to copy to
+     */
+    void copyTo(ModelDataContainer target) {
+        int primitiveSlots = primitiveSlots();
+        for (int slot = 0; slot < primitiveSlots; slot++) target.store(slot, load(slot));
+        System.arraycopy(objects, 0, target.objects, 0, objects.length);
+    }
+
+    /**
+     * Resets both the reader and writer indices.
+     */
+    public void reset() {
+        resetReader();
+        resetWriter();
+    }
+
+    /**
+     * Resets the indices and removes all object references held by this container.
+     */
+    public void clear() {
+        reset();
+        Arrays.fill(objects, null);
+    }
+
+    /**
+     * Model data container with the primitive slab stored off-heap in a memory segment,
+     * see {@link Factory#allocate(Arena)}.
+     */
+    static final class OffHeap extends ModelDataContainer {
+
+        private final MemorySegment segment;
+
+        private OffHeap(MemorySegment segment, int objects) {
+            super(0, objects);
+            this.segment = segment;
+        }
+
+        @Override
+        public boolean isNative() {
+            return true;
+        }
+
+        @Override
+        int primitiveSlots() {
+            return Math.toIntExact(segment.byteSize() / ValueLayout.JAVA_LONG.byteSize());
+        }
+
+        @Override
+        long load(int slot) {
+            return segment.getAtIndex(ValueLayout.JAVA_LONG, slot);
+        }
+
+        @Override
+        void store(int slot, long value) {
+            segment.setAtIndex(ValueLayout.JAVA_LONG, slot, value);
+        }
+
     }
 
 }
@@ -0,0 +1,195 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Container of the attributes of an object that changed since its previous state.
+ * <p>
+ * The delta holds a bitmask of the changed attributes, indexed by the attributes of the
+ * {@link ClassModel}, together with their new values. Values of unchanged attributes are
+ * neither kept nor encoded.
+ * <p>
+ * Encoded delta starts with the bitmask, one bit per attribute in the order of the class model
+ * packed into bytes, followed by the values of the changed attributes in the same order.
+ * Primitives are written with their fixed size and the byte order of the buffer, object
+ * attributes as described by {@link BufferValues}.
+ *
+ * @see Differ
+ */
+public final class ModelDataDelta {
+
+    private final ModelDataContainer.Factory factory;
+    private final ModelAttribute[] attributes;
+    private final ContainerTypeMapping[] types;
+    private final long[] changed;
+    private final ModelDataContainer values;
+
+    /**
+     * @param factory container factory of the class model
+     * @param changed bitmask of the changed attributes
+     * @param values container with values of the changed attributes
+     */
+    ModelDataDelta(ModelDataContainer.Factory factory, long[] changed, ModelDataContainer values) {
+        this.factory = factory;
+        this.changed = changed;
+        this.values = values;
+        attributes = factory.attributes();
+        types = new ContainerTypeMapping[attributes.length];
+        for (int i = 0; i < attributes.length; i++) types[i] = ContainerTypeMapping.of(attributes[i].type());
+    }
+
+    /**
+     * Returns the number of {@code long} words of bitmask needed for given number of attributes.
+     *
+     * @param attributes number of attributes
+     * @return length of the bitmask
+     */
+    static int maskLength(int attributes) {
+        return (attributes + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Reads delta encoded by {@link #write(ByteBuffer)}, starting at the position of the buffer.
+     *
+     * @param factory container factory of the class model
+     * @param buffer buffer to read from
+     * @return read delta
+     * @throws java.nio.BufferUnderflowException if the buffer does not contain the whole delta
+     */
+    static ModelDataDelta read(ModelDataContainer.Factory factory, ByteBuffer buffer) {
+        ModelDataDelta delta = new ModelDataDelta(factory, new long[maskLength(factory.attributes().length)],
+                factory.get());
+        int maskBytes = (delta.attributes.length + Byte.SIZE - 1) / Byte.SIZE;
+        for (int i = 0; i < maskBytes; i++)
+            delta.changed[i >>> 3] |= (buffer.get() & 0xFFL) << ((i & 7) * Byte.SIZE);
+        int used = delta.attributes.length % Long.SIZE;
+        Preconditions.checkArgument(used == 0 || delta.changed[delta.changed.length - 1] >>> used == 0,
+                "Delta marks attributes the class model does not have");
+
+        ModelDataContainer values = delta.values;
+        for (int i = 0; i < delta.attributes.length; i++) {
+            if (!delta.isChanged(i)) continue;
+            int slot = factory.slotOf(i);
+            switch (delta.types[i]) {
+                case BOOLEAN -> values.setBool(slot, BufferValues.readBool(buffer));
+                case CHAR -> values.setChar(slot, buffer.getChar());
+                case BYTE -> values.setByte(slot, buffer.get());
+                case SHORT -> values.setShort(slot, buffer.getShort());
+                case INT -> values.setInt(slot, buffer.getInt());
+                case LONG -> values.setLong(slot, buffer.getLong());
+                case FLOAT -> values.setFloat(slot, buffer.getFloat());
+                case DOUBLE -> values.setDouble(slot, buffer.getDouble());
+                case OBJECT -> values.setObject(slot, BufferValues.readObject(buffer,
+                        ValueEncoding.of(delta.attributes[i])));
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * @return number of attributes of the class model
+     */
+    public int attributes() {
+        return attributes.length;
+    }
+
+    /**
+     * Returns whether attribute with given index in the class model changed.
+     *
+     * @param attribute index of the attribute
+     * @return whether the attribute changed
+     */
+    public boolean isChanged(int attribute) {
+        Preconditions.checkElementIndex(attribute, attributes.length, "Attribute");
+        return (changed[attribute >>> 6] & (1L << attribute)) != 0;
+    }
+
+    /**
+     * @return number of changed attributes
+     */
+    public int changes() {
+        int changes = 0;
+        for (long word : changed) changes += Long.bitCount(word);
+        return changes;
+    }
+
+    /**
+     * @return whether no attribute changed
+     */
+    public boolean isEmpty() {
+        for (long word : changed) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return copy of the bitmask of the changed attributes
+     */
+    public long[] changed() {
+        return changed.clone();
+    }
+
+    /**
+     * Writes the delta to a byte buffer, starting at its position.
+     *
+     * @param buffer buffer to write to
+     * @throws java.nio.BufferOverflowException if there is not enough space in the buffer
+     */
+    public void write(ByteBuffer buffer) {
+        int maskBytes = (attributes.length + Byte.SIZE - 1) / Byte.SIZE;
+        for (int i = 0; i < maskBytes; i++) buffer.put((byte) (changed[i >>> 3] >>> ((i & 7) * Byte.SIZE)));
+
+        for (int i = 0; i < attributes.length; i++) {
+            if (!isChanged(i)) continue;
+            int slot = factory.slotOf(i);
+            switch (types[i]) {
+                case BOOLEAN -> buffer.put((byte) (values.getBool(slot) ? 1 : 0));
+                case CHAR -> buffer.putChar(values.getChar(slot));
+                case BYTE -> buffer.put(values.getByte(slot));
+                case SHORT -> buffer.putShort(values.getShort(slot));
+                case INT -> buffer.putInt(values.getInt(slot));
+                case LONG -> buffer.putLong(values.getLong(slot));
+                case FLOAT -> buffer.putFloat(values.getFloat(slot));
+                case DOUBLE -> buffer.putDouble(values.getDouble(slot));
+                case OBJECT -> BufferValues.writeObject(buffer, values.getObject(slot),
+                        ValueEncoding.of(attributes[i]));
+            }
+        }
+    }
+
+    /**
+     * @param factory container factory
+     * @return whether this delta can be applied to containers of given factory
+     */
+    boolean accepts(ModelDataContainer.Factory factory) {
+        return Arrays.equals(attributes, factory.attributes());
+    }
+
+    /**
+     * Copies values of the changed attributes to the container.
+     *
+     * @param container container to copy to
+     */
+    void applyTo(ModelDataContainer container) {
+        for (int i = 0; i < attributes.length; i++) {
+            if (!isChanged(i)) continue;
+            int slot = factory.slotOf(i);
+            switch (types[i]) {
+                case BOOLEAN -> container.setBool(slot, values.getBool(slot));
+                case CHAR -> container.setChar(slot, values.getChar(slot));
+                case BYTE -> container.setByte(slot, values.getByte(slot));
+                case SHORT -> container.setShort(slot, values.getShort(slot));
+                case INT -> container.setInt(slot, values.getInt(slot));
+                case LONG -> container.setLong(slot, values.getLong(slot));
+                case FLOAT -> container.setFloat(slot, values.getFloat(slot));
+                case DOUBLE -> container.setDouble(slot, values.getDouble(slot));
+                case OBJECT -> container.setObject(slot, values.getObject(slot));
+            }
+        }
+    }
+
+}
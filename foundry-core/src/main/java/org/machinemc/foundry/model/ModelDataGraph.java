@@ -0,0 +1,96 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Container of extracted data from a whole object graph.
+ * <p>
+ * Each object of the graph with a nested class model is a node of the graph, with its attributes
+ * stored in its own {@link ModelDataContainer}. Object attributes referencing other nodes hold
+ * a {@link Reference} to the node instead of the object itself. Other object attributes,
+ * e.g. strings, enums, arrays or collections, are stored as they are.
+ * <p>
+ * The root object of the graph is always the first node, the nodes are in the order
+ * they were first reached.
+ *
+ * @see ObjectGraphFactory
+ */
+public final class ModelDataGraph {
+
+    /**
+     * Reference to a node of the graph, stored in the object attributes of the containers.
+     *
+     * @param node index of the referenced node
+     */
+    public record Reference(int node) {
+    }
+
+    private final List<Class<?>> types;
+    private final List<ModelDataContainer> containers;
+    private final int[] completionOrder;
+    private final BitSet preallocated;
+
+    /**
+     * @param types types of the nodes
+     * @param containers containers of the nodes
+     * @param completionOrder nodes in the order their references were resolved, each node
+     *                        after all nodes it references, apart from the nodes that are preallocated
+     * @param preallocated nodes referenced before all their references were resolved,
+     *                     they must be created before their attributes are read
+     */
+    ModelDataGraph(List<Class<?>> types, List<ModelDataContainer> containers, int[] completionOrder,
+                   BitSet preallocated) {
+        this.types = List.copyOf(types);
+        this.containers = List.copyOf(containers);
+        this.completionOrder = completionOrder;
+        this.preallocated = preallocated;
+    }
+
+    /**
+     * @return number of nodes in the graph
+     */
+    public int size() {
+        return types.size();
+    }
+
+    /**
+     * Returns type of the object of given node.
+     *
+     * @param node index of the node
+     * @return type of the node
+     */
+    public Class<?> type(int node) {
+        Preconditions.checkElementIndex(node, types.size(), "Node");
+        return types.get(node);
+    }
+
+    /**
+     * Returns container with the data of given node.
+     *
+     * @param node index of the node
+     * @return container of the node
+     */
+    public ModelDataContainer container(int node) {
+        Preconditions.checkElementIndex(node, containers.size(), "Node");
+        return containers.get(node);
+    }
+
+    /**
+     * @return nodes in the order they can be reconstructed in
+     */
+    int[] completionOrder() {
+        return completionOrder;
+    }
+
+    /**
+     * @param node index of the node
+     * @return whether the node must be created before its attributes are read
+     */
+    boolean isPreallocated(int node) {
+        return preallocated.get(node);
+    }
+
+}
@@ -1,11 +1,34 @@
 package org.machinemc.foundry.model;
 
+import com.google.common.base.Preconditions;
+import com.google.common.reflect.ClassPath;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Class that is responsible for constructing and deconstructing objects,
  * writing their data into {@link ModelDataContainer}.
  * <p>
+ * Generated factories are shared, each type and class model pair is generated
+ * only once and the factory is released once the class loader of the type is unloaded.
+ * <p>
  * This class is for internal use only.
  *
  * @param <T> object type
@@ -14,18 +37,71 @@ import org.jetbrains.annotations.ApiStatus;
 public abstract class ObjectFactory<T> {
 
     /**
-     * Creates new object factory for objects of given type.
+     * Generated factories of a type, mapped by the class model they were generated for.
+     * <p>
+     * The map is stored in the class value of the type, so it does not keep the type
+     * (nor its class loader) reachable.
+     */
+    private static final ClassValue<Map<ClassModel<?>, ObjectFactory<?>>> FACTORIES = new ClassValue<>() {
+        @Override
+        protected Map<ClassModel<?>, ObjectFactory<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Factories of a type created using its default class model.
+     * <p>
+     * Types annotated with {@link GenerateFactory} use the factory generated at compile time, if present,
+     * without building their class model.
+     */
+    private static final ClassValue<ObjectFactory<?>> DEFAULT_FACTORIES = new ClassValue<>() {
+        @Override
+        protected ObjectFactory<?> computeValue(Class<?> type) {
+            ObjectFactory<?> pregenerated = pregenerated(type);
+            if (pregenerated != null) return pregenerated;
+            //noinspection unchecked,rawtypes
+            return FACTORIES.get(type).computeIfAbsent(DEFAULT_MODELS.get(type),
+                    model -> ObjectFactoryGenerator.generate((Class) type, (ClassModel) model));
+        }
+    };
+
+    /**
+     * Default class models of types, built once per type.
+     */
+    private static final ClassValue<ClassModel<?>> DEFAULT_MODELS = new ClassValue<>() {
+        @Override
+        protected ClassModel<?> computeValue(Class<?> type) {
+            return ClassModel.of(type);
+        }
+    };
+
+    /**
+     * Suffix of the names of object factories generated at compile time.
+     */
+    private static final String PREGENERATED_SUFFIX = "_ObjectFactory";
+
+    /**
+     * Returns object factory for objects of given type using the default
+     * class model of the type.
      *
      * @param type type of the object
      * @return object factory for objects of given type
      * @param <T> object type
+     * @see ClassModel#of(Class)
      */
     public static <T> ObjectFactory<T> create(Class<T> type) {
-        return create(type, ClassModel.of(type));
+        //noinspection unchecked
+        return (ObjectFactory<T>) DEFAULT_FACTORIES.get(type);
     }
 
     /**
-     * Creates new object factory for objects of given type.
+     * Returns object factory for objects of given type.
+     * <p>
+     * If there is no factory for given class model yet, it is generated.
+     * Concurrent calls for the same type and class model generate the factory only once.
+     * For types annotated with {@link GenerateFactory}, the factory generated at compile time
+     * is used if the class model is the default class model of the type.
      *
      * @param type type of the object
      * @param classModel class model of the type
@@ -33,8 +109,118 @@ public abstract class ObjectFactory<T> {
      * @param <T> object type
      */
     public static <T> ObjectFactory<T> create(Class<T> type, ClassModel<T> classModel) {
+        if (type.isAnnotationPresent(GenerateFactory.class) && classModel.equals(DEFAULT_MODELS.get(type)))
+            return create(type);
         //noinspection unchecked
-        return (ObjectFactory<T>) ObjectFactoryGenerator.generate(type, classModel);
+        return (ObjectFactory<T>) FACTORIES.get(type).computeIfAbsent(classModel,
+                model -> ObjectFactoryGenerator.generate(type, model));
+    }
+
+    /**
+     * Creates object factories for all given types ahead of their first use.
+     * <p>
+     * The factories are created concurrently using the {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @param types types to create the object factories for, using their default class models
+     * @return future completed with the time it took to create the factory of each type,
+     * or completed exceptionally if any of the factories could not be created
+     * @see #warmUp(Collection, Executor)
+     */
+    public static CompletableFuture<Map<Class<?>, Duration>> warmUp(Collection<? extends Class<?>> types) {
+        return warmUp(types, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates object factories for all given types ahead of their first use.
+     * <p>
+     * Creating the class model and generating the factory is expensive, warming up the factories
+     * before the types are used moves the cost out of the first use. Each type is created
+     * in its own task submitted to the executor.
+     *
+     * @param types types to create the object factories for, using their default class models
+     * @param executor executor to create the factories with
+     * @return future completed with the time it took to create the factory of each type, in the order
+     * of the types, or completed exceptionally if any of the factories could not be created
+     * @see #create(Class)
+     */
+    public static CompletableFuture<Map<Class<?>, Duration>> warmUp(Collection<? extends Class<?>> types,
+                                                                    Executor executor) {
+        Preconditions.checkNotNull(types, "Types can not be null");
+        Preconditions.checkNotNull(executor, "Executor can not be null");
+        List<Class<?>> ordered = List.copyOf(types);
+        List<CompletableFuture<Duration>> tasks = new ArrayList<>(ordered.size());
+        for (Class<?> type : ordered) {
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                create(type);
+                return Duration.ofNanos(System.nanoTime() - start);
+            }, executor));
+        }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).thenApply(_ -> {
+            Map<Class<?>, Duration> times = new LinkedHashMap<>();
+            for (int i = 0; i < ordered.size(); i++) times.put(ordered.get(i), tasks.get(i).join());
+            return Collections.unmodifiableMap(times);
+        });
+    }
+
+    /**
+     * Finds all classes in given package and its subpackages annotated with given annotation,
+     * e.g. to {@link #warmUp(Collection, Executor) warm up} their object factories.
+     * <p>
+     * The classes are found by scanning the class path of the class loader, they are loaded
+     * but not initialized. Classes that fail to load are skipped.
+     *
+     * @param packageName name of the package
+     * @param classLoader class loader to scan
+     * @param annotation annotation the classes are annotated with
+     * @return annotated classes
+     * @throws IOException if the class path could not be scanned
+     */
+    public static List<Class<?>> discover(String packageName, ClassLoader classLoader,
+                                          Class<? extends Annotation> annotation) throws IOException {
+        Preconditions.checkNotNull(packageName, "Package name can not be null");
+        Preconditions.checkNotNull(classLoader, "Class loader can not be null");
+        Preconditions.checkNotNull(annotation, "Annotation can not be null");
+        String prefix = packageName + ".";
+        List<Class<?>> classes = new ArrayList<>();
+        for (ClassPath.ClassInfo info : ClassPath.from(classLoader).getAllClasses()) {
+            if (!info.getPackageName().equals(packageName) && !info.getPackageName().startsWith(prefix))
+                continue;
+            try {
+                Class<?> type = Class.forName(info.getName(), false, classLoader);
+                if (type.isAnnotationPresent(annotation)) classes.add(type);
+            } catch (ClassNotFoundException | LinkageError _) {
+                // classes with missing dependencies can not be modelled anyway
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Returns object factory generated at compile time for given type.
+     * <p>
+     * The generated factory is in the same package as the type, named after the binary name
+     * of the type with {@code $} replaced by {@code _} and {@code _ObjectFactory} appended.
+     *
+     * @param type type of the object
+     * @return generated object factory, or {@code null} if the type is not annotated
+     * with {@link GenerateFactory} or no factory was generated for it
+     */
+    private static @Nullable ObjectFactory<?> pregenerated(Class<?> type) {
+        if (!type.isAnnotationPresent(GenerateFactory.class)) return null;
+        String packageName = type.getPackageName();
+        String simpleName = packageName.isEmpty() ? type.getName() : type.getName().substring(packageName.length() + 1);
+        String name = (packageName.isEmpty() ? "" : packageName + ".") + simpleName.replace('$', '_')
+                + PREGENERATED_SUFFIX;
+        try {
+            Class<?> generated = Class.forName(name, true, type.getClassLoader());
+            if (!ObjectFactory.class.isAssignableFrom(generated)) return null;
+            return (ObjectFactory<?>) generated.getConstructor().newInstance();
+        } catch (ClassNotFoundException exception) {
+            return null;
+        } catch (ReflectiveOperationException exception) {
+            throw new RuntimeException("Failed to instantiate generated object factory " + name, exception);
+        }
     }
 
     private final ModelDataContainer.Factory holderFactory;
@@ -43,7 +229,14 @@ public abstract class ObjectFactory<T> {
      * @param classModel class model for the type of this factory
      */
     protected ObjectFactory(ClassModel<T> classModel) {
-        holderFactory = ModelDataContainer.Factory.of(classModel);
+        this(ModelDataContainer.Factory.of(classModel));
+    }
+
+    /**
+     * @param containerFactory factory of the model data containers for the type of this factory
+     */
+    protected ObjectFactory(ModelDataContainer.Factory containerFactory) {
+        holderFactory = Preconditions.checkNotNull(containerFactory, "Container factory can not be null");
     }
 
     /**
@@ -53,13 +246,101 @@ public abstract class ObjectFactory<T> {
         return holderFactory.get();
     }
 
+    /**
+     * @return factory of the model data containers for the type of this factory
+     */
+    protected ModelDataContainer.Factory containerFactory() {
+        return holderFactory;
+    }
+
     /**
      * Creates new model data container and writes the data of given object to it.
      *
      * @param instance object to write the data from
      * @return new model data container with written data from the object
      */
-    public abstract ModelDataContainer write(T instance);
+    public ModelDataContainer write(T instance) {
+        ModelDataContainer container = newContainer();
+        write(instance, container);
+        return container;
+    }
+
+    /**
+     * Creates new off-heap model data container and writes the data of given object to it.
+     *
+     * @param instance object to write the data from
+     * @param arena arena to allocate the container with
+     * @return new off-heap model data container with written data from the object
+     * @see ModelDataContainer.Factory#allocate(Arena)
+     */
+    public ModelDataContainer write(T instance, Arena arena) {
+        ModelDataContainer container = holderFactory.allocate(arena);
+        write(instance, container);
+        return container;
+    }
+
+    /**
+     * Writes the data of given object to an existing container.
+     * <p>
+     * The container is reset before the data are written, so it can be reused
+     * for multiple objects. The container must have been created for the same class model,
+     * e.g. by {@link ModelDataContainer.Factory#acquire()} of this factory.
+     *
+     * @param instance object to write the data from
+     * @param container container to write the data to
+     */
+    public abstract void write(T instance, ModelDataContainer container);
+
+    /**
+     * Writes the data of given object directly to a byte buffer, starting at its position.
+     * <p>
+     * Attributes are written in the order of the class model: primitives with their fixed size
+     * and the byte order of the buffer, object attributes as described by {@link BufferValues}.
+     * Enum constants are written only by their name.
+     * No intermediate model data container is created.
+     *
+     * @param instance object to write the data from
+     * @param buffer buffer to write the data to
+     * @throws java.nio.BufferOverflowException if there is not enough space in the buffer
+     */
+    public abstract void write(T instance, ByteBuffer buffer);
+
+    /**
+     * Writes the data of given object directly to a memory segment, starting at its beginning.
+     *
+     * @param instance object to write the data from
+     * @param segment segment to write the data to
+     * @return number of written bytes
+     * @see #write(Object, ByteBuffer)
+     */
+    public long write(T instance, MemorySegment segment) {
+        ByteBuffer buffer = segment.asByteBuffer();
+        write(instance, buffer);
+        return buffer.position();
+    }
+
+    /**
+     * Writes the data of all given objects into a new column-wise batch.
+     * <p>
+     * A single container is reused for all objects, so no container is
+     * allocated per object.
+     *
+     * @param instances objects to write the data from
+     * @return new batch with the data of the objects, in the same order
+     */
+    public ModelDataBatch writeAll(T[] instances) {
+        ModelDataBatch batch = new ModelDataBatch(holderFactory, instances.length);
+        ModelDataContainer container = holderFactory.acquire();
+        try {
+            for (int i = 0; i < instances.length; i++) {
+                write(instances[i], container);
+                batch.writeRow(i, container);
+            }
+        } finally {
+            holderFactory.release(container);
+        }
+        return batch;
+    }
 
     /**
      * Creates new instance of the factory' type and populates it with the
@@ -70,6 +351,135 @@ public abstract class ObjectFactory<T> {
      */
     public abstract T read(ModelDataContainer container);
 
+    /**
+     * Creates new instance of the factory' type without populating its attributes.
+     * <p>
+     * Together with {@link #read(ModelDataContainer, Object)} this allows the instance to be
+     * referenced before its attributes are read, e.g. in cyclic object graphs.
+     * This is supported only by standard classes, as records and enums can not be created
+     * before their attributes are known.
+     *
+     * @return new instance
+     * @throws UnsupportedOperationException if the type of this factory is a record or an enum
+     * @see ObjectGraphFactory
+     */
+    public T newInstance() {
+        throw new UnsupportedOperationException("Instances of this type can not be created without attributes");
+    }
+
+    /**
+     * Populates existing instance of the factory' type with the data in given model data container.
+     *
+     * @param container container
+     * @param instance instance created by {@link #newInstance()}
+     * @throws UnsupportedOperationException if the type of this factory is a record or an enum
+     */
+    public void read(ModelDataContainer container, T instance) {
+        throw new UnsupportedOperationException("Instances of this type can not be populated after creation");
+    }
+
+    /**
+     * Creates new instance of the factory' type and populates it with the
+     * data read directly from a byte buffer, starting at its position.
+     *
+     * @param buffer buffer with data written by {@link #write(Object, ByteBuffer)}
+     * @return new instance with data read from the buffer
+     * @throws java.nio.BufferUnderflowException if the buffer does not contain all data
+     */
+    public abstract T read(ByteBuffer buffer);
+
+    /**
+     * Creates new instance of the factory' type and populates it with the
+     * data read directly from a memory segment, starting at its beginning.
+     *
+     * @param segment segment with data written by {@link #write(Object, MemorySegment)}
+     * @return new instance with data read from the segment
+     * @see #read(ByteBuffer)
+     */
+    public T read(MemorySegment segment) {
+        return read(segment.asByteBuffer());
+    }
+
+    /**
+     * Creates shallow copy of given object, object attributes are shared with the copy.
+     *
+     * @param instance object to copy
+     * @return copy of the object
+     * @see Copier
+     */
+    public T copy(T instance) {
+        return copy(instance, CopyContext.shallow());
+    }
+
+    /**
+     * Creates copy of given object, copying the attributes directly to the new instance.
+     * <p>
+     * Object attributes are copied using the context. Enum constants are not copied.
+     *
+     * @param instance object to copy
+     * @param context context of the copy
+     * @return copy of the object
+     * @see Copier
+     */
+    public abstract T copy(T instance, CopyContext context);
+
+    /**
+     * Compares two objects attribute by attribute and marks the changed attributes.
+     * <p>
+     * Bit {@code i} of the bitmask stands for the attribute at index {@code i} of the class model,
+     * it is set if the attribute differs. Bits of unchanged attributes are left untouched.
+     * Primitive attributes are compared by value, object attributes using {@link Object#equals(Object)}.
+     *
+     * @param previous previous state of the object
+     * @param current current state of the object
+     * @param changed bitmask to mark the changed attributes in, with at least
+     *                one {@code long} for every 64 attributes
+     * @see Differ
+     */
+    public void diff(T previous, T current, long[] changed) {
+        diff(previous, current, changed, null);
+    }
+
+    /**
+     * Compares two objects attribute by attribute, marks the changed attributes and writes
+     * their current values to given container.
+     * <p>
+     * Only the values of changed attributes are written, slots of the unchanged attributes
+     * are left untouched, so the objects are not deconstructed as a whole.
+     *
+     * @param previous previous state of the object
+     * @param current current state of the object
+     * @param changed bitmask to mark the changed attributes in, with at least
+     *                one {@code long} for every 64 attributes
+     * @param values container created for the class model of this factory to write the current
+     *               values of the changed attributes to, or {@code null} to only mark them
+     * @see #diff(Object, Object, long[])
+     */
+    public abstract void diff(T previous, T current, long[] changed, @Nullable ModelDataContainer values);
+
+    /**
+     * Creates new instances of the factory' type for all objects of the batch.
+     *
+     * @param batch batch created for the class model of this factory
+     * @return new instances with data read from the batch, in the order of the batch
+     */
+    public List<T> readAll(ModelDataBatch batch) {
+        Preconditions.checkArgument(batch.accepts(holderFactory),
+                "Batch was not created for the class model of this factory");
+        List<T> instances = new ArrayList<>(batch.size());
+        ModelDataContainer container = holderFactory.acquire();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                container.reset();
+                batch.readRow(i, container);
+                instances.add(read(container));
+            }
+        } finally {
+            holderFactory.release(container);
+        }
+        return instances;
+    }
+
     /**
      * Part of object factory that reads or writes some attributes.
      * <p>
@@ -94,6 +504,42 @@ public abstract class ObjectFactory<T> {
          */
         void read(ModelDataContainer container, T instance);
 
+        /**
+         * Writes some of {@code instance} data to the provided buffer.
+         *
+         * @param instance instance to read the data from
+         * @param buffer buffer to write the data to
+         */
+        void write(T instance, ByteBuffer buffer);
+
+        /**
+         * Reads some data of the provided buffer and writes them to the {@code instance}.
+         *
+         * @param buffer buffer to read the data from
+         * @param instance instance to write the data to
+         */
+        void read(ByteBuffer buffer, T instance);
+
+        /**
+         * Copies some data of the {@code source} to the {@code target}.
+         *
+         * @param source instance to copy the data from
+         * @param target instance to copy the data to
+         * @param context context of the copy
+         */
+        void copy(T source, T target, CopyContext context);
+
+        /**
+         * Marks the attributes of this part that differ between the two instances
+         * and writes their current values to the container, if present.
+         *
+         * @param previous previous state of the instance
+         * @param current current state of the instance
+         * @param changed bitmask of changed attributes, indexed by attributes of the class model
+         * @param values container to write the current values of changed attributes to, or {@code null}
+         */
+        void diff(T previous, T current, long[] changed, @Nullable ModelDataContainer values);
+
     }
 
 }
@@ -10,10 +10,13 @@ import org.objectweb.asm.commons.Method;
 import java.lang.constant.ConstantDescs;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import static org.objectweb.asm.Opcodes.*;
@@ -26,7 +29,9 @@ final class ObjectFactoryGenerator {
 
     private static final String WRITE_METHOD_NAME = "write";
     private static final String READ_METHOD_NAME = "read";
-    private static final String NEW_CONTAINER_METHOD_NAME = "newContainer";
+    private static final String RESET_METHOD_NAME = "reset";
+    private static final String COPY_METHOD_NAME = "copy";
+    private static final String DIFF_METHOD_NAME = "diff";
 
     /**
      * Generates object factory for objects of given type using the given class model for
@@ -44,7 +49,16 @@ final class ObjectFactoryGenerator {
                 || constructionMethod instanceof ClassModel.EnumConstructor<?>)
             classDataBuilder.reserveConstructor(constructionMethod);
 
-        Map<Class<?>, List<ModelAttribute>> attributesByParent = Arrays.stream(classModel.getAttributes())
+        ModelAttribute[] attributes = classModel.getAttributes();
+        ModelDataContainer.Factory containerLayout = ModelDataContainer.Factory.of(classModel);
+        Map<ModelAttribute, Integer> slots = new HashMap<>();
+        Map<ModelAttribute, Integer> indices = new HashMap<>();
+        for (int i = 0; i < attributes.length; i++) {
+            slots.put(attributes[i], containerLayout.slotOf(i));
+            indices.put(attributes[i], i);
+        }
+
+        Map<Class<?>, List<ModelAttribute>> attributesByParent = Arrays.stream(attributes)
                 .collect(Collectors.groupingBy(
                         ModelAttribute::source,
                         LinkedHashMap::new,
@@ -54,10 +68,26 @@ final class ObjectFactoryGenerator {
             // for records we do not generate the read implementation as all fields are set in the constructor
             // for enums we do not generate the read implementation as they are constants resolved by name
             boolean includeRead = !type.isRecord() && !type.isEnum();
-            var part = ObjectFactoryPartGenerator.generatePart(parent, true, includeRead, parentAttributes);
+            var part = ObjectFactoryPartGenerator.generatePart(parent, true, includeRead, parentAttributes,
+                    slots, indices);
             classDataBuilder.reserveParentAccessor(parent, part);
         });
 
+        // records are copied in the factory, as all fields are set in the constructor
+        if (type.isRecord()) {
+            for (ModelAttribute attribute : attributes) {
+                if (attribute.access().getter() instanceof AttributeAccess.CustomGetter<?>)
+                    classDataBuilder.reserveGetter(attribute);
+            }
+        }
+
+        // records and enums are read from buffers in the factory
+        if (type.isRecord() || type.isEnum()) {
+            for (ModelAttribute attribute : attributes) {
+                if (!attribute.primitive()) classDataBuilder.reserveEncoding(attribute);
+            }
+        }
+
         ClassData classData = classDataBuilder.build();
 
         Type sourceT = Type.getType(type);
@@ -67,17 +97,45 @@ final class ObjectFactoryGenerator {
         cw.visit(V21, ACC_PUBLIC, thisT.getInternalName(), null,
                 Type.getInternalName(ObjectFactory.class), new String[0]);
 
+        Type containerT = Type.getType(ModelDataContainer.class);
+        Type bufferT = Type.getType(ByteBuffer.class);
+        BiConsumer<GeneratorAdapter, ModelAttribute> readFromContainer = (ga, attribute) ->
+                ObjectFactoryPartGenerator.visitReadFromContainer(ga, attribute, slots.get(attribute));
+        BiConsumer<GeneratorAdapter, ModelAttribute> readFromBuffer = (ga, attribute) ->
+                ObjectFactoryPartGenerator.visitReadFromBuffer(ga, thisT, attribute, classData);
+
         visitConstructor(cw);
-        visitWriteMethod(cw, thisT, attributesByParent, classData);
+        visitWriteMethod(cw, thisT, containerT, attributesByParent, classData);
+        if (type.isEnum()) visitWriteToBufferForEnum(cw);
+        else visitWriteMethod(cw, thisT, bufferT, attributesByParent, classData);
 
         if (type.isRecord()) {
-            visitReadForRecord(cw, sourceT, List.of(classModel.getAttributes()));
+            visitReadForRecord(cw, sourceT, containerT, List.of(attributes), readFromContainer);
+            visitReadForRecord(cw, sourceT, bufferT, List.of(attributes), readFromBuffer);
         } else if (type.isEnum()) {
-            visitReadForEnum(cw, sourceT, thisT, classModel.getAttributes()[0], classData);
+            visitReadForEnum(cw, sourceT, thisT, containerT, attributes[0], readFromContainer, classData);
+            visitReadForEnum(cw, sourceT, thisT, bufferT, attributes[0], readFromBuffer, classData);
         } else {
-            visitReadMethod(cw, sourceT, thisT, constructionMethod, attributesByParent, classData);
+            visitReadMethod(cw, sourceT, thisT, containerT, constructionMethod, attributesByParent, classData);
+            visitReadMethod(cw, sourceT, thisT, bufferT, constructionMethod, attributesByParent, classData);
         }
 
+        if (type.isRecord()) {
+            visitCopyForRecord(cw, sourceT, thisT, List.of(attributes), classData);
+        } else if (type.isEnum()) {
+            visitCopyForEnum(cw);
+        } else {
+            visitCopyMethod(cw, sourceT, thisT, constructionMethod, attributesByParent, classData);
+        }
+
+        // records and enums can not be created before their attributes are known
+        if (!type.isRecord() && !type.isEnum()) {
+            visitNewInstanceMethod(cw, sourceT, thisT, constructionMethod, classData);
+            visitReadToInstanceMethod(cw, thisT, attributesByParent, classData);
+        }
+
+        visitDiffMethod(cw, thisT, attributesByParent, classData);
+
         classData.visitFields(cw);
         classData.visitStaticBlock(thisT, cw);
         cw.visitEnd();
@@ -107,34 +165,34 @@ final class ObjectFactoryGenerator {
     }
 
     /**
-     * Visits the {@link ObjectFactory#write(Object)} method.
+     * Visits the {@link ObjectFactory#write(Object, ModelDataContainer)} or
+     * {@link ObjectFactory#write(Object, ByteBuffer)} method.
      *
      * @param cv class visitor
      * @param thisT type of the class this visitor is for
+     * @param dataT type of the data target, model data container or byte buffer
      * @param attributesByParent attributes mapped by parent classes
      * @param classData class data
      */
-    private static void visitWriteMethod(ClassVisitor cv, Type thisT,
+    private static void visitWriteMethod(ClassVisitor cv, Type thisT, Type dataT,
                                          Map<Class<?>, List<ModelAttribute>> attributesByParent,
                                          ClassData classData) {
-        Method writeMethod = new Method(WRITE_METHOD_NAME, Type.getType(ModelDataContainer.class),
-                new Type[]{Type.getType(Object.class)});
+        Method writeMethod = new Method(WRITE_METHOD_NAME, Type.VOID_TYPE,
+                new Type[]{Type.getType(Object.class), dataT});
         GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, writeMethod, null, null, cv);
         ga.visitCode();
 
-        ga.loadThis();
-        ga.invokeVirtual(Type.getType(ObjectFactory.class), new Method(NEW_CONTAINER_METHOD_NAME,
-                Type.getMethodDescriptor(Type.getType(ModelDataContainer.class))));
+        if (dataT.equals(Type.getType(ModelDataContainer.class))) {
+            ga.loadArg(1);
+            ga.invokeVirtual(dataT, new Method(RESET_METHOD_NAME, Type.getMethodDescriptor(Type.VOID_TYPE)));
+        }
 
         for (Class<?> parent : attributesByParent.keySet()) {
-            ga.dup();
             classData.loadOnStack(thisT, ga, classData.parentAccessorIdx(parent));
-            ga.swap();
             ga.loadArg(0);
-            ga.swap();
+            ga.loadArg(1);
             ga.invokeInterface(Type.getType(ObjectFactory.ObjectFactoryPart.class),
-                    new Method(WRITE_METHOD_NAME, Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
-                            Type.getType(ModelDataContainer.class)}));
+                    new Method(WRITE_METHOD_NAME, Type.VOID_TYPE, new Type[]{Type.getType(Object.class), dataT}));
         }
 
         ga.returnValue();
@@ -142,24 +200,79 @@ final class ObjectFactoryGenerator {
     }
 
     /**
-     * Visits the {@link ObjectFactory#read(ModelDataContainer)} method.
+     * Visits the {@link ObjectFactory#write(Object, ByteBuffer)} method for enum classes.
+     * <p>
+     * Enums are resolved by name when read, so only the name of the constant is written.
+     *
+     * @param cv class visitor
+     */
+    private static void visitWriteToBufferForEnum(ClassVisitor cv) {
+        Type bufferT = Type.getType(ByteBuffer.class);
+        Method writeMethod = new Method(WRITE_METHOD_NAME, Type.VOID_TYPE,
+                new Type[]{Type.getType(Object.class), bufferT});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, writeMethod, null, null, cv);
+        ga.visitCode();
+
+        ga.loadArg(1);
+        ga.loadArg(0);
+        ga.checkCast(Type.getType(Enum.class));
+        ga.invokeVirtual(Type.getType(Enum.class), new Method("name", Type.getType(String.class), new Type[0]));
+        ga.push(Type.getType(String.class));
+        ga.invokeStatic(Type.getType(BufferValues.class), new Method("writeObject", Type.VOID_TYPE,
+                new Type[]{bufferT, Type.getType(Object.class), Type.getType(Class.class)}));
+
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Visits the {@link ObjectFactory#read(ModelDataContainer)} or {@link ObjectFactory#read(ByteBuffer)} method.
      *
      * @param cv class visitor
      * @param sourceT type of the class this factory is for
      * @param thisT type of the class this visitor is for
+     * @param dataT type of the data source, model data container or byte buffer
      * @param constructionMethod construction method used by the class model
      * @param attributesByParent attributes mapped by parent classes
      * @param classData class data
      */
-    private static void visitReadMethod(ClassVisitor cv, Type sourceT, Type thisT,
+    private static void visitReadMethod(ClassVisitor cv, Type sourceT, Type thisT, Type dataT,
                                         ClassModel.ConstructionMethod constructionMethod,
                                         Map<Class<?>, List<ModelAttribute>> attributesByParent,
                                         ClassData classData) {
-        Method readMethod = new Method(READ_METHOD_NAME, Type.getType(Object.class),
-                new Type[]{Type.getType(ModelDataContainer.class)});
+        Method readMethod = new Method(READ_METHOD_NAME, Type.getType(Object.class), new Type[]{dataT});
         GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, readMethod, null, null, cv);
         ga.visitCode();
 
+        visitNewInstance(ga, sourceT, thisT, constructionMethod, classData);
+
+        for (Class<?> parent : attributesByParent.keySet()) {
+            ga.dup();
+            classData.loadOnStack(thisT, ga, classData.parentAccessorIdx(parent));
+            ga.swap();
+            ga.loadArg(0);
+            ga.swap();
+            ga.invokeInterface(Type.getType(ObjectFactory.ObjectFactoryPart.class),
+                    new Method(READ_METHOD_NAME, Type.VOID_TYPE, new Type[]{dataT, Type.getType(Object.class)}));
+        }
+
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Creates new instance of the class using its construction method.
+     * <p>
+     * Leaves the instance on the stack.
+     *
+     * @param ga generator adapter
+     * @param sourceT type of the class this factory is for
+     * @param thisT type of the class this visitor is for
+     * @param constructionMethod construction method used by the class model
+     * @param classData class data
+     */
+    private static void visitNewInstance(GeneratorAdapter ga, Type sourceT, Type thisT,
+                                         ClassModel.ConstructionMethod constructionMethod, ClassData classData) {
         if (constructionMethod instanceof ClassModel.NoArgsConstructor) {
             ga.newInstance(sourceT);
             ga.dup();
@@ -169,16 +282,49 @@ final class ObjectFactoryGenerator {
             ga.invokeInterface(Type.getType(ClassModel.CustomConstructor.class),
                     new Method("get", Type.getType(Object.class), new Type[0]));
         }
+    }
+
+    /**
+     * Visits the {@link ObjectFactory#newInstance()} method.
+     *
+     * @param cv class visitor
+     * @param sourceT type of the class this factory is for
+     * @param thisT type of the class this visitor is for
+     * @param constructionMethod construction method used by the class model
+     * @param classData class data
+     */
+    private static void visitNewInstanceMethod(ClassVisitor cv, Type sourceT, Type thisT,
+                                               ClassModel.ConstructionMethod constructionMethod,
+                                               ClassData classData) {
+        Method newInstanceMethod = new Method("newInstance", Type.getType(Object.class), new Type[0]);
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, newInstanceMethod, null, null, cv);
+        ga.visitCode();
+        visitNewInstance(ga, sourceT, thisT, constructionMethod, classData);
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Visits the {@link ObjectFactory#read(ModelDataContainer, Object)} method.
+     *
+     * @param cv class visitor
+     * @param thisT type of the class this visitor is for
+     * @param attributesByParent attributes mapped by parent classes
+     * @param classData class data
+     */
+    private static void visitReadToInstanceMethod(ClassVisitor cv, Type thisT,
+                                                  Map<Class<?>, List<ModelAttribute>> attributesByParent,
+                                                  ClassData classData) {
+        Type containerT = Type.getType(ModelDataContainer.class);
+        Method readMethod = new Method(READ_METHOD_NAME, Type.VOID_TYPE,
+                new Type[]{containerT, Type.getType(Object.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, readMethod, null, null, cv);
+        ga.visitCode();
 
         for (Class<?> parent : attributesByParent.keySet()) {
-            ga.dup();
             classData.loadOnStack(thisT, ga, classData.parentAccessorIdx(parent));
-            ga.swap();
-            ga.loadArg(0);
-            ga.swap();
-            ga.invokeInterface(Type.getType(ObjectFactory.ObjectFactoryPart.class),
-                    new Method(READ_METHOD_NAME, Type.VOID_TYPE, new Type[]{Type.getType(ModelDataContainer.class),
-                            Type.getType(Object.class)}));
+            ga.loadArgs();
+            ga.invokeInterface(Type.getType(ObjectFactory.ObjectFactoryPart.class), readMethod);
         }
 
         ga.returnValue();
@@ -186,29 +332,32 @@ final class ObjectFactoryGenerator {
     }
 
     /**
-     * Visits the {@link ObjectFactory#read(ModelDataContainer)} method for record classes.
+     * Visits the {@link ObjectFactory#read(ModelDataContainer)} or {@link ObjectFactory#read(ByteBuffer)}
+     * method for record classes.
      * <p>
      * For records this method must call the all argument canonical constructor.
      *
      * @param cv class visitor
      * @param sourceT type of the class this factory is for
-     * @param attributes attributes of the class model (record components)
+     * @param dataT type of the data source, model data container or byte buffer
+     * @param attributes attributes of the class model (record components, flattened records by their components)
+     * @param readValue reads value of the attribute, expects the data source on the stack
      */
-    private static void visitReadForRecord(ClassVisitor cv, Type sourceT, List<ModelAttribute> attributes) {
-        Method readMethod = new Method(READ_METHOD_NAME, Type.getType(Object.class),
-                new Type[]{Type.getType(ModelDataContainer.class)});
+    private static void visitReadForRecord(ClassVisitor cv, Type sourceT, Type dataT,
+                                           List<ModelAttribute> attributes,
+                                           BiConsumer<GeneratorAdapter, ModelAttribute> readValue) {
+        Method readMethod = new Method(READ_METHOD_NAME, Type.getType(Object.class), new Type[]{dataT});
         GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, readMethod, null, null, cv);
         ga.visitCode();
 
         ga.newInstance(sourceT);
         ga.dup();
 
-        for (ModelAttribute attribute : attributes) {
-            ga.loadArg(0);
-            ObjectFactoryPartGenerator.visitReadFromContainer(ga, attribute);
-        }
+        var declared = ObjectFactoryPartGenerator.declaredAttributes(attributes);
+        declared.forEach((attribute, stored) ->
+                ObjectFactoryPartGenerator.visitReadDeclared(ga, attribute, stored, readValue));
 
-        Type[] allArgsParams = attributes.stream()
+        Type[] allArgsParams = declared.keySet().stream()
                 .map(ModelAttribute::type)
                 .map(Type::getType)
                 .toArray(Type[]::new);
@@ -219,26 +368,30 @@ final class ObjectFactoryGenerator {
     }
 
     /**
-     * Visits the {@link ObjectFactory#read(ModelDataContainer)} method for enum classes.
+     * Visits the {@link ObjectFactory#read(ModelDataContainer)} or {@link ObjectFactory#read(ByteBuffer)}
+     * method for enum classes.
      * <p>
-     * For enums this is resolved by the first object element in the container which is always guaranteed to be the
-     * name of the enum constant.
+     * For enums this is resolved by the first object element in the data source which is always guaranteed to be
+     * the name of the enum constant.
      *
      * @param cv class visitor
      * @param sourceT type of the class this factory is for
      * @param thisT type of the class this visitor is for
+     * @param dataT type of the data source, model data container or byte buffer
      * @param nameAttribute attribute of the enum name
+     * @param readValue reads value of the attribute, expects the data source on the stack
      * @param classData class data
      */
-    private static void visitReadForEnum(ClassVisitor cv, Type sourceT, Type thisT, ModelAttribute nameAttribute,
+    private static void visitReadForEnum(ClassVisitor cv, Type sourceT, Type thisT, Type dataT,
+                                         ModelAttribute nameAttribute,
+                                         BiConsumer<GeneratorAdapter, ModelAttribute> readValue,
                                          ClassData classData) {
-        Method readMethod = new Method(READ_METHOD_NAME, Type.getType(Object.class),
-                new Type[]{Type.getType(ModelDataContainer.class)});
+        Method readMethod = new Method(READ_METHOD_NAME, Type.getType(Object.class), new Type[]{dataT});
         GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, readMethod, null, null, cv);
         ga.visitCode();
 
         ga.loadArg(0);
-        ObjectFactoryPartGenerator.visitReadFromContainer(ga, nameAttribute);
+        readValue.accept(ga, nameAttribute);
 
         classData.loadOnStack(thisT, ga, classData.constructorIdx());
         ga.swap();
@@ -250,6 +403,146 @@ final class ObjectFactoryGenerator {
         ga.endMethod();
     }
 
+    /**
+     * Visits the {@link ObjectFactory#diff(Object, Object, long[], ModelDataContainer)} method.
+     *
+     * @param cv class visitor
+     * @param thisT type of the class this visitor is for
+     * @param attributesByParent attributes mapped by parent classes
+     * @param classData class data
+     */
+    private static void visitDiffMethod(ClassVisitor cv, Type thisT,
+                                        Map<Class<?>, List<ModelAttribute>> attributesByParent,
+                                        ClassData classData) {
+        Type[] params = {Type.getType(Object.class), Type.getType(Object.class), Type.getType(long[].class),
+                Type.getType(ModelDataContainer.class)};
+        Method diffMethod = new Method(DIFF_METHOD_NAME, Type.VOID_TYPE, params);
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, diffMethod, null, null, cv);
+        ga.visitCode();
+
+        for (Class<?> parent : attributesByParent.keySet()) {
+            classData.loadOnStack(thisT, ga, classData.parentAccessorIdx(parent));
+            ga.loadArgs();
+            ga.invokeInterface(Type.getType(ObjectFactory.ObjectFactoryPart.class), diffMethod);
+        }
+
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Visits the {@link ObjectFactory#copy(Object, CopyContext)} method.
+     * <p>
+     * The copy is registered to the context before its attributes are copied,
+     * so cyclic references to it resolve to the copy.
+     *
+     * @param cv class visitor
+     * @param sourceT type of the class this factory is for
+     * @param thisT type of the class this visitor is for
+     * @param constructionMethod construction method used by the class model
+     * @param attributesByParent attributes mapped by parent classes
+     * @param classData class data
+     */
+    private static void visitCopyMethod(ClassVisitor cv, Type sourceT, Type thisT,
+                                        ClassModel.ConstructionMethod constructionMethod,
+                                        Map<Class<?>, List<ModelAttribute>> attributesByParent,
+                                        ClassData classData) {
+        Type contextT = Type.getType(CopyContext.class);
+        Method copyMethod = new Method(COPY_METHOD_NAME, Type.getType(Object.class),
+                new Type[]{Type.getType(Object.class), contextT});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, copyMethod, null, null, cv);
+        ga.visitCode();
+
+        visitNewInstance(ga, sourceT, thisT, constructionMethod, classData);
+        visitRegisterCopy(ga);
+
+        for (Class<?> parent : attributesByParent.keySet()) {
+            ga.dup();
+            classData.loadOnStack(thisT, ga, classData.parentAccessorIdx(parent));
+            ga.swap();
+            ga.loadArg(0);
+            ga.swap();
+            ga.loadArg(1);
+            ga.invokeInterface(Type.getType(ObjectFactory.ObjectFactoryPart.class),
+                    new Method(COPY_METHOD_NAME, Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
+                            Type.getType(Object.class), contextT}));
+        }
+
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Visits the {@link ObjectFactory#copy(Object, CopyContext)} method for record classes.
+     * <p>
+     * For records this method must call the all argument canonical constructor.
+     *
+     * @param cv class visitor
+     * @param sourceT type of the class this factory is for
+     * @param thisT type of the class this visitor is for
+     * @param attributes attributes of the class model (record components, flattened records by their components)
+     * @param classData class data
+     */
+    private static void visitCopyForRecord(ClassVisitor cv, Type sourceT, Type thisT,
+                                           List<ModelAttribute> attributes, ClassData classData) {
+        Method copyMethod = new Method(COPY_METHOD_NAME, Type.getType(Object.class),
+                new Type[]{Type.getType(Object.class), Type.getType(CopyContext.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, copyMethod, null, null, cv);
+        ga.visitCode();
+
+        ga.newInstance(sourceT);
+        ga.dup();
+
+        // flattened records are copied as a whole
+        var declared = ObjectFactoryPartGenerator.declaredAttributes(attributes).keySet();
+        for (ModelAttribute attribute : declared)
+            ObjectFactoryPartGenerator.visitCopyValue(ga, sourceT, thisT, attribute, classData);
+
+        Type[] allArgsParams = declared.stream()
+                .map(ModelAttribute::type)
+                .map(Type::getType)
+                .toArray(Type[]::new);
+
+        ga.invokeConstructor(sourceT, new Method(ConstantDescs.INIT_NAME, Type.VOID_TYPE, allArgsParams));
+        visitRegisterCopy(ga);
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Visits the {@link ObjectFactory#copy(Object, CopyContext)} method for enum classes.
+     * <p>
+     * Enums are constants, the copied instance is returned.
+     *
+     * @param cv class visitor
+     */
+    private static void visitCopyForEnum(ClassVisitor cv) {
+        Method copyMethod = new Method(COPY_METHOD_NAME, Type.getType(Object.class),
+                new Type[]{Type.getType(Object.class), Type.getType(CopyContext.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, copyMethod, null, null, cv);
+        ga.visitCode();
+        ga.loadArg(0);
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Registers the copy to the copy context.
+     * <p>
+     * Expects the copy on the stack, and keeps it there.
+     *
+     * @param ga generator adapter
+     */
+    private static void visitRegisterCopy(GeneratorAdapter ga) {
+        ga.dup();
+        ga.loadArg(1);
+        ga.swap();
+        ga.loadArg(0);
+        ga.swap();
+        ga.invokeVirtual(Type.getType(CopyContext.class), new Method("register", Type.VOID_TYPE,
+                new Type[]{Type.getType(Object.class), Type.getType(Object.class)}));
+    }
+
     /**
      * Defines new anonymous nestmate class using private lookup in {@code target} with given data.
      * <p>
@@ -3,14 +3,22 @@ package org.machinemc.foundry.model;
 import org.machinemc.foundry.util.ASMUtil;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.GeneratorAdapter;
 import org.objectweb.asm.commons.Method;
 
 import java.lang.constant.ConstantDescs;
+import java.lang.reflect.RecordComponent;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
 
 import static org.objectweb.asm.Opcodes.*;
 
@@ -23,7 +31,8 @@ final class ObjectFactoryPartGenerator {
     /**
      * Generates object factory part for objects of given parent type.
      * <p>
-     * This object factory part (de)constructs all attributes within this parent part.
+     * This object factory part (de)constructs all attributes within this parent part, both
+     * from and to a model data container and a byte buffer.
      *
      * @param type type of the parent, containing the attributes to access
      * @param includeWrite whether the {@link ObjectFactory.ObjectFactoryPart#write(Object)} should be implemented
@@ -31,11 +40,15 @@ final class ObjectFactoryPartGenerator {
      *                    implemented, this is {@code false} for records, as their attributes get set during the
      *                    creation, not after, and also for enums, as they are constants resolved by name.
      * @param attributes attributes to access in this part (attributes of the parent class)
+     * @param slots slots of the attributes in the model data container
+     * @param indices indices of the attributes in the class model
      * @return object factory
      */
     static <T> ObjectFactory.ObjectFactoryPart<T> generatePart(Class<?> type,
                                                                boolean includeWrite, boolean includeRead,
-                                                               List<ModelAttribute> attributes) {
+                                                               List<ModelAttribute> attributes,
+                                                               Map<ModelAttribute, Integer> slots,
+                                                               Map<ModelAttribute, Integer> indices) {
         Type sourceT = Type.getType(type);
         Type thisT = Type.getObjectType(sourceT.getInternalName() + "$ObjectFactoryPart");
 
@@ -56,6 +69,8 @@ final class ObjectFactoryPartGenerator {
                 builder.reserveGetter(attribute);
             if (attribute.access().setter() instanceof AttributeAccess.CustomSetter<?>)
                 builder.reserveSetter(attribute);
+            if (!attribute.primitive())
+                builder.reserveEncoding(attribute);
         }
         ClassData classData = builder.build();
 
@@ -66,19 +81,37 @@ final class ObjectFactoryPartGenerator {
         visitDefaultConstructor(cw);
 
         if (includeWrite) {
-            visitWriteMethod(cw, sourceT, thisT, attributes, classData);
+            visitWriteMethod(cw, sourceT, thisT, attributes, slots, classData);
+            visitWriteToBufferMethod(cw, sourceT, thisT, attributes, classData);
         } else {
             visitEmptyMethod(cw, "write", Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
                     Type.getType(ModelDataContainer.class)});
+            visitEmptyMethod(cw, "write", Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
+                    Type.getType(ByteBuffer.class)});
         }
 
         if (includeRead) {
-            visitReadMethod(cw, sourceT, thisT, attributes, classData);
+            visitReadMethod(cw, sourceT, thisT, attributes, Type.getType(ModelDataContainer.class),
+                    (ga, attribute) -> visitReadFromContainer(ga, attribute, slots.get(attribute)), classData);
+            Type partT = thisT;
+            visitReadMethod(cw, sourceT, thisT, attributes, Type.getType(ByteBuffer.class),
+                    (ga, attribute) -> visitReadFromBuffer(ga, partT, attribute, classData), classData);
         } else {
             visitEmptyMethod(cw, "read", Type.VOID_TYPE, new Type[]{Type.getType(ModelDataContainer.class),
                     Type.getType(Object.class)});
+            visitEmptyMethod(cw, "read", Type.VOID_TYPE, new Type[]{Type.getType(ByteBuffer.class),
+                    Type.getType(Object.class)});
         }
 
+        if (includeRead) {
+            visitCopyMethod(cw, sourceT, thisT, attributes, classData);
+        } else {
+            visitEmptyMethod(cw, "copy", Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
+                    Type.getType(Object.class), Type.getType(CopyContext.class)});
+        }
+
+        visitDiffMethod(cw, sourceT, thisT, attributes, slots, indices, classData);
+
         classData.visitFields(cw);
         classData.visitStaticBlock(thisT, cw);
         cw.visitEnd();
@@ -123,10 +156,12 @@ final class ObjectFactoryPartGenerator {
      * @param sourceT type of the class this factory is for
      * @param thisT type of the class this visitor is for
      * @param attributes attributes to write
+     * @param slots slots of the attributes in the model data container
      * @param classData class data
      */
     private static void visitWriteMethod(ClassVisitor cv, Type sourceT, Type thisT,
-                                         List<ModelAttribute> attributes, ClassData classData) {
+                                         List<ModelAttribute> attributes, Map<ModelAttribute, Integer> slots,
+                                         ClassData classData) {
         Method write = new Method("write", Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
                 Type.getType(ModelDataContainer.class)});
         GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, write, null, null, cv);
@@ -134,6 +169,7 @@ final class ObjectFactoryPartGenerator {
 
         for (ModelAttribute attribute : attributes) {
             ga.loadArg(1);
+            ASMUtil.push(ga, slots.get(attribute));
             ga.loadArg(0);
             ga.checkCast(sourceT);
 
@@ -146,7 +182,7 @@ final class ObjectFactoryPartGenerator {
     }
 
     /**
-     * Visits the {@link ObjectFactory.ObjectFactoryPart#read(ModelDataContainer, Object)} method.
+     * Visits the {@link ObjectFactory.ObjectFactoryPart#write(Object, ByteBuffer)} method.
      *
      * @param cv class visitor
      * @param sourceT type of the class this factory is for
@@ -154,19 +190,50 @@ final class ObjectFactoryPartGenerator {
      * @param attributes attributes to write
      * @param classData class data
      */
-    private static void visitReadMethod(ClassVisitor cv, Type sourceT, Type thisT,
-                                        List<ModelAttribute> attributes, ClassData classData) {
-        Method read = new Method("read", Type.VOID_TYPE,
-                new Type[]{Type.getType(ModelDataContainer.class),Type.getType(Object.class)});
-        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, read, null, null, cv);
+    private static void visitWriteToBufferMethod(ClassVisitor cv, Type sourceT, Type thisT,
+                                                 List<ModelAttribute> attributes, ClassData classData) {
+        Method write = new Method("write", Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
+                Type.getType(ByteBuffer.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, write, null, null, cv);
         ga.visitCode();
 
         for (ModelAttribute attribute : attributes) {
+            ga.loadArg(1);
             ga.loadArg(0);
-            visitReadFromContainer(ga, attribute);
+            ga.checkCast(sourceT);
+
+            visitLoadValueFromInstance(ga, sourceT, thisT, attribute, classData);
+            visitWriteToBuffer(ga, thisT, attribute, classData);
         }
 
-        List<ModelAttribute> onStack = new ArrayList<>(attributes);
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Visits the {@link ObjectFactory.ObjectFactoryPart#read(ModelDataContainer, Object)} or
+     * {@link ObjectFactory.ObjectFactoryPart#read(ByteBuffer, Object)} method.
+     *
+     * @param cv class visitor
+     * @param sourceT type of the class this factory is for
+     * @param thisT type of the class this visitor is for
+     * @param attributes attributes to write
+     * @param dataT type of the data source, model data container or byte buffer
+     * @param readValue reads value of the attribute, expects the data source on the stack
+     * @param classData class data
+     */
+    private static void visitReadMethod(ClassVisitor cv, Type sourceT, Type thisT,
+                                        List<ModelAttribute> attributes, Type dataT,
+                                        BiConsumer<GeneratorAdapter, ModelAttribute> readValue,
+                                        ClassData classData) {
+        Method read = new Method("read", Type.VOID_TYPE, new Type[]{dataT, Type.getType(Object.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, read, null, null, cv);
+        ga.visitCode();
+
+        Map<ModelAttribute, List<ModelAttribute>> declared = declaredAttributes(attributes);
+        declared.forEach((attribute, stored) -> visitReadDeclared(ga, attribute, stored, readValue));
+
+        List<ModelAttribute> onStack = new ArrayList<>(declared.keySet());
         Collections.reverse(onStack);
 
         for (ModelAttribute attribute : onStack) {
@@ -186,6 +253,202 @@ final class ObjectFactoryPartGenerator {
         ga.endMethod();
     }
 
+    /**
+     * Groups components of flattened records back under the attributes holding the records.
+     *
+     * @param attributes attributes of the class model
+     * @return attributes as declared in their classes, mapped to the attributes of the class model
+     *         they are stored as, in the order of the class model
+     * @see Flatten
+     */
+    static Map<ModelAttribute, List<ModelAttribute>> declaredAttributes(List<ModelAttribute> attributes) {
+        Map<ModelAttribute, List<ModelAttribute>> declared = new LinkedHashMap<>();
+        for (ModelAttribute attribute : attributes) {
+            ModelAttribute outer = attribute.access().getter() instanceof AttributeAccess.Flattened flattened
+                    ? flattened.outer()
+                    : attribute;
+            declared.computeIfAbsent(outer, _ -> new ArrayList<>()).add(attribute);
+        }
+        return declared;
+    }
+
+    /**
+     * Reads the value of attribute as declared in its class, flattened records are
+     * created from their components using the canonical constructor.
+     * <p>
+     * Expects the data source as the first argument of the method and leaves the value on the stack.
+     *
+     * @param ga generator adapter
+     * @param declared attribute as declared in its class
+     * @param stored attributes of the class model the attribute is stored as
+     * @param readValue reads value of the attribute, expects the data source on the stack
+     */
+    static void visitReadDeclared(GeneratorAdapter ga, ModelAttribute declared, List<ModelAttribute> stored,
+                                  BiConsumer<GeneratorAdapter, ModelAttribute> readValue) {
+        if (stored.size() == 1 && stored.get(0) == declared) {
+            ga.loadArg(0);
+            readValue.accept(ga, declared);
+            return;
+        }
+        Type recordT = Type.getType(declared.type());
+        ga.newInstance(recordT);
+        ga.dup();
+        for (ModelAttribute component : stored) {
+            ga.loadArg(0);
+            readValue.accept(ga, component);
+        }
+        Type[] params = stored.stream()
+                .map(ModelAttribute::type)
+                .map(Type::getType)
+                .toArray(Type[]::new);
+        ga.invokeConstructor(recordT, new Method(ConstantDescs.INIT_NAME, Type.VOID_TYPE, params));
+    }
+
+    /**
+     * Visits the {@link ObjectFactory.ObjectFactoryPart#copy(Object, Object, CopyContext)} method.
+     *
+     * @param cv class visitor
+     * @param sourceT type of the class this factory is for
+     * @param thisT type of the class this visitor is for
+     * @param attributes attributes to copy
+     * @param classData class data
+     */
+    private static void visitCopyMethod(ClassVisitor cv, Type sourceT, Type thisT,
+                                        List<ModelAttribute> attributes, ClassData classData) {
+        Method copy = new Method("copy", Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
+                Type.getType(Object.class), Type.getType(CopyContext.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, copy, null, null, cv);
+        ga.visitCode();
+
+        // flattened records are copied as a whole
+        for (ModelAttribute attribute : declaredAttributes(attributes).keySet()) {
+            if (!(attribute.access().setter() instanceof AttributeAccess.CustomSetter<?>)) {
+                ga.loadArg(1);
+                ga.checkCast(sourceT);
+            }
+            visitCopyValue(ga, sourceT, thisT, attribute, classData);
+            visitStoreValueToInstance(ga, Type.getType(attribute.source()), thisT, attribute, classData);
+        }
+
+        ga.returnValue();
+        ga.endMethod();
+    }
+
+    /**
+     * Loads a value of given attribute of the source instance and copies it
+     * using the copy context if it is an object.
+     * <p>
+     * Expects the source instance as the first argument and the copy context
+     * as the last argument of the method.
+     *
+     * @param ga generator adapter
+     * @param sourceT type of the class this factory is for
+     * @param thisT type of the class this visitor is for
+     * @param attribute attribute to copy
+     * @param classData class data
+     */
+    static void visitCopyValue(GeneratorAdapter ga, Type sourceT, Type thisT, ModelAttribute attribute,
+                               ClassData classData) {
+        Type contextT = Type.getType(CopyContext.class);
+        if (!attribute.primitive()) ga.loadArg(ga.getArgumentTypes().length - 1);
+        ga.loadArg(0);
+        ga.checkCast(sourceT);
+        visitLoadValueFromInstance(ga, sourceT, thisT, attribute, classData);
+        if (attribute.primitive()) return;
+        ga.invokeVirtual(contextT, new Method("copy", Type.getType(Object.class),
+                new Type[]{Type.getType(Object.class)}));
+        ga.checkCast(Type.getType(attribute.type()));
+    }
+
+    /**
+     * Visits the {@link ObjectFactory.ObjectFactoryPart#diff(Object, Object, long[], ModelDataContainer)} method.
+     * <p>
+     * Primitive attributes are compared by value, floating point attributes
+     * as by {@link Float#compare(float, float)}, and object attributes using
+     * {@link java.util.Objects#equals(Object, Object)}. Arrays are compared by their contents,
+     * as snapshots and decoded objects never share them. Current values of the changed attributes
+     * are written to the container, if present.
+     *
+     * @param cv class visitor
+     * @param sourceT type of the class this factory is for
+     * @param thisT type of the class this visitor is for
+     * @param attributes attributes to compare
+     * @param slots slots of the attributes in the model data container
+     * @param indices indices of the attributes in the class model
+     * @param classData class data
+     */
+    private static void visitDiffMethod(ClassVisitor cv, Type sourceT, Type thisT, List<ModelAttribute> attributes,
+                                        Map<ModelAttribute, Integer> slots, Map<ModelAttribute, Integer> indices,
+                                        ClassData classData) {
+        Method diff = new Method("diff", Type.VOID_TYPE, new Type[]{Type.getType(Object.class),
+                Type.getType(Object.class), Type.getType(long[].class), Type.getType(ModelDataContainer.class)});
+        GeneratorAdapter ga = new GeneratorAdapter(ACC_PUBLIC, diff, null, null, cv);
+        ga.visitCode();
+
+        for (ModelAttribute attribute : attributes) {
+            Label unchanged = ga.newLabel();
+            Class<?> arrayType = !attribute.type().isArray() ? null
+                    : attribute.type().getComponentType().isPrimitive() ? attribute.type() : Object[].class;
+            for (int arg = 0; arg < 2; arg++) {
+                ga.loadArg(arg);
+                ga.checkCast(sourceT);
+                visitLoadValueFromInstance(ga, sourceT, thisT, attribute, classData);
+                if (arrayType != null) ga.checkCast(Type.getType(arrayType));
+            }
+            if (arrayType != null) {
+                Type arrayT = Type.getType(arrayType);
+                String equals = arrayType == Object[].class ? "deepEquals" : "equals";
+                ga.invokeStatic(Type.getType(Arrays.class), new Method(equals, Type.BOOLEAN_TYPE,
+                        new Type[]{arrayT, arrayT}));
+                ga.ifZCmp(GeneratorAdapter.NE, unchanged);
+            } else {
+                switch (ContainerTypeMapping.of(attribute.type())) {
+                    case FLOAT -> {
+                        ga.invokeStatic(Type.getType(Float.class), new Method("compare", Type.INT_TYPE,
+                                new Type[]{Type.FLOAT_TYPE, Type.FLOAT_TYPE}));
+                        ga.ifZCmp(GeneratorAdapter.EQ, unchanged);
+                    }
+                    case DOUBLE -> {
+                        ga.invokeStatic(Type.getType(Double.class), new Method("compare", Type.INT_TYPE,
+                                new Type[]{Type.DOUBLE_TYPE, Type.DOUBLE_TYPE}));
+                        ga.ifZCmp(GeneratorAdapter.EQ, unchanged);
+                    }
+                    case LONG -> ga.ifCmp(Type.LONG_TYPE, GeneratorAdapter.EQ, unchanged);
+                    case OBJECT -> {
+                        ga.invokeStatic(Type.getType(Objects.class), new Method("equals", Type.BOOLEAN_TYPE,
+                                new Type[]{Type.getType(Object.class), Type.getType(Object.class)}));
+                        ga.ifZCmp(GeneratorAdapter.NE, unchanged);
+                    }
+                    default -> ga.ifICmp(GeneratorAdapter.EQ, unchanged);
+                }
+            }
+
+            // changed[index >>> 6] |= 1L << index
+            int index = indices.get(attribute);
+            ga.loadArg(2);
+            ASMUtil.push(ga, index >>> 6);
+            ga.dup2();
+            ga.arrayLoad(Type.LONG_TYPE);
+            ga.push(1L << index);
+            ga.math(GeneratorAdapter.OR, Type.LONG_TYPE);
+            ga.arrayStore(Type.LONG_TYPE);
+
+            // if (values != null) values.setX(slot, current.value)
+            ga.loadArg(3);
+            ga.ifNull(unchanged);
+            ga.loadArg(3);
+            ASMUtil.push(ga, slots.get(attribute));
+            ga.loadArg(1);
+            ga.checkCast(sourceT);
+            visitLoadValueFromInstance(ga, sourceT, thisT, attribute, classData);
+            visitWriteToContainer(ga, attribute);
+            ga.mark(unchanged);
+        }
+
+        ga.returnValue();
+        ga.endMethod();
+    }
+
     /**
      * Loads a value of given attribute depending on its getter.
      *
@@ -205,6 +468,12 @@ final class ObjectFactoryPartGenerator {
                 if (attribute.source().isInterface()) ga.invokeInterface(sourceT, method);
                 else ga.invokeVirtual(sourceT, method);
             }
+            case AttributeAccess.Flattened flattened -> {
+                visitLoadValueFromInstance(ga, sourceT, thisT, flattened.outer(), classData);
+                RecordComponent component = flattened.reflect();
+                ga.invokeVirtual(Type.getType(flattened.outer().type()), new Method(component.getAccessor().getName(),
+                        Type.getType(component.getType()), new Type[0]));
+            }
             case AttributeAccess.CustomGetter<?> _ -> {
                 classData.loadOnStack(thisT, ga, classData.getterIdx(attribute));
                 ga.swap();
@@ -217,31 +486,118 @@ final class ObjectFactoryPartGenerator {
 
     /**
      * Writes the value of attribute to a model data container.
+     * <p>
+     * Expects the container, slot of the attribute and the value on the stack.
      *
      * @param ga generator adapter
      * @param attribute model attribute to write
      */
     private static void visitWriteToContainer(GeneratorAdapter ga, ModelAttribute attribute) {
         ContainerTypeMapping mapping = ContainerTypeMapping.of(attribute.type());
-        Method writeMethod = new Method(mapping.writeMethod, Type.VOID_TYPE, new Type[]{mapping.asmType});
-        ga.invokeVirtual(Type.getType(ModelDataContainer.class), writeMethod);
+        Method setMethod = new Method(mapping.setMethod, Type.VOID_TYPE, new Type[]{Type.INT_TYPE, mapping.asmType});
+        ga.invokeVirtual(Type.getType(ModelDataContainer.class), setMethod);
     }
 
     /**
      * Reads the value of attribute from a model data container.
+     * <p>
+     * Expects the container on the stack.
      *
      * @param ga generator adapter
      * @param attribute model attribute to read
+     * @param slot slot of the attribute in the container
      */
-    static void visitReadFromContainer(GeneratorAdapter ga, ModelAttribute attribute) {
+    static void visitReadFromContainer(GeneratorAdapter ga, ModelAttribute attribute, int slot) {
         ContainerTypeMapping mapping = ContainerTypeMapping.of(attribute.type());
-        Method readMethod = new Method(mapping.readMethod, mapping.asmType, new Type[0]);
-        ga.invokeVirtual(Type.getType(ModelDataContainer.class), readMethod);
+        Method getMethod = new Method(mapping.getMethod, mapping.asmType, new Type[]{Type.INT_TYPE});
+        ASMUtil.push(ga, slot);
+        ga.invokeVirtual(Type.getType(ModelDataContainer.class), getMethod);
         if (!attribute.primitive()) {
             ga.checkCast(Type.getType(attribute.type()));
         }
     }
 
+    /**
+     * Writes the value of attribute to a byte buffer.
+     * <p>
+     * Expects the buffer and the value on the stack. Object attributes are written
+     * using their value encoding from the class data.
+     *
+     * @param ga generator adapter
+     * @param thisT type of the class this visitor is for
+     * @param attribute model attribute to write
+     * @param classData class data
+     */
+    private static void visitWriteToBuffer(GeneratorAdapter ga, Type thisT, ModelAttribute attribute,
+                                           ClassData classData) {
+        ContainerTypeMapping mapping = ContainerTypeMapping.of(attribute.type());
+        Type bufferT = Type.getType(ByteBuffer.class);
+        switch (mapping) {
+            case BOOLEAN -> {
+                ga.invokeVirtual(bufferT, new Method("put", bufferT, new Type[]{Type.BYTE_TYPE}));
+                ga.pop();
+            }
+            case OBJECT -> {
+                classData.loadOnStack(thisT, ga, classData.encodingIdx(attribute));
+                ga.invokeStatic(Type.getType(BufferValues.class), new Method("writeObject", Type.VOID_TYPE,
+                        new Type[]{bufferT, Type.getType(Object.class), Type.getType(ValueEncoding.class)}));
+            }
+            default -> {
+                ga.invokeVirtual(bufferT, new Method("put" + bufferSuffix(mapping), bufferT,
+                        new Type[]{mapping.asmType}));
+                ga.pop();
+            }
+        }
+    }
+
+    /**
+     * Reads the value of attribute from a byte buffer.
+     * <p>
+     * Expects the buffer on the stack. Object attributes are read using their
+     * value encoding from the class data.
+     *
+     * @param ga generator adapter
+     * @param thisT type of the class this visitor is for
+     * @param attribute model attribute to read
+     * @param classData class data
+     */
+    static void visitReadFromBuffer(GeneratorAdapter ga, Type thisT, ModelAttribute attribute, ClassData classData) {
+        ContainerTypeMapping mapping = ContainerTypeMapping.of(attribute.type());
+        Type bufferT = Type.getType(ByteBuffer.class);
+        Type valuesT = Type.getType(BufferValues.class);
+        switch (mapping) {
+            case BOOLEAN -> ga.invokeStatic(valuesT, new Method("readBool", Type.BOOLEAN_TYPE,
+                    new Type[]{bufferT}));
+            case OBJECT -> {
+                classData.loadOnStack(thisT, ga, classData.encodingIdx(attribute));
+                ga.invokeStatic(valuesT, new Method("readObject", Type.getType(Object.class),
+                        new Type[]{bufferT, Type.getType(ValueEncoding.class)}));
+                ga.checkCast(Type.getType(attribute.type()));
+            }
+            default -> ga.invokeVirtual(bufferT, new Method("get" + bufferSuffix(mapping), mapping.asmType,
+                    new Type[0]));
+        }
+    }
+
+    /**
+     * Returns suffix of the {@link ByteBuffer} get and put methods for given primitive mapping.
+     *
+     * @param mapping primitive type mapping
+     * @return method suffix
+     */
+    private static String bufferSuffix(ContainerTypeMapping mapping) {
+        return switch (mapping) {
+            case BYTE -> "";
+            case CHAR -> "Char";
+            case SHORT -> "Short";
+            case INT -> "Int";
+            case LONG -> "Long";
+            case FLOAT -> "Float";
+            case DOUBLE -> "Double";
+            case BOOLEAN, OBJECT -> throw new IllegalArgumentException(mapping + " has no buffer method");
+        };
+    }
+
     /**
      * Stores the value on the object instance (writes the value from container to the unfinished object).
      *
@@ -272,6 +628,8 @@ final class ObjectFactoryPartGenerator {
                 ga.invokeInterface(Type.getType(mapping.customSetter), new Method("set", Type.VOID_TYPE,
                         new Type[]{Type.getType(Object.class), mapping.asmType}));
             }
+            case AttributeAccess.Flattened _ -> throw new IllegalStateException("Flattened attribute "
+                    + attribute.name() + " is stored with its record");
             case null -> throw new IllegalStateException("Expected setter for " + attribute.name());
         }
     }
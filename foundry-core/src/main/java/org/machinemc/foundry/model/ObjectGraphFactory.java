@@ -0,0 +1,384 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deconstructs whole object graphs into a {@link ModelDataGraph} and reconstructs them back,
+ * each in a single pass.
+ * <p>
+ * The object factories of all nested model types reachable from the root type are resolved
+ * eagerly when the graph factory is created. An object attribute is a nested model if its declared
+ * type is a record, or a concrete class with a no arguments constructor outside of the {@code java}
+ * packages whose class model can be built, and its value is exactly of the declared type. All nested
+ * models use their default class models, values of other object attributes are kept as they are.
+ * <p>
+ * With identity preserved, each object is deconstructed only once, objects shared within
+ * the graph stay shared after reconstruction and cycles between standard classes are supported.
+ * Cycles can not lead back to a record, as records can not be created before their attributes are known.
+ * Without identity, shared objects are deconstructed for each of their references and cycles are rejected.
+ * <p>
+ * Graph factories are thread-safe.
+ *
+ * @param <T> type of the root objects
+ */
+public final class ObjectGraphFactory<T> {
+
+    /**
+     * Creates graph factory for given root type, preserving the identity of objects.
+     *
+     * @param type type of the root objects
+     * @return graph factory
+     * @param <T> type of the root objects
+     */
+    public static <T> ObjectGraphFactory<T> of(Class<T> type) {
+        return of(type, true);
+    }
+
+    /**
+     * Creates graph factory for given root type.
+     *
+     * @param type type of the root objects
+     * @param identity whether shared and cyclic references should be preserved
+     * @return graph factory
+     * @param <T> type of the root objects
+     */
+    public static <T> ObjectGraphFactory<T> of(Class<T> type, boolean identity) {
+        Preconditions.checkNotNull(type, "Type can not be null");
+        return new ObjectGraphFactory<>(type, identity);
+    }
+
+    private final Class<T> type;
+    private final boolean identity;
+    private final Map<Class<?>, Node> nodes;
+
+    private ObjectGraphFactory(Class<T> type, boolean identity) {
+        this.type = type;
+        this.identity = identity;
+        this.nodes = resolve(type);
+    }
+
+    /**
+     * Resolves the object factory of given root type and all nested model types reachable from it.
+     * <p>
+     * Nested model types whose class model can not be built are opaque, their values are kept
+     * in the containers as they are.
+     *
+     * @param root root type
+     * @return resolved types
+     */
+    private static Map<Class<?>, Node> resolve(Class<?> root) {
+        Map<Class<?>, ObjectFactory<Object>> factories = new HashMap<>();
+        Set<Class<?>> opaque = new HashSet<>();
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        //noinspection unchecked
+        factories.put(root, (ObjectFactory<Object>) ObjectFactory.create(root));
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            for (ModelAttribute attribute : factories.get(pending.pop()).containerFactory().attributes()) {
+                Class<?> nested = attribute.type();
+                if (factories.containsKey(nested) || opaque.contains(nested) || !isNestedModel(nested)) continue;
+                ObjectFactory<Object> factory = factoryOf(nested);
+                if (factory == null) {
+                    opaque.add(nested);
+                    continue;
+                }
+                factories.put(nested, factory);
+                pending.push(nested);
+            }
+        }
+
+        Map<Class<?>, Node> nodes = new HashMap<>();
+        factories.forEach((type, factory) -> {
+            ModelDataContainer.Factory containers = factory.containerFactory();
+            ModelAttribute[] attributes = containers.attributes();
+            List<Integer> nested = new ArrayList<>();
+            for (int i = 0; i < attributes.length; i++) {
+                if (factories.containsKey(attributes[i].type())) nested.add(i);
+            }
+            int[] slots = new int[nested.size()];
+            Class<?>[] types = new Class<?>[nested.size()];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = containers.slotOf(nested.get(i));
+                types[i] = attributes[nested.get(i)].type();
+            }
+            nodes.put(type, new Node(factory, slots, types));
+        });
+        return Map.copyOf(nodes);
+    }
+
+    /**
+     * Returns object factory of a nested model type.
+     *
+     * @param type nested model type
+     * @return object factory of the type, or {@code null} if its class model can not be built
+     */
+    @SuppressWarnings("unchecked")
+    private static @Nullable ObjectFactory<Object> factoryOf(Class<?> type) {
+        ClassModel<Object> model;
+        try {
+            model = ClassModel.of((Class<Object>) type);
+        } catch (IllegalArgumentException | IllegalStateException _) {
+            return null;
+        }
+        // failures of the factory generation are not a reason to treat the type as opaque
+        return ObjectFactory.create((Class<Object>) type, model);
+    }
+
+    /**
+     * @param type declared type of an attribute
+     * @return whether values of the attribute are nodes of the graph
+     */
+    private static boolean isNestedModel(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isEnum() || type.isInterface()
+                || Modifier.isAbstract(type.getModifiers()))
+            return false;
+        if (type.isRecord()) return true;
+        if (type.getPackageName().startsWith("java.")) return false;
+        try {
+            type.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether shared and cyclic references are preserved
+     */
+    public boolean preservesIdentity() {
+        return identity;
+    }
+
+    /**
+     * Deconstructs the object graph of given root object.
+     *
+     * @param root root object
+     * @return deconstructed graph
+     * @throws IllegalArgumentException if the graph contains a cycle that can not be reconstructed
+     */
+    public ModelDataGraph write(T root) {
+        Preconditions.checkNotNull(root, "Root object can not be null");
+        Preconditions.checkArgument(root.getClass() == type, "Root object must be of type %s", type.getName());
+        GraphWriter writer = new GraphWriter();
+        writer.visit(root, nodes.get(type));
+        return writer.graph();
+    }
+
+    /**
+     * Reconstructs the object graph.
+     * <p>
+     * The graph is not modified, references to other nodes are resolved in pooled
+     * containers, so the same graph can be read by multiple threads at once.
+     *
+     * @param graph graph deconstructed by a graph factory of the same root type
+     * @return reconstructed root object
+     */
+    public T read(ModelDataGraph graph) {
+        Preconditions.checkArgument(graph.size() > 0 && graph.type(0) == type,
+                "Root of the graph is not of type %s", type.getName());
+        Object[] instances = new Object[graph.size()];
+        for (int i = 0; i < instances.length; i++) {
+            if (graph.isPreallocated(i)) instances[i] = node(graph.type(i)).factory().newInstance();
+        }
+
+        for (int index : graph.completionOrder()) {
+            Node node = node(graph.type(index));
+            ModelDataContainer container = graph.container(index);
+            if (node.slots().length == 0) {
+                read(node, container, instances, index, graph.isPreallocated(index));
+                continue;
+            }
+            ModelDataContainer.Factory containers = node.factory().containerFactory();
+            ModelDataContainer resolved = containers.acquire();
+            try {
+                container.copyTo(resolved);
+                for (int slot : node.slots()) {
+                    if (resolved.getObject(slot) instanceof ModelDataGraph.Reference reference)
+                        resolved.setObject(slot, instances[reference.node()]);
+                }
+                read(node, resolved, instances, index, graph.isPreallocated(index));
+            } finally {
+                containers.release(resolved);
+            }
+        }
+
+        //noinspection unchecked
+        return (T) instances[0];
+    }
+
+    /**
+     * Reads object of a node from container with resolved references.
+     *
+     * @param node resolved type of the object
+     * @param container container of the object
+     * @param instances reconstructed objects
+     * @param index index of the node
+     * @param preallocated whether the object was created before its attributes were read
+     */
+    private static void read(Node node, ModelDataContainer container, Object[] instances, int index,
+                             boolean preallocated) {
+        if (preallocated) node.factory().read(container, instances[index]);
+        else instances[index] = node.factory().read(container);
+    }
+
+    private Node node(Class<?> type) {
+        Node node = nodes.get(type);
+        Preconditions.checkArgument(node != null, "Type %s is not part of the object graph", type.getName());
+        return node;
+    }
+
+    /**
+     * Resolved nested model type.
+     *
+     * @param factory object factory of the type
+     * @param slots slots of the attributes with nested model types
+     * @param types declared nested model types of the attributes
+     */
+    private record Node(ObjectFactory<Object> factory, int[] slots, Class<?>[] types) {
+    }
+
+    /**
+     * Single deconstruction of an object graph.
+     */
+    private final class GraphWriter {
+
+        private final List<Class<?>> types = new ArrayList<>();
+        private final List<ModelDataContainer> containers = new ArrayList<>();
+        private final BitSet completed = new BitSet();
+        private final BitSet preallocated = new BitSet();
+        private final Map<Object, Integer> visited = new IdentityHashMap<>();
+        private final Set<Object> path = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int[] completionOrder = new int[8];
+        private int completions;
+
+        /**
+         * Deconstructs given object and all objects it references.
+         * <p>
+         * The graph is traversed depth first using an explicit stack of the objects
+         * whose references are being visited, so long chains of objects do not overflow the call stack.
+         *
+         * @param root object to deconstruct
+         * @param node resolved type of the object
+         */
+        void visit(Object root, Node node) {
+            Deque<Frame> stack = new ArrayDeque<>();
+            enter(root, node, stack);
+            while (!stack.isEmpty()) {
+                Frame frame = stack.peek();
+                int[] slots = frame.node.slots();
+                if (frame.next == slots.length) {
+                    stack.pop();
+                    complete(frame);
+                    continue;
+                }
+                int i = frame.next++;
+                Object nested = frame.container.getObject(slots[i]);
+                if (nested == null || nested.getClass() != frame.node.types()[i]) continue;
+                Integer existing = identity ? visited.get(nested) : null;
+                int reference;
+                if (existing != null) {
+                    if (!completed.get(existing)) preallocate(existing);
+                    reference = existing;
+                } else {
+                    reference = enter(nested, nodes.get(frame.node.types()[i]), stack);
+                }
+                frame.container.setObject(slots[i], new ModelDataGraph.Reference(reference));
+            }
+        }
+
+        /**
+         * Deconstructs object that was not visited yet and pushes it to the stack,
+         * so its references are visited next.
+         *
+         * @param value object to deconstruct
+         * @param node resolved type of the object
+         * @param stack stack of the objects whose references are being visited
+         * @return index of the node of the object
+         */
+        private int enter(Object value, Node node, Deque<Frame> stack) {
+            Preconditions.checkArgument(identity || !path.contains(value), "Object graph of %s contains a cycle, "
+                    + "identity must be preserved to deconstruct it", type.getName());
+            int index = types.size();
+            ModelDataContainer container = node.factory().write(value);
+            types.add(value.getClass());
+            containers.add(container);
+            if (identity) visited.put(value, index);
+            else path.add(value);
+            stack.push(new Frame(value, node, index, container));
+            return index;
+        }
+
+        /**
+         * Marks object completed once all its references were visited.
+         *
+         * @param frame frame of the object
+         */
+        private void complete(Frame frame) {
+            if (!identity) path.remove(frame.value);
+            completed.set(frame.index);
+            if (completions == completionOrder.length)
+                completionOrder = Arrays.copyOf(completionOrder, completions * 2);
+            completionOrder[completions++] = frame.index;
+        }
+
+        /**
+         * Marks node referenced before its references were resolved.
+         *
+         * @param node index of the node
+         */
+        private void preallocate(int node) {
+            Class<?> nodeType = types.get(node);
+            Preconditions.checkArgument(!nodeType.isRecord(), "Object graph of %s contains a cycle "
+                    + "leading back to record %s", type.getName(), nodeType.getName());
+            preallocated.set(node);
+        }
+
+        /**
+         * @return the deconstructed graph
+         */
+        ModelDataGraph graph() {
+            return new ModelDataGraph(types, containers, Arrays.copyOf(completionOrder, completions), preallocated);
+        }
+
+    }
+
+    /**
+     * Object of the graph whose references are being visited.
+     */
+    private static final class Frame {
+
+        private final Object value;
+        private final Node node;
+        private final int index;
+        private final ModelDataContainer container;
+
+        /**
+         * Index of the next nested model attribute to visit.
+         */
+        private int next;
+
+        private Frame(Object value, Node node, int index, ModelDataContainer container) {
+            this.value = value;
+            this.node = node;
+            this.index = index;
+            this.container = container;
+        }
+
+    }
+
+}
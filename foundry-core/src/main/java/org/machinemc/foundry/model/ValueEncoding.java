@@ -0,0 +1,722 @@
+package org.machinemc.foundry.model;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Encoding of object attribute values, resolved once from the declared type of the attribute
+ * and shared by the byte buffer layout of the object factories (see {@link BufferValues})
+ * and by {@link BinaryFormat}.
+ * <p>
+ * Each value is prefixed with a boolean marking whether it is present, followed by:
+ * <ul>
+ *     <li>strings, boxed primitives and UUIDs as their values</li>
+ *     <li>enums by the name of the constant</li>
+ *     <li>arrays, collections and maps as their length followed by their elements (or entries)</li>
+ *     <li>all other objects using the object factory (or binary format) of the declared type,
+ *     the value must be exactly of the declared type, subclasses are rejected</li>
+ * </ul>
+ * Element types of collections and maps are taken from the type arguments of the declared type.
+ * Collections and maps declared as interfaces are read as {@link ArrayList}, {@link LinkedHashSet},
+ * {@link TreeSet}, {@link ArrayDeque}, {@link LinkedHashMap} or {@link TreeMap}, other classes need
+ * a public no arguments constructor.
+ * <p>
+ * Types that can not be encoded (e.g. {@link Object}, interfaces, or other types of the {@code java}
+ * packages) resolve to an encoding failing with a message describing the reason once it is used.
+ * How the primitive values, lengths and nested objects are written is decided by the {@link Sink}
+ * and {@link Source} of the format.
+ * <p>
+ * This class is for internal use only.
+ */
+@ApiStatus.Internal
+public sealed interface ValueEncoding {
+
+    /**
+     * Returns the encoding of values of given attribute.
+     *
+     * @param attribute object attribute
+     * @return encoding of the attribute values
+     */
+    static ValueEncoding of(ModelAttribute attribute) {
+        Preconditions.checkArgument(!attribute.primitive(), "Attribute '%s' is primitive", attribute.name());
+        Type type = attribute.annotatedType() != null ? attribute.annotatedType().getType() : attribute.type();
+        return of(type);
+    }
+
+    /**
+     * Returns the encoding of values of given declared type.
+     *
+     * @param type declared type of the values
+     * @return encoding of the values
+     */
+    static ValueEncoding of(Type type) {
+        Preconditions.checkNotNull(type, "Type can not be null");
+        ValueEncoding encoding = Resolver.ENCODINGS.get(type);
+        if (encoding != null) return encoding;
+        // resolved outside the map, as resolving element types updates it as well
+        encoding = Resolver.resolve(type);
+        ValueEncoding previous = Resolver.ENCODINGS.putIfAbsent(type, encoding);
+        return previous != null ? previous : encoding;
+    }
+
+    /**
+     * Writes value, including the marker whether it is present.
+     *
+     * @param sink sink to write to
+     * @param value value to write
+     */
+    default void write(Sink sink, @Nullable Object value) {
+        if (value == null) {
+            sink.writeBool(false);
+            return;
+        }
+        sink.writeBool(true);
+        writeValue(sink, value);
+    }
+
+    /**
+     * Reads value, including the marker whether it is present.
+     *
+     * @param source source to read from
+     * @return read value
+     */
+    default @Nullable Object read(Source source) {
+        return source.readBool() ? readValue(source) : null;
+    }
+
+    /**
+     * Checks that values of this encoding can be encoded.
+     *
+     * @return this encoding
+     * @throws IllegalArgumentException if the values can not be encoded
+     */
+    default ValueEncoding checked() {
+        return this;
+    }
+
+    /**
+     * Writes present value.
+     *
+     * @param sink sink to write to
+     * @param value value to write
+     */
+    void writeValue(Sink sink, Object value);
+
+    /**
+     * Reads present value.
+     *
+     * @param source source to read from
+     * @return read value
+     */
+    Object readValue(Source source);
+
+    /**
+     * Output of a format the values are written to.
+     */
+    interface Sink {
+
+        void writeBool(boolean value);
+
+        void writeChar(char value);
+
+        void writeByte(byte value);
+
+        void writeShort(short value);
+
+        void writeInt(int value);
+
+        void writeLong(long value);
+
+        void writeFloat(float value);
+
+        void writeDouble(double value);
+
+        void writeString(String value);
+
+        /**
+         * Writes length of an array, collection or map.
+         *
+         * @param length length
+         */
+        void writeLength(int length);
+
+        /**
+         * Writes object using the object factory (or binary format) of its type.
+         *
+         * @param value value to write
+         * @param type type of the value
+         */
+        void writeModel(Object value, Class<?> type);
+
+    }
+
+    /**
+     * Input of a format the values are read from.
+     */
+    interface Source {
+
+        boolean readBool();
+
+        char readChar();
+
+        byte readByte();
+
+        short readShort();
+
+        int readInt();
+
+        long readLong();
+
+        float readFloat();
+
+        double readDouble();
+
+        String readString();
+
+        /**
+         * Reads length of a string, array, collection or map, checking that its elements
+         * can fit in the remaining input.
+         *
+         * @param elementType type of the elements, a primitive type for strings and primitive arrays
+         * @return length
+         * @throws IllegalArgumentException if the length is negative or exceeds the remaining input
+         */
+        int readLength(Class<?> elementType);
+
+        /**
+         * Reads object using the object factory (or binary format) of given type.
+         *
+         * @param type type of the value
+         * @return read value
+         */
+        Object readModel(Class<?> type);
+
+    }
+
+    /**
+     * Strings, boxed primitives and UUIDs.
+     */
+    enum Scalar implements ValueEncoding {
+
+        STRING {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeString((String) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readString();
+            }
+        },
+        BOOLEAN {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeBool((Boolean) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readBool();
+            }
+        },
+        CHARACTER {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeChar((Character) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readChar();
+            }
+        },
+        BYTE {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeByte((Byte) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readByte();
+            }
+        },
+        SHORT {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeShort((Short) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readShort();
+            }
+        },
+        INTEGER {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeInt((Integer) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readInt();
+            }
+        },
+        LONG {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeLong((Long) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readLong();
+            }
+        },
+        FLOAT {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeFloat((Float) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readFloat();
+            }
+        },
+        DOUBLE {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                sink.writeDouble((Double) value);
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return source.readDouble();
+            }
+        },
+        UUID {
+            @Override
+            public void writeValue(Sink sink, Object value) {
+                java.util.UUID uuid = (java.util.UUID) value;
+                sink.writeLong(uuid.getMostSignificantBits());
+                sink.writeLong(uuid.getLeastSignificantBits());
+            }
+
+            @Override
+            public Object readValue(Source source) {
+                return new java.util.UUID(source.readLong(), source.readLong());
+            }
+        }
+
+    }
+
+    /**
+     * Enum constants, encoded by their name.
+     *
+     * @param type enum class
+     */
+    record EnumValue(Class<?> type) implements ValueEncoding {
+
+        @Override
+        public void writeValue(Sink sink, Object value) {
+            sink.writeString(((Enum<?>) type.cast(value)).name());
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Object readValue(Source source) {
+            return Enum.valueOf((Class) type, source.readString());
+        }
+
+    }
+
+    /**
+     * Arrays of primitives, their elements have no presence markers.
+     *
+     * @param componentType primitive component type
+     */
+    record PrimitiveArray(Class<?> componentType) implements ValueEncoding {
+
+        @Override
+        public void writeValue(Sink sink, Object value) {
+            sink.writeLength(Array.getLength(value));
+            switch (value) {
+                case boolean[] array -> {
+                    for (boolean element : array) sink.writeBool(element);
+                }
+                case char[] array -> {
+                    for (char element : array) sink.writeChar(element);
+                }
+                case byte[] array -> {
+                    for (byte element : array) sink.writeByte(element);
+                }
+                case short[] array -> {
+                    for (short element : array) sink.writeShort(element);
+                }
+                case int[] array -> {
+                    for (int element : array) sink.writeInt(element);
+                }
+                case long[] array -> {
+                    for (long element : array) sink.writeLong(element);
+                }
+                case float[] array -> {
+                    for (float element : array) sink.writeFloat(element);
+                }
+                case double[] array -> {
+                    for (double element : array) sink.writeDouble(element);
+                }
+                default -> throw new IllegalArgumentException("Unexpected array " + value.getClass().getName());
+            }
+        }
+
+        @Override
+        public Object readValue(Source source) {
+            int length = source.readLength(componentType);
+            Object array = Array.newInstance(componentType, length);
+            switch (array) {
+                case boolean[] values -> {
+                    for (int i = 0; i < length; i++) values[i] = source.readBool();
+                }
+                case char[] values -> {
+                    for (int i = 0; i < length; i++) values[i] = source.readChar();
+                }
+                case byte[] values -> {
+                    for (int i = 0; i < length; i++) values[i] = source.readByte();
+                }
+                case short[] values -> {
+                    for (int i = 0; i < length; i++) values[i] = source.readShort();
+                }
+                case int[] values -> {
+                    for (int i = 0; i < length; i++) values[i] = source.readInt();
+                }
+                case long[] values -> {
+                    for (int i = 0; i < length; i++) values[i] = source.readLong();
+                }
+                case float[] values -> {
+                    for (int i = 0; i < length; i++) values[i] = source.readFloat();
+                }
+                case double[] values -> {
+                    for (int i = 0; i < length; i++) values[i] = source.readDouble();
+                }
+                default -> throw new AssertionError();
+            }
+            return array;
+        }
+
+    }
+
+    /**
+     * Arrays of objects.
+     *
+     * @param componentType component type of the array
+     * @param component encoding of the elements
+     */
+    record ObjectArray(Class<?> componentType, ValueEncoding component) implements ValueEncoding {
+
+        @Override
+        public void writeValue(Sink sink, Object value) {
+            Object[] array = (Object[]) value;
+            sink.writeLength(array.length);
+            for (Object element : array) component.write(sink, element);
+        }
+
+        @Override
+        public Object readValue(Source source) {
+            Object[] array = (Object[]) Array.newInstance(componentType, source.readLength(Object.class));
+            for (int i = 0; i < array.length; i++) array[i] = component.read(source);
+            return array;
+        }
+
+        @Override
+        public ValueEncoding checked() {
+            component.checked();
+            return this;
+        }
+
+    }
+
+    /**
+     * Collections.
+     *
+     * @param factory factory of the read collections
+     * @param element encoding of the elements
+     */
+    record CollectionValue(Supplier<Collection<Object>> factory, ValueEncoding element) implements ValueEncoding {
+
+        @Override
+        public void writeValue(Sink sink, Object value) {
+            Collection<?> collection = (Collection<?>) value;
+            sink.writeLength(collection.size());
+            for (Object entry : collection) element.write(sink, entry);
+        }
+
+        @Override
+        public Object readValue(Source source) {
+            int length = source.readLength(Object.class);
+            Collection<Object> collection = factory.get();
+            for (int i = 0; i < length; i++) collection.add(element.read(source));
+            return collection;
+        }
+
+        @Override
+        public ValueEncoding checked() {
+            element.checked();
+            return this;
+        }
+
+    }
+
+    /**
+     * Maps.
+     *
+     * @param factory factory of the read maps
+     * @param key encoding of the keys
+     * @param value encoding of the values
+     */
+    record MapValue(Supplier<Map<Object, Object>> factory, ValueEncoding key, ValueEncoding value)
+            implements ValueEncoding {
+
+        @Override
+        public void writeValue(Sink sink, Object map) {
+            Map<?, ?> entries = (Map<?, ?>) map;
+            sink.writeLength(entries.size());
+            entries.forEach((entryKey, entryValue) -> {
+                key.write(sink, entryKey);
+                value.write(sink, entryValue);
+            });
+        }
+
+        @Override
+        public Object readValue(Source source) {
+            int length = source.readLength(Object.class);
+            Map<Object, Object> map = factory.get();
+            for (int i = 0; i < length; i++) map.put(key.read(source), value.read(source));
+            return map;
+        }
+
+        @Override
+        public ValueEncoding checked() {
+            key.checked();
+            value.checked();
+            return this;
+        }
+
+    }
+
+    /**
+     * Objects encoded by the object factory (or binary format) of their type.
+     *
+     * @param type declared type, the values must be exactly of this type
+     */
+    record Model(Class<?> type) implements ValueEncoding {
+
+        @Override
+        public void writeValue(Sink sink, Object value) {
+            Preconditions.checkArgument(value.getClass() == type, "Value of type %s can not be encoded "
+                    + "as %s, subclasses of the declared type are not supported", value.getClass().getName(),
+                    type.getName());
+            sink.writeModel(value, type);
+        }
+
+        @Override
+        public Object readValue(Source source) {
+            return source.readModel(type);
+        }
+
+    }
+
+    /**
+     * Values of a type that can not be encoded.
+     *
+     * @param message message describing why the type can not be encoded
+     */
+    record Unsupported(String message) implements ValueEncoding {
+
+        @Override
+        public void write(Sink sink, @Nullable Object value) {
+            throw new IllegalArgumentException(message);
+        }
+
+        @Override
+        public @Nullable Object read(Source source) {
+            throw new IllegalArgumentException(message);
+        }
+
+        @Override
+        public ValueEncoding checked() {
+            throw new IllegalArgumentException(message);
+        }
+
+        @Override
+        public void writeValue(Sink sink, Object value) {
+            throw new IllegalArgumentException(message);
+        }
+
+        @Override
+        public Object readValue(Source source) {
+            throw new IllegalArgumentException(message);
+        }
+
+    }
+
+    /**
+     * Resolves the encodings of declared types.
+     */
+    final class Resolver {
+
+        private static final Map<Type, ValueEncoding> ENCODINGS = new ConcurrentHashMap<>();
+
+        private static final Map<Class<?>, ValueEncoding> SCALARS = Map.of(
+                String.class, Scalar.STRING,
+                Boolean.class, Scalar.BOOLEAN,
+                Character.class, Scalar.CHARACTER,
+                Byte.class, Scalar.BYTE,
+                Short.class, Scalar.SHORT,
+                Integer.class, Scalar.INTEGER,
+                Long.class, Scalar.LONG,
+                Float.class, Scalar.FLOAT,
+                Double.class, Scalar.DOUBLE,
+                UUID.class, Scalar.UUID
+        );
+
+        private Resolver() {
+            throw new UnsupportedOperationException();
+        }
+
+        private static ValueEncoding resolve(Type type) {
+            return switch (type) {
+                case Class<?> raw -> resolve(raw);
+                case ParameterizedType parameterized -> resolve(parameterized);
+                case GenericArrayType array -> new ObjectArray(erasure(array.getGenericComponentType()),
+                        of(array.getGenericComponentType()));
+                case WildcardType wildcard -> of(wildcard.getUpperBounds()[0]);
+                case TypeVariable<?> variable -> of(variable.getBounds()[0]);
+                default -> new Unsupported("Type " + type.getTypeName() + " can not be encoded");
+            };
+        }
+
+        private static ValueEncoding resolve(Class<?> type) {
+            ValueEncoding scalar = SCALARS.get(type);
+            if (scalar != null) return scalar;
+            if (type.isEnum()) return new EnumValue(type);
+            if (type.isArray()) {
+                Class<?> componentType = type.getComponentType();
+                return componentType.isPrimitive()
+                        ? new PrimitiveArray(componentType)
+                        : new ObjectArray(componentType, of(componentType));
+            }
+            if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type))
+                return new Unsupported("Element types of " + type.getName() + " are unknown, the attribute "
+                        + "needs to be declared with type arguments");
+            if (type.isPrimitive() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                    || type.getName().startsWith("java."))
+                return new Unsupported("Type " + type.getName() + " can not be encoded");
+            return new Model(type);
+        }
+
+        private static ValueEncoding resolve(ParameterizedType type) {
+            Class<?> raw = erasure(type);
+            Type[] arguments = type.getActualTypeArguments();
+            if (Collection.class.isAssignableFrom(raw) && arguments.length == 1) {
+                Supplier<Collection<Object>> factory = collectionFactory(raw);
+                if (factory == null)
+                    return new Unsupported("Collection " + raw.getName() + " can not be instantiated");
+                return new CollectionValue(factory, of(arguments[0]));
+            }
+            if (Map.class.isAssignableFrom(raw) && arguments.length == 2) {
+                Supplier<Map<Object, Object>> factory = mapFactory(raw, erasure(arguments[0]));
+                if (factory == null) return new Unsupported("Map " + raw.getName() + " can not be instantiated");
+                return new MapValue(factory, of(arguments[0]), of(arguments[1]));
+            }
+            return of(raw);
+        }
+
+        private static @Nullable Supplier<Collection<Object>> collectionFactory(Class<?> type) {
+            if (type == Collection.class || type == List.class) return ArrayList::new;
+            if (type == Set.class) return LinkedHashSet::new;
+            if (type == SortedSet.class || type == NavigableSet.class) return TreeSet::new;
+            if (type == Queue.class || type == Deque.class) return ArrayDeque::new;
+            return constructorOf(type);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static @Nullable Supplier<Map<Object, Object>> mapFactory(Class<?> type, Class<?> keyType) {
+            if (type == Map.class) return LinkedHashMap::new;
+            if (type == SortedMap.class || type == NavigableMap.class) return TreeMap::new;
+            if (type == EnumMap.class && keyType.isEnum()) return () -> new EnumMap(keyType);
+            return constructorOf(type);
+        }
+
+        /**
+         * Returns factory creating instances using the public no arguments constructor of given class.
+         *
+         * @param type class
+         * @return factory, or {@code null} if the class can not be instantiated
+         * @param <T> type of the instances
+         */
+        @SuppressWarnings("unchecked")
+        private static <T> @Nullable Supplier<T> constructorOf(Class<?> type) {
+            if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) return null;
+            Constructor<?> constructor;
+            try {
+                constructor = type.getConstructor();
+            } catch (NoSuchMethodException _) {
+                return null;
+            }
+            if (!constructor.canAccess(null)) return null;
+            return () -> {
+                try {
+                    return (T) constructor.newInstance();
+                } catch (ReflectiveOperationException exception) {
+                    throw new RuntimeException("Failed to instantiate " + type.getName(), exception);
+                }
+            };
+        }
+
+        private static Class<?> erasure(Type type) {
+            return switch (type) {
+                case Class<?> raw -> raw;
+                case ParameterizedType parameterized -> (Class<?>) parameterized.getRawType();
+                case GenericArrayType array -> erasure(array.getGenericComponentType()).arrayType();
+                case WildcardType wildcard -> erasure(wildcard.getUpperBounds()[0]);
+                case TypeVariable<?> variable -> erasure(variable.getBounds()[0]);
+                default -> Object.class;
+            };
+        }
+
+    }
+
+}
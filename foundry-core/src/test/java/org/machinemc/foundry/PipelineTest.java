@@ -3,7 +3,14 @@ package org.machinemc.foundry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -186,4 +193,520 @@ class PipelineTest {
         assertEquals(100, pipeline.process(4));
     }
 
+    @Test
+    void testCompile_ChainedHandlers() throws Exception {
+        Pipeline<String, String> pipeline = Pipeline.<String>builder()
+                .next(String::trim)
+                .next(String::toUpperCase)
+                .next(s -> s + "!")
+                .build()
+                .compile();
+
+        assertTrue(pipeline.isCompiled());
+        assertEquals("HELLO!", pipeline.process("  hello "));
+        assertSame(pipeline, pipeline.compile());
+    }
+
+    @Test
+    void testCompile_Protected() throws Exception {
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>builder()
+                .protect()
+                .filter(i -> i > 5)
+                .or(() -> 100)
+                .build()
+                .compile();
+
+        assertEquals(7, pipeline.process(7));
+        assertEquals(100, pipeline.process(4));
+    }
+
+    @Test
+    void testCompile_PropagatesException() {
+        Pipeline<String, String> pipeline = Pipeline.<String>builder()
+                .<String>next(_ -> { throw new IOException("Failed"); })
+                .build()
+                .compile();
+
+        assertThrows(IOException.class, () -> pipeline.process("test"));
+    }
+
+    @Test
+    void testCompile_ComposedIsNotCompiled() throws Exception {
+        Pipeline<String, Integer> p1 = Pipeline.builder(String::length).build().compile();
+        Pipeline<Integer, String> p2 = Pipeline.<Integer, String>builder(Object::toString).build().compile();
+
+        Pipeline<String, String> composed = Pipeline.compose(p1, p2);
+
+        assertFalse(composed.isCompiled());
+        assertEquals("4", composed.process("test"));
+    }
+
+    @Test
+    void testProcessAll_PlainHandlers() throws Exception {
+        Pipeline<String, Integer> pipeline = Pipeline.<String>builder()
+                .next(String::trim)
+                .next(String::length)
+                .build();
+
+        assertEquals(List.of(1, 2, 3), pipeline.processAll(List.of(" a", "bb ", " ccc ")));
+    }
+
+    @Test
+    void testProcessAll_BatchHandler() throws Exception {
+        AtomicInteger batchCalls = new AtomicInteger();
+        BatchDataHandler<Integer, Integer> doubling = new BatchDataHandler<>() {
+            @Override
+            public List<Integer> transformAll(List<Integer> instances) {
+                batchCalls.incrementAndGet();
+                return instances.stream().map(i -> i * 2).toList();
+            }
+
+            @Override
+            public Integer transform(Integer instance) {
+                return instance * 2;
+            }
+        };
+        Pipeline<String, Integer> pipeline = Pipeline.<String>builder()
+                .next(String::length)
+                .next(doubling)
+                .build();
+
+        assertEquals(List.of(2, 4, 6), pipeline.processAll(List.of("a", "bb", "ccc")));
+        assertEquals(1, batchCalls.get());
+        assertEquals(8, pipeline.process("test"));
+    }
+
+    @Test
+    void testProcessInto() throws Exception {
+        Pipeline<String, Integer> pipeline = Pipeline.builder(String::length).build().compile();
+
+        Integer[] outputs = new Integer[3];
+        pipeline.processInto(new String[]{"a", "bb", "ccc"}, outputs);
+
+        assertArrayEquals(new Integer[]{1, 2, 3}, outputs);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.processInto(new String[2], new Integer[3]));
+    }
+
+    @Test
+    void testProtected_Or_SkipsToRecovery() throws Exception {
+        AtomicInteger skipped = new AtomicInteger();
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>builder()
+                .protect()
+                .filter(i -> i > 5)
+                .map(i -> {
+                    skipped.incrementAndGet();
+                    return i * 10;
+                })
+                .or(() -> 1)
+                .map(i -> i + 1)
+                .build();
+
+        assertEquals(71, pipeline.process(7));
+        assertEquals(2, pipeline.process(4));
+        assertEquals(1, skipped.get());
+    }
+
+    @Test
+    void testProtected_NullResultIsMissing() throws Exception {
+        Pipeline<String, Optional<Integer>> pipeline = Pipeline.<String>builder()
+                .protect()
+                .<String>next(_ -> null)
+                .map(String::length)
+                .buildOpt();
+
+        assertTrue(pipeline.process("test").isEmpty());
+        assertTrue(pipeline.process(null).isEmpty());
+    }
+
+    @Test
+    void testOptimize_RemovesIdentity() throws Exception {
+        Pipeline<String, String> pipeline = Pipeline.<String>builder()
+                .next(CommonHandlers.identity())
+                .build();
+
+        assertTrue(pipeline.handlers().isEmpty());
+        assertEquals("test", pipeline.process("test"));
+        assertEquals("test", pipeline.compile().process("test"));
+    }
+
+    @Test
+    void testOptimize_MergesProtectedChains() throws Exception {
+        Pipeline<Integer, Integer> first = Pipeline.<Integer>builder()
+                .protect()
+                .filter(i -> i > 5)
+                .build();
+        Pipeline<Integer, Integer> second = Pipeline.<Integer>builder()
+                .protect()
+                .or(() -> 0)
+                .map(i -> i + 1)
+                .build();
+        Pipeline<Integer, Integer> composed = Pipeline.compose(first, second);
+
+        assertEquals(1, composed.handlers().size());
+        assertEquals(8, composed.process(7));
+        assertEquals(1, composed.process(3));
+    }
+
+    @Test
+    void testProcessAsync_NoBlockingHandlers() throws Exception {
+        Pipeline<String, Integer> pipeline = Pipeline.builder(String::length).build();
+        CompletableFuture<Integer> future = pipeline.processAsync("test", _ -> fail("Nothing should be submitted"));
+
+        assertTrue(future.isDone());
+        assertEquals(4, future.get());
+    }
+
+    @Test
+    void testProcessAsync_BlockingHandlers() throws Exception {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        AtomicInteger submitted = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Pipeline<String, Integer> pipeline = Pipeline.<String>builder()
+                    .next(s -> {
+                        threads.add(Thread.currentThread());
+                        return s + "!";
+                    })
+                    .next(CommonHandlers.blocking(String::length))
+                    .next(i -> {
+                        threads.add(Thread.currentThread());
+                        return i * 2;
+                    })
+                    .build();
+            Executor counting = task -> {
+                submitted.incrementAndGet();
+                executor.execute(task);
+            };
+
+            assertEquals(10, pipeline.processAsync("test", counting).get());
+            assertEquals(1, submitted.get());
+            assertSame(caller, threads.get(0));
+            assertNotSame(caller, threads.get(1));
+            assertEquals(8, pipeline.processAsync("abc").get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testProcessAsync_ProtectedBlockingHandler() throws Exception {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        AtomicInteger submitted = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Pipeline<String, Optional<Integer>> pipeline = Pipeline.<String>builder()
+                    .protect()
+                    .filter(s -> !s.isEmpty())
+                    .next(CommonHandlers.blocking(s -> {
+                        threads.add(Thread.currentThread());
+                        return s.length();
+                    }))
+                    .map(i -> i * 2)
+                    .buildOpt();
+            Executor counting = task -> {
+                submitted.incrementAndGet();
+                executor.execute(task);
+            };
+
+            assertEquals(Optional.of(8), pipeline.processAsync("test", counting).get());
+            assertEquals(1, submitted.get());
+            assertNotSame(caller, threads.get(0));
+
+            // missing items skip the blocking handler
+            assertEquals(Optional.empty(), pipeline.processAsync("", counting).get());
+            assertEquals(1, threads.size());
+            assertEquals(Optional.of(6), pipeline.process("abc"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testProcessAsync_Exception() {
+        Pipeline<String, String> pipeline = Pipeline.<String>builder()
+                .next(CommonHandlers.blocking(s -> s))
+                .<String>next(_ -> { throw new IOException("Failed"); })
+                .build();
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> pipeline.processAsync("test", Runnable::run).get());
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    @Test
+    void testStagedRunner() throws Exception {
+        Pipeline<Integer, String> pipeline = Pipeline.<Integer>builder()
+                .next(i -> i * 2)
+                .next(i -> i + 1)
+                .next(String::valueOf)
+                .build();
+        StagedPipelineRunner<Integer, String> runner = StagedPipelineRunner.builder(pipeline)
+                .parallelism(1, 4)
+                .queueCapacity(2)
+                .build();
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) inputs.add(i);
+
+        List<String> results = runner.processAll(inputs);
+
+        assertEquals(3, runner.stages());
+        assertEquals(1000, results.size());
+        for (int i = 0; i < 1000; i++) assertEquals(String.valueOf(i * 2 + 1), results.get(i));
+    }
+
+    @Test
+    void testStagedRunner_Exception() {
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>builder()
+                .next(i -> {
+                    if (i == 500) throw new IOException("Failed");
+                    return i;
+                })
+                .next(i -> i + 1)
+                .build();
+        StagedPipelineRunner<Integer, Integer> runner = StagedPipelineRunner.builder(pipeline)
+                .queueCapacity(1)
+                .build();
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) inputs.add(i);
+
+        assertThrows(IOException.class, () -> runner.processAll(inputs));
+    }
+
+    @Test
+    void testInstrument() throws Exception {
+        Pipeline<String, Integer> pipeline = Pipeline.<String>builder()
+                .next(String::length)
+                .next(i -> {
+                    if (i == 0) throw new IOException("Empty");
+                    return i * 2;
+                })
+                .build();
+        PipelineMetrics metrics = PipelineMetrics.of(pipeline);
+        Pipeline<String, Integer> instrumented = pipeline.instrument(metrics, true);
+
+        assertEquals(8, instrumented.process("test"));
+        assertEquals(6, instrumented.compile().process("abc"));
+        assertThrows(IOException.class, () -> instrumented.process(""));
+
+        assertEquals(2, metrics.stages());
+        assertEquals(3, metrics.stage(0).invocations());
+        assertEquals(0, metrics.stage(0).exceptions());
+        assertEquals(2, metrics.stage(1).invocations());
+        assertEquals(1, metrics.stage(1).exceptions());
+        assertEquals(3, Arrays.stream(metrics.stage(0).histogram()).sum());
+        assertTrue(metrics.stage(0).percentileNanos(100) > 0);
+    }
+
+    @Test
+    void testInstrument_KeepsHandlerKinds() throws Exception {
+        Pipeline<String, String> pipeline = Pipeline.<String>builder()
+                .next(CommonHandlers.blocking(s -> s + "!"))
+                .build();
+        PipelineMetrics metrics = PipelineMetrics.of(pipeline);
+        AtomicInteger submitted = new AtomicInteger();
+
+        String result = pipeline.instrument(metrics).processAsync("test", task -> {
+            submitted.incrementAndGet();
+            task.run();
+        }).get();
+
+        assertEquals("test!", result);
+        assertEquals(1, submitted.get());
+        assertEquals(1, metrics.stage(0).invocations());
+    }
+
+    @Test
+    void testCached() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CachedDataHandler<String, Integer> cached = CommonHandlers.cached(s -> {
+            calls.incrementAndGet();
+            return s.equals("null") ? null : s.length();
+        }, CacheSpec.builder().maximumSize(2).recordStats().build());
+        Pipeline<String, Integer> pipeline = Pipeline.builder(cached).build();
+
+        assertEquals(4, pipeline.process("test"));
+        assertEquals(4, pipeline.process("test"));
+        assertNull(pipeline.process("null"));
+        assertNull(pipeline.process("null"));
+        assertEquals(2, calls.get());
+
+        pipeline.process("a");
+        pipeline.process("b");
+        assertTrue(cached.size() <= 2);
+
+        CachedDataHandler.Stats stats = cached.stats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(4, stats.missCount());
+        assertTrue(stats.evictionCount() > 0);
+    }
+
+    @Test
+    void testCached_Exception() {
+        CachedDataHandler<String, String> cached = CommonHandlers.cached(_ -> {
+            throw new IOException("Failed");
+        }, CacheSpec.builder().build());
+
+        assertThrows(IOException.class, () -> cached.transform("test"));
+        assertEquals(0, cached.size());
+    }
+
+    @Test
+    void testAsGatherer() {
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>builder()
+                .protect()
+                .filter(i -> i % 2 == 0)
+                .map(i -> i * 10)
+                .build();
+
+        List<Integer> results = Stream.of(1, 2, 3, 4).gather(pipeline.asGatherer()).toList();
+
+        assertEquals(List.of(20, 40), results);
+    }
+
+    @Test
+    void testAsGatherer_Exception() {
+        Pipeline<String, String> pipeline = Pipeline.<String>builder()
+                .<String>next(_ -> { throw new IOException("Failed"); })
+                .build();
+
+        PipelineException exception = assertThrows(PipelineException.class,
+                () -> Stream.of("test").gather(pipeline.asGatherer()).toList());
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    @Test
+    void testAsProcessor() throws Exception {
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>builder()
+                .protect()
+                .filter(i -> i % 2 == 0)
+                .map(i -> i * 10)
+                .build();
+        List<Integer> results = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+
+        try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+            Flow.Processor<Integer, Integer> processor = pipeline.asProcessor();
+            publisher.subscribe(processor);
+            processor.subscribe(new Flow.Subscriber<>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    results.add(item);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    completed.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.complete(null);
+                }
+            });
+            for (int i = 1; i <= 6; i++) publisher.submit(i);
+        }
+
+        completed.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(20, 40, 60), results);
+    }
+
+    @Test
+    void testAsProcessor_InvalidRequestDuringOnNext() throws Exception {
+        Pipeline<Integer, Integer> pipeline = Pipeline.builder((Integer i) -> i + 1).build();
+        List<String> signals = new CopyOnWriteArrayList<>();
+        CompletableFuture<Throwable> failed = new CompletableFuture<>();
+
+        try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+            Flow.Processor<Integer, Integer> processor = pipeline.asProcessor();
+            publisher.subscribe(processor);
+            processor.subscribe(new Flow.Subscriber<>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    signals.add("next " + item);
+                    subscription.request(0);
+                    signals.add("next end");
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    signals.add("error");
+                    failed.complete(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    signals.add("complete");
+                }
+            });
+            publisher.submit(1);
+            publisher.submit(2);
+
+            assertInstanceOf(IllegalArgumentException.class, failed.get(5, TimeUnit.SECONDS));
+        }
+
+        // the error is signalled only after onNext returned
+        assertEquals(List.of("next 2", "next end", "error"), signals);
+    }
+
+    @Test
+    void testAsProcessor_CompleteDuringOnSubscribe() {
+        Pipeline<Integer, Integer> pipeline = Pipeline.builder((Integer i) -> i + 1).build();
+        List<String> signals = new CopyOnWriteArrayList<>();
+
+        Flow.Processor<Integer, Integer> processor = pipeline.asProcessor();
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) { }
+
+            @Override
+            public void cancel() { }
+        });
+        processor.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                signals.add("subscribe");
+                // the upstream completes before onSubscribe returns
+                processor.onComplete();
+                signals.add("subscribe end");
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                signals.add("next " + item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add("error");
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+
+        // the completion is signalled only after onSubscribe returned
+        assertEquals(List.of("subscribe", "subscribe end", "complete"), signals);
+    }
+
 }
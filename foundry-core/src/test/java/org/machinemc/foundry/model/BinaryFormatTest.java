@@ -0,0 +1,160 @@
+package org.machinemc.foundry.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.machinemc.foundry.Codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BinaryFormat Tests")
+public class BinaryFormatTest {
+
+    public record Flags(boolean a, boolean b, boolean c, boolean d, boolean e, boolean f, boolean g, boolean h,
+                        boolean i) {
+    }
+
+    public record Numbers(byte tiny, char letter, short small, int medium, long big, float ratio, double precise) {
+    }
+
+    public enum Mode {
+        SURVIVAL, CREATIVE
+    }
+
+    public record Player(String name, Mode mode, Numbers stats, Integer level, Player parent) {
+    }
+
+    @Test
+    void testPackedBooleans() {
+        BinaryFormat<Flags> format = BinaryFormat.of(Flags.class);
+        Flags flags = new Flags(true, false, true, false, false, false, false, true, true);
+
+        byte[] encoded = format.encode(flags);
+        assertArrayEquals(new byte[]{(byte) 0b10000101, 1}, encoded);
+        assertEquals(flags, format.decode(encoded));
+    }
+
+    @Test
+    void testVarInts() {
+        BinaryFormat<Numbers> format = BinaryFormat.of(Numbers.class);
+
+        Numbers small = new Numbers((byte) 1, 'a', (short) -1, 1, -1L, 0f, 0d);
+        // 1 + 1 + 1 + 1 + 1 bytes of varints, fixed size floating point numbers
+        assertEquals(5 + 4 + 8, format.encode(small).length);
+        assertEquals(small, format.decode(format.encode(small)));
+
+        Numbers extremes = new Numbers(Byte.MIN_VALUE, Character.MAX_VALUE, Short.MIN_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Float.NaN, Double.NEGATIVE_INFINITY);
+        assertEquals(extremes, format.decode(format.encode(extremes)));
+    }
+
+    @Test
+    void testStrings() {
+        record Text(String value) {
+        }
+        BinaryFormat<Text> format = BinaryFormat.of(Text.class);
+
+        Text ascii = new Text("hello");
+        assertArrayEquals(new byte[]{1, 5, 'h', 'e', 'l', 'l', 'o'}, format.encode(ascii));
+        assertEquals(ascii, format.decode(format.encode(ascii)));
+
+        Text unicode = new Text("žluťoučký kůň 🐎");
+        assertEquals(unicode, format.decode(format.encode(unicode)));
+
+        Text missing = new Text(null);
+        assertArrayEquals(new byte[]{0}, format.encode(missing));
+        assertEquals(missing, format.decode(format.encode(missing)));
+    }
+
+    @Test
+    void testCorruptedLengths() {
+        record Text(String value) {
+        }
+        record Samples(double[] values, List<String> names) {
+        }
+        BinaryFormat<Text> text = BinaryFormat.of(Text.class);
+        BinaryFormat<Samples> samples = BinaryFormat.of(Samples.class);
+
+        // varint lengths of Integer.MAX_VALUE and -1
+        assertThrows(IllegalArgumentException.class,
+                () -> text.decode(new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'a'}));
+        assertThrows(IllegalArgumentException.class,
+                () -> text.decode(new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 'a'}));
+        // two doubles do not fit in the eight remaining bytes
+        assertThrows(IllegalArgumentException.class,
+                () -> samples.decode(new byte[]{1, 2, 0, 0, 0, 0, 0, 0, 0, 0}));
+        // hundred names do not fit in the two remaining bytes
+        assertThrows(IllegalArgumentException.class,
+                () -> samples.decode(new byte[]{1, 0, 1, 100, 0, 0}));
+
+        Samples decoded = samples.decode(new byte[]{1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 1, 2, 0, 0});
+        assertArrayEquals(new double[]{0}, decoded.values());
+        assertEquals(Arrays.asList(null, null), decoded.names());
+    }
+
+    @Test
+    void testNestedModels() throws Exception {
+        Codec<Player, byte[]> codec = BinaryFormat.codec(Player.class);
+        Numbers stats = new Numbers((byte) 2, 'x', (short) 300, 70_000, 1L << 40, 1.5f, -2.25);
+        Player parent = new Player("Parent", Mode.CREATIVE, null, null, null);
+        Player player = new Player("Player", Mode.SURVIVAL, stats, 12, parent);
+
+        assertEquals(player, codec.decode(codec.encode(player)));
+    }
+
+    @Test
+    void testBufferCodec() throws Exception {
+        Codec<Numbers, ByteBuffer> codec = BinaryFormat.of(Numbers.class).bufferCodec();
+        Numbers numbers = new Numbers((byte) 3, 'q', (short) 4, 5, 6L, 7f, 8d);
+
+        ByteBuffer buffer = codec.encode(numbers);
+        assertEquals(numbers, codec.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testLittleEndianBuffer() {
+        BinaryFormat<Numbers> format = BinaryFormat.of(Numbers.class);
+        Numbers numbers = new Numbers((byte) 3, 'q', (short) 4, 5, 6L, 7.5f, -8.25);
+
+        // fixed size values are big-endian regardless of the byte order of the buffer
+        ByteBuffer buffer = ByteBuffer.wrap(format.encode(numbers)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(numbers, format.decode(buffer));
+    }
+
+    public record Roster(UUID id, List<Player> players, Map<Mode, Set<String>> names, int[] scores,
+                         Numbers[] history) {
+    }
+
+    @Test
+    void testContainers() {
+        BinaryFormat<Roster> format = BinaryFormat.of(Roster.class);
+        Player player = new Player("Player", Mode.SURVIVAL, null, 1, null);
+        Roster roster = new Roster(UUID.randomUUID(), List.of(player), Map.of(Mode.CREATIVE, Set.of("a", "b")),
+                new int[]{-1, 300}, new Numbers[]{null});
+
+        Roster decoded = format.decode(format.encode(roster));
+        assertEquals(roster.id(), decoded.id());
+        assertEquals(roster.players(), decoded.players());
+        assertEquals(roster.names(), decoded.names());
+        assertArrayEquals(roster.scores(), decoded.scores());
+        assertArrayEquals(roster.history(), decoded.history());
+    }
+
+    public record Untyped(Object value) {
+    }
+
+    @Test
+    void testUnsupportedAttribute() {
+        // the format fails when it is created, not once a value is encoded
+        assertThrows(IllegalArgumentException.class, () -> BinaryFormat.of(Untyped.class));
+    }
+
+}
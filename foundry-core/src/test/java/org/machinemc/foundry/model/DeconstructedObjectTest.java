@@ -229,6 +229,65 @@ public class DeconstructedObjectTest {
         }
     }
 
+    @Test
+    void testViewOfContainer() throws Exception {
+        var deconstructor = DeconstructedObject.createDeconstructor(SimpleRecord.class);
+        var constructor = DeconstructedObject.createConstructor(SimpleRecord.class);
+
+        SimpleRecord original = new SimpleRecord("View", 7, 0.5f);
+        DeconstructedObject deconstructed = deconstructor.transform(original);
+        assertEquals(3, deconstructed.size());
+        assertEquals(deconstructed.asList(), deconstructed.asList());
+        assertNotSame(deconstructed.asList().get(1), deconstructed.asList().get(1));
+        assertThrows(UnsupportedOperationException.class, () -> deconstructed.asList().remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> deconstructed.asList().get(3));
+
+        DeconstructedObject materialized = new DeconstructedObject(new ArrayList<>(deconstructed.asList()));
+        assertEquals(materialized, deconstructed);
+        assertEquals(materialized.hashCode(), deconstructed.hashCode());
+        assertEquals(deconstructed, DeconstructedObject.createDeconstructor(SimpleRecord.class).transform(original));
+
+        assertEquals(original, constructor.transform(deconstructed));
+        assertEquals(original, constructor.transform(materialized));
+    }
+
+    @Test
+    void testFieldLookup() throws Exception {
+        var deconstructor = DeconstructedObject.createDeconstructor(SimpleRecord.class);
+        DeconstructedObject deconstructed = deconstructor.transform(new SimpleRecord("Lookup", 12, 2.5f));
+        DeconstructedObject materialized = new DeconstructedObject(new ArrayList<>(deconstructed.asList()));
+
+        for (DeconstructedObject object : List.of(deconstructed, materialized)) {
+            assertEquals(0, object.indexOf("key"));
+            assertEquals(2, object.indexOf("factor"));
+            assertEquals(-1, object.indexOf("missing"));
+
+            assertEquals(12, object.getInt(object.indexOf("value")));
+            assertEquals(12, object.getInt("value"));
+            assertEquals(2.5f, object.getFloat("factor"));
+            assertEquals("Lookup", object.getObject("key"));
+            assertEquals("value", object.get("value").name());
+
+            assertThrows(IllegalArgumentException.class, () -> object.getLong("value"));
+            assertThrows(IllegalArgumentException.class, () -> object.getObject("value"));
+            assertThrows(IllegalArgumentException.class, () -> object.getInt("missing"));
+            assertThrows(IndexOutOfBoundsException.class, () -> object.getInt(3));
+        }
+    }
+
+    public record EmptyRecord() {
+    }
+
+    @Test
+    void testEmptyObject() throws Exception {
+        var codec = DeconstructedObject.codec(EmptyRecord.class);
+        DeconstructedObject deconstructed = codec.encode(new EmptyRecord());
+        assertEquals(0, deconstructed.size());
+        assertEquals(List.of(), deconstructed.asList());
+        assertThrows(IndexOutOfBoundsException.class, () -> deconstructed.get(0));
+        assertEquals(new EmptyRecord(), codec.decode(new DeconstructedObject(List.of())));
+    }
+
     Optional<DeconstructedObject.Field> getField(DeconstructedObject obj, String name) {
         for (var field : obj) {
             if (field.name().equals(name))
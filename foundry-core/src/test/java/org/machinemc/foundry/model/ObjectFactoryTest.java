@@ -3,7 +3,34 @@ package org.machinemc.foundry.model;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -298,4 +325,678 @@ public class ObjectFactoryTest {
         assertEquals(100, copy.getLevel());
     }
 
+    @Test
+    void testFactoriesAreShared() {
+        ObjectFactory<SimpleRecord> factory = ObjectFactory.create(SimpleRecord.class);
+
+        assertSame(factory, ObjectFactory.create(SimpleRecord.class));
+        assertSame(factory, ObjectFactory.create(SimpleRecord.class, ClassModel.of(SimpleRecord.class)));
+        assertSame(ObjectFactory.create(Priority.class), ObjectFactory.create(Priority.class));
+    }
+
+    @Test
+    void testFactoriesAreSeparatedByClassModel() {
+        ClassModel<CustomConstructorClass> classModel = ClassModel.ofClass(
+                CustomConstructorClass.class,
+                ClassModel.ModellingStrategy.STRUCTURE,
+                () -> new CustomConstructorClass(7)
+        );
+        ObjectFactory<CustomConstructorClass> custom = ObjectFactory.create(CustomConstructorClass.class, classModel);
+
+        assertSame(custom, ObjectFactory.create(CustomConstructorClass.class, classModel));
+        assertNotSame(custom, ObjectFactory.create(CustomConstructorClass.class));
+    }
+
+    @Test
+    void testWriteIntoReusedContainer() {
+        ObjectFactory<DirectFieldPojo> model = ObjectFactory.create(DirectFieldPojo.class);
+        ModelDataContainer container = model.containerFactory().acquire();
+
+        DirectFieldPojo first = new DirectFieldPojo("First", 1, 1.5);
+        model.write(first, container);
+        assertEquals(first, model.read(container));
+
+        DirectFieldPojo second = new DirectFieldPojo("Second", 2, 2.5);
+        model.write(second, container);
+        assertEquals(second, model.read(container));
+    }
+
+    @Test
+    void testContainerPool() {
+        ModelDataContainer.Factory factory = ObjectFactory.create(DirectFieldPojo.class).containerFactory();
+        ModelDataContainer container = factory.acquire();
+        container.writeObject("text");
+
+        factory.release(container);
+        ModelDataContainer reused = factory.acquire();
+
+        assertSame(container, reused);
+        assertNull(reused.readObject(), "Released container should not keep object references");
+        assertThrows(IllegalArgumentException.class,
+                () -> factory.release(ObjectFactory.create(IntsRecord.class).newContainer()));
+    }
+
+    public record MixedPrimitives(boolean flag, char letter, byte tiny, short small, long big, float ratio,
+                                  double precise, String text) {
+    }
+
+    @Test
+    void testContainerSlots() {
+        ObjectFactory<MixedPrimitives> model = ObjectFactory.create(MixedPrimitives.class);
+        MixedPrimitives original = new MixedPrimitives(true, 'x', (byte) -3, (short) -300, Long.MIN_VALUE,
+                -1.5f, Double.NaN, "text");
+        ModelDataContainer.Factory factory = model.containerFactory();
+
+        ModelDataContainer container = model.write(original);
+
+        assertEquals(original, model.read(container));
+        assertEquals(Long.MIN_VALUE, container.getLong(factory.slotOf(4)));
+        assertEquals("text", container.getObject(factory.slotOf(7)));
+        assertEquals(0, factory.slotOf(7));
+    }
+
+    @Test
+    void testOffHeapContainer() {
+        ObjectFactory<MixedPrimitives> model = ObjectFactory.create(MixedPrimitives.class);
+        MixedPrimitives original = new MixedPrimitives(false, 'y', (byte) 7, (short) 12, 42L, 0.25f, -8.5, "off");
+
+        ModelDataContainer container;
+        try (Arena arena = Arena.ofConfined()) {
+            container = model.write(original, arena);
+            assertTrue(container.isNative());
+            assertEquals(original, model.read(container));
+
+            model.containerFactory().release(container);
+            assertNotSame(container, model.containerFactory().acquire(), "Off-heap containers are not pooled");
+        }
+        assertThrows(IllegalStateException.class, () -> model.read(container));
+    }
+
+    public record Task(String name, Priority priority, SimpleRecord detail, Integer retries) {
+    }
+
+    @Test
+    void testBufferRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        ObjectFactory<MixedPrimitives> mixed = ObjectFactory.create(MixedPrimitives.class);
+        MixedPrimitives primitives = new MixedPrimitives(true, 'x', (byte) -3, (short) 300, -7L, 1.5f, 2.25, null);
+        mixed.write(primitives, buffer);
+        // 1 + 2 + 1 + 2 + 8 + 4 + 8 bytes of primitives and a single byte for missing text
+        assertEquals(27, buffer.position());
+
+        ObjectFactory<SubEntity3> entity = ObjectFactory.create(SubEntity3.class);
+        SubEntity3 hierarchy = new SubEntity3(1024, "Deep Hierarchy", true, 99.99);
+        entity.write(hierarchy, buffer);
+
+        ObjectFactory<Task> task = ObjectFactory.create(Task.class);
+        Task nested = new Task("render", Priority.MEDIUM, new SimpleRecord("frame", 60, 0.5f), 3);
+        task.write(nested, buffer);
+
+        buffer.flip();
+        assertEquals(primitives, mixed.read(buffer));
+        assertEquals(hierarchy, entity.read(buffer));
+        assertEquals(nested, task.read(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    public static class Inventory {
+        public UUID owner;
+        public Map<String, List<Integer>> slots;
+        public Set<Priority> flags;
+        public Node[] nodes;
+    }
+
+    public static class Opaque {
+        public Object value;
+    }
+
+    public static class LabeledNode extends Node {
+        public String label;
+    }
+
+    @Test
+    void testBufferContainers() {
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+
+        ObjectFactory<Node> nodes = ObjectFactory.create(Node.class);
+        Node root = new Node("root");
+        root.next = new Node("next");
+        root.children = List.of(new Node("child"));
+        root.weights = new int[]{4, 5};
+        nodes.write(root, buffer);
+
+        ObjectFactory<Inventory> inventories = ObjectFactory.create(Inventory.class);
+        Inventory inventory = new Inventory();
+        inventory.owner = UUID.randomUUID();
+        inventory.slots = Map.of("main", List.of(1, 2), "off", List.of());
+        inventory.flags = Set.of(Priority.LOW, Priority.HIGH);
+        inventory.nodes = new Node[]{new Node("stored"), null};
+        inventories.write(inventory, buffer);
+
+        buffer.flip();
+        Node readRoot = nodes.read(buffer);
+        assertEquals("root", readRoot.name);
+        assertEquals("next", readRoot.next.name);
+        assertEquals("child", readRoot.children.getFirst().name);
+        assertArrayEquals(root.weights, readRoot.weights);
+
+        Inventory readInventory = inventories.read(buffer);
+        assertEquals(inventory.owner, readInventory.owner);
+        assertEquals(inventory.slots, readInventory.slots);
+        assertEquals(inventory.flags, readInventory.flags);
+        assertEquals("stored", readInventory.nodes[0].name);
+        assertNull(readInventory.nodes[1]);
+        assertFalse(buffer.hasRemaining());
+
+        // subclasses of the declared type would lose their state
+        root.next = new LabeledNode();
+        assertThrows(IllegalArgumentException.class, () -> nodes.write(root, buffer.clear()));
+        // the declared type does not describe how to encode the value
+        assertThrows(IllegalArgumentException.class,
+                () -> ObjectFactory.create(Opaque.class).write(new Opaque(), buffer.clear()));
+    }
+
+    public record Samples(String label, int[] values) {
+    }
+
+    @Test
+    void testBufferCorruptedLengths() {
+        ObjectFactory<Samples> factory = ObjectFactory.create(Samples.class);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        factory.write(new Samples("ab", new int[]{1, 2}), buffer);
+        buffer.flip();
+
+        // presence marker, length and bytes of the label, then presence marker and length of the values
+        assertEquals(2, buffer.getInt(1));
+        assertEquals(2, buffer.getInt(8));
+        for (int length : new int[]{-1, Integer.MAX_VALUE}) {
+            ByteBuffer corrupted = ByteBuffer.allocate(buffer.remaining()).put(0, buffer, 0, buffer.remaining());
+            assertThrows(IllegalArgumentException.class, () -> factory.read(corrupted.putInt(1, length)));
+        }
+        // the elements of the values would need more bytes than there are remaining
+        ByteBuffer corrupted = ByteBuffer.allocate(buffer.remaining()).put(0, buffer, 0, buffer.remaining());
+        assertThrows(IllegalArgumentException.class, () -> factory.read(corrupted.putInt(8, 3)));
+        assertArrayEquals(new int[]{1, 2}, factory.read(buffer).values());
+    }
+
+    @Test
+    void testMemorySegmentRoundTrip() {
+        ObjectFactory<DirectFieldPojo> model = ObjectFactory.create(DirectFieldPojo.class);
+        DirectFieldPojo original = new DirectFieldPojo("Segment", 7, -1.25);
+        MemorySegment segment = MemorySegment.ofArray(new byte[64]);
+
+        long written = model.write(original, segment);
+        // presence byte, length and UTF-8 bytes of the text, int and double
+        assertEquals(1 + 4 + 7 + 4 + 8, written);
+        assertEquals(original, model.read(segment));
+    }
+
+    public static class Node {
+        public String name;
+        public Node next;
+        public List<Node> children;
+        public int[] weights;
+
+        public Node() {
+        }
+
+        public Node(String name) {
+            this.name = name;
+        }
+    }
+
+    public record Graph(Node root, Node[] nodes, SimpleRecord detail) {
+    }
+
+    @Test
+    void testShallowCopy() {
+        ObjectFactory<Node> model = ObjectFactory.create(Node.class);
+        Node original = new Node("root");
+        original.next = new Node("next");
+        original.weights = new int[]{1, 2, 3};
+
+        Node copy = model.copy(original);
+        assertNotSame(original, copy);
+        assertEquals("root", copy.name);
+        assertSame(original.next, copy.next);
+        assertSame(original.weights, copy.weights);
+
+        Task task = new Task("Shallow", Priority.LOW, new SimpleRecord("key", 1, 1f), 2);
+        Task taskCopy = Copier.shallow(Task.class).copy(task);
+        assertEquals(task, taskCopy);
+        assertSame(task.detail(), taskCopy.detail());
+    }
+
+    @Test
+    void testDeepCopy() {
+        Node root = new Node("root");
+        Node child = new Node("child");
+        root.next = child;
+        child.next = root;
+        root.children = List.of(child, child);
+        root.weights = new int[]{4, 5};
+
+        Node copy = Copier.deep(Node.class).copy(root);
+        assertNotSame(root, copy);
+        assertNotSame(child, copy.next);
+        assertEquals("child", copy.next.name);
+        assertSame(copy, copy.next.next);
+        assertSame(copy.next, copy.children.get(0));
+        assertSame(copy.next, copy.children.get(1));
+        assertNotSame(root.weights, copy.weights);
+        assertArrayEquals(root.weights, copy.weights);
+    }
+
+    @Test
+    void testDeepCopyRecord() {
+        Node shared = new Node("shared");
+        Graph graph = new Graph(shared, new Node[]{shared, null}, new SimpleRecord("detail", 3, 0.5f));
+
+        Graph copy = Copier.deep(Graph.class).copy(graph);
+        assertNotSame(shared, copy.root());
+        assertSame(copy.root(), copy.nodes()[0]);
+        assertNull(copy.nodes()[1]);
+        assertNotSame(graph.detail(), copy.detail());
+        assertEquals(graph.detail(), copy.detail());
+
+        assertSame(Priority.HIGH, ObjectFactory.create(Priority.class).copy(Priority.HIGH));
+        assertThrows(NullPointerException.class, () -> Copier.deep(Graph.class).copy(null));
+    }
+
+    public static class Containers {
+        public LinkedList<Node> linked;
+        public ArrayDeque<String> deque;
+        public TreeMap<String, Node> sorted;
+        public EnumMap<Priority, Node> byPriority;
+        public List<Node> immutable;
+        public Map<String, Node> immutableMap;
+        public Optional<Node> optional;
+        public UUID id;
+        public Instant created;
+        public AtomicInteger counter;
+        public AtomicReference<Node> reference;
+        public Date date;
+        public BitSet bits;
+    }
+
+    public static class Wrapper {
+        public Object value;
+    }
+
+    @Test
+    void testDeepCopyContainers() {
+        Node node = new Node("node");
+        Containers containers = new Containers();
+        containers.linked = new LinkedList<>(List.of(node));
+        containers.deque = new ArrayDeque<>(List.of("first", "second"));
+        containers.sorted = new TreeMap<>(Comparator.reverseOrder());
+        containers.sorted.put("a", node);
+        containers.sorted.put("b", null);
+        containers.byPriority = new EnumMap<>(Priority.class);
+        containers.byPriority.put(Priority.HIGH, node);
+        containers.immutable = List.of(node);
+        containers.immutableMap = Map.of("node", node);
+        containers.optional = Optional.of(node);
+        containers.id = UUID.randomUUID();
+        containers.created = Instant.now();
+        containers.counter = new AtomicInteger(7);
+        containers.reference = new AtomicReference<>(node);
+        containers.date = new Date(1000);
+        containers.bits = BitSet.valueOf(new long[]{5});
+
+        Containers copy = Copier.deep(Containers.class).copy(containers);
+        Node copiedNode = copy.linked.getFirst();
+        assertNotSame(node, copiedNode);
+        assertEquals("node", copiedNode.name);
+        assertNotSame(containers.deque, copy.deque);
+        assertEquals(List.of("first", "second"), List.copyOf(copy.deque));
+        assertEquals(List.of("b", "a"), List.copyOf(copy.sorted.keySet()));
+        assertSame(copiedNode, copy.sorted.get("a"));
+        assertSame(copiedNode, copy.byPriority.get(Priority.HIGH));
+        assertSame(copiedNode, copy.immutable.getFirst());
+        assertThrows(UnsupportedOperationException.class, () -> copy.immutable.add(node));
+        assertSame(copiedNode, copy.immutableMap.get("node"));
+        assertThrows(UnsupportedOperationException.class, () -> copy.immutableMap.put("other", node));
+        assertSame(copiedNode, copy.optional.orElseThrow());
+        assertSame(containers.id, copy.id);
+        assertSame(containers.created, copy.created);
+        assertNotSame(containers.counter, copy.counter);
+        assertEquals(7, copy.counter.get());
+        assertSame(copiedNode, copy.reference.get());
+        assertNotSame(containers.date, copy.date);
+        assertEquals(containers.date, copy.date);
+        assertNotSame(containers.bits, copy.bits);
+        assertEquals(containers.bits, copy.bits);
+
+        // mutable JDK types that can not be copied are not shared with the copy
+        Copier<Wrapper> copier = Copier.deep(Wrapper.class);
+        for (Object value : List.of(Collections.unmodifiableList(containers.linked), new Random(),
+                new AtomicIntegerArray(1))) {
+            Wrapper wrapper = new Wrapper();
+            wrapper.value = value;
+            assertThrows(IllegalArgumentException.class, () -> copier.copy(wrapper));
+        }
+    }
+
+    @Test
+    void testDeepCopyRecordCycle() {
+        Owner owner = new Owner();
+        owner.holder = new Holder(owner, null);
+
+        Owner copy = Copier.deep(Owner.class).copy(owner);
+        assertSame(copy, copy.holder.owner());
+        // the holder record can not be created before its owner
+        assertThrows(IllegalArgumentException.class, () -> Copier.deep(Holder.class).copy(owner.holder));
+    }
+
+    @Test
+    void testDiff() {
+        Differ<MixedPrimitives> differ = Differ.of(MixedPrimitives.class);
+        MixedPrimitives previous = new MixedPrimitives(true, 'a', (byte) 1, (short) 2, 3L, Float.NaN, 6.5, "text");
+
+        assertArrayEquals(new long[]{0}, differ.diff(previous,
+                new MixedPrimitives(true, 'a', (byte) 1, (short) 2, 3L, Float.NaN, 6.5, new String("text"))));
+        assertFalse(differ.changed(previous, previous));
+
+        MixedPrimitives current = new MixedPrimitives(false, 'a', (byte) 1, (short) 2, 4L, Float.NaN, -0.0, null);
+        assertArrayEquals(new long[]{0b1101_0001}, differ.diff(previous, current));
+        assertTrue(differ.changed(previous, current));
+
+        long[] changed = new long[1];
+        ObjectFactory.create(DirectFieldPojo.class).diff(new DirectFieldPojo("same", 1, 0.0),
+                new DirectFieldPojo("same", 2, 0.0), changed);
+        assertEquals(1, Long.bitCount(changed[0]));
+    }
+
+    public record Series(int[] values, String[][] labels) {
+    }
+
+    @Test
+    void testDiffArrays() {
+        Differ<Series> differ = Differ.of(Series.class);
+        Series previous = new Series(new int[]{1, 2}, new String[][]{{"a"}, {"b"}});
+
+        // arrays are compared by their contents, not by reference
+        assertFalse(differ.changed(previous, Copier.deep(Series.class).copy(previous)));
+        assertArrayEquals(new long[]{0b01}, differ.diff(previous, new Series(new int[]{1, 3}, previous.labels())));
+        assertArrayEquals(new long[]{0b10},
+                differ.diff(previous, new Series(previous.values(), new String[][]{{"a"}, {"c"}})));
+    }
+
+    @Test
+    void testDelta() {
+        Differ<SubEntity3> differ = Differ.of(SubEntity3.class);
+        SubEntity3 previous = new SubEntity3(1, "name", true, 1.5);
+        SubEntity3 current = new SubEntity3(1, "renamed", true, -1.0);
+
+        ModelDataDelta delta = differ.delta(previous, current);
+        assertEquals(2, delta.changes());
+        assertFalse(delta.isEmpty());
+        assertTrue(differ.delta(previous, previous).isEmpty());
+
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        delta.write(buffer);
+        buffer.flip();
+        ModelDataDelta read = differ.read(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertArrayEquals(delta.changed(), read.changed());
+
+        SubEntity3 applied = differ.apply(previous, read);
+        assertNotSame(current, applied);
+        assertEquals(current, applied);
+        assertArrayEquals(new long[]{0}, differ.diff(current, applied));
+
+        Differ<IntsRecord> other = Differ.of(IntsRecord.class);
+        assertThrows(IllegalArgumentException.class, () -> other.apply(new IntsRecord(1, 2, 3), delta));
+    }
+
+    public static class Owner {
+        public String name;
+        public Holder holder;
+        public Owner partner;
+    }
+
+    public record Holder(Owner owner, SimpleRecord detail) {
+    }
+
+    @Test
+    void testObjectGraph() {
+        Owner first = new Owner();
+        first.name = "first";
+        Owner second = new Owner();
+        second.name = "second";
+        first.partner = second;
+        second.partner = first;
+        first.holder = new Holder(first, new SimpleRecord("detail", 3, 0.5f));
+        second.holder = first.holder;
+
+        ObjectGraphFactory<Owner> factory = ObjectGraphFactory.of(Owner.class);
+        ModelDataGraph graph = factory.write(first);
+        assertEquals(4, graph.size());
+        assertSame(Owner.class, graph.type(0));
+
+        Owner read = factory.read(graph);
+        assertNotSame(first, read);
+        assertEquals("first", read.name);
+        assertEquals("second", read.partner.name);
+        assertSame(read, read.partner.partner);
+        assertSame(read, read.holder.owner());
+        assertSame(read.holder, read.partner.holder);
+        assertEquals(first.holder.detail(), read.holder.detail());
+
+        Owner again = factory.read(graph);
+        assertNotSame(read, again);
+        assertSame(again, again.partner.partner);
+
+        // reading resolves the references without modifying the graph
+        ModelDataContainer.Factory owners = ObjectFactory.create(Owner.class).containerFactory();
+        int partner = owners.slotOf(Arrays.stream(owners.attributes()).map(ModelAttribute::name).toList()
+                .indexOf("partner"));
+        assertInstanceOf(ModelDataGraph.Reference.class, graph.container(0).getObject(partner));
+    }
+
+    @Test
+    void testObjectGraphCycles() {
+        Owner owner = new Owner();
+        owner.holder = new Holder(owner, null);
+
+        // the holder record can not be created before its owner
+        assertThrows(IllegalArgumentException.class, () -> ObjectGraphFactory.of(Holder.class).write(owner.holder));
+        assertThrows(IllegalArgumentException.class, () -> ObjectGraphFactory.of(Owner.class, false).write(owner));
+
+        Owner shared = new Owner();
+        shared.name = "shared";
+        Owner root = new Owner();
+        root.holder = new Holder(shared, null);
+        root.partner = shared;
+
+        ObjectGraphFactory<Owner> factory = ObjectGraphFactory.of(Owner.class, false);
+        assertFalse(factory.preservesIdentity());
+        ModelDataGraph graph = factory.write(root);
+        assertEquals(4, graph.size());
+        Owner read = factory.read(graph);
+        assertNotSame(read.partner, read.holder.owner());
+        assertEquals("shared", read.holder.owner().name);
+    }
+
+    @Test
+    void testObjectGraphChain() {
+        Owner root = new Owner();
+        Owner last = root;
+        for (int i = 0; i < 100_000; i++) {
+            last.partner = new Owner();
+            last = last.partner;
+        }
+        last.name = "last";
+
+        for (boolean identity : new boolean[]{true, false}) {
+            ObjectGraphFactory<Owner> factory = ObjectGraphFactory.of(Owner.class, identity);
+            ModelDataGraph graph = factory.write(root);
+            assertEquals(100_001, graph.size());
+            Owner read = factory.read(graph);
+            while (read.partner != null) read = read.partner;
+            assertEquals("last", read.name);
+        }
+    }
+
+    public static class ReadOnly {
+        private final String value = "read only";
+    }
+
+    public static class OpaqueHolder {
+        public ReadOnly opaque;
+        public Owner owner;
+    }
+
+    @Test
+    void testObjectGraphOpaque() {
+        OpaqueHolder holder = new OpaqueHolder();
+        holder.opaque = new ReadOnly();
+        holder.owner = new Owner();
+
+        // class model of ReadOnly can not be built, its values are kept as they are
+        assertThrows(IllegalStateException.class, () -> ClassModel.of(ReadOnly.class));
+        ObjectGraphFactory<OpaqueHolder> factory = ObjectGraphFactory.of(OpaqueHolder.class);
+        ModelDataGraph graph = factory.write(holder);
+        assertEquals(2, graph.size());
+        OpaqueHolder read = factory.read(graph);
+        assertSame(holder.opaque, read.opaque);
+        assertNotSame(holder.owner, read.owner);
+    }
+
+    public record Vec3(double x, double y, double z) {
+    }
+
+    public record FlatEntity(int id, @Flatten Vec3 position, String name) {
+    }
+
+    public static class FlatBody {
+        public String name;
+        @Flatten
+        public Vec3 velocity;
+        public int ticks;
+    }
+
+    public static class InvalidFlatten {
+        @Flatten
+        public String name;
+    }
+
+    @Test
+    void testFlattenedRecord() {
+        ObjectFactory<FlatEntity> factory = ObjectFactory.create(FlatEntity.class);
+        ModelAttribute[] attributes = factory.containerFactory().attributes();
+        assertEquals(List.of("id", "position.x", "position.y", "position.z", "name"),
+                Arrays.stream(attributes).map(ModelAttribute::name).toList());
+        assertTrue(attributes[1].primitive());
+
+        FlatEntity entity = new FlatEntity(7, new Vec3(1.5, -2, 3.25), "entity");
+        ModelDataContainer container = factory.write(entity);
+        assertEquals(-2, container.getDouble(factory.containerFactory().slotOf(2)));
+        assertEquals(entity, factory.read(container));
+
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        factory.write(entity, buffer);
+        buffer.flip();
+        assertEquals(entity, factory.read(buffer));
+
+        FlatEntity copy = Copier.deep(FlatEntity.class).copy(entity);
+        assertEquals(entity, copy);
+        assertNotSame(entity.position(), copy.position());
+
+        FlatEntity moved = new FlatEntity(7, new Vec3(1.5, 4, 3.25), "entity");
+        assertArrayEquals(new long[]{0b100}, Differ.of(FlatEntity.class).diff(entity, moved));
+
+        assertThrows(NullPointerException.class, () -> factory.write(new FlatEntity(1, null, "null")));
+    }
+
+    @Test
+    void testFlattenedField() {
+        ObjectFactory<FlatBody> factory = ObjectFactory.create(FlatBody.class);
+        assertEquals(5, factory.containerFactory().attributes().length);
+
+        FlatBody body = new FlatBody();
+        body.name = "body";
+        body.velocity = new Vec3(0.5, 0, -9.81);
+        body.ticks = 20;
+
+        FlatBody read = factory.read(factory.write(body));
+        assertEquals("body", read.name);
+        assertEquals(body.velocity, read.velocity);
+        assertEquals(20, read.ticks);
+
+        FlatBody copy = factory.copy(body);
+        assertEquals(body.velocity, copy.velocity);
+
+        assertThrows(IllegalStateException.class, () -> ClassModel.of(InvalidFlatten.class));
+    }
+
+    @GenerateFactory
+    public record WarmedUp(int value) {
+    }
+
+    @Test
+    void testWarmUp() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Map<Class<?>, Duration> times = ObjectFactory.warmUp(List.of(WarmedUp.class, SubEntity3.class), executor)
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals(List.of(WarmedUp.class, SubEntity3.class), List.copyOf(times.keySet()));
+            times.values().forEach(time -> assertFalse(time.isNegative()));
+
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> ObjectFactory.warmUp(List.of(Runnable.class), executor).get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testDiscover() throws Exception {
+        List<Class<?>> discovered = ObjectFactory.discover("org.machinemc.foundry.model",
+                getClass().getClassLoader(), GenerateFactory.class);
+        assertEquals(List.of(WarmedUp.class), discovered);
+
+        assertEquals(List.of(), ObjectFactory.discover("org.machinemc.foundry.model.missing",
+                getClass().getClassLoader(), GenerateFactory.class));
+    }
+
+    @Test
+    void testBatchRoundTrip() {
+        ObjectFactory<MixedPrimitives> model = ObjectFactory.create(MixedPrimitives.class);
+        MixedPrimitives[] originals = {
+                new MixedPrimitives(true, 'a', (byte) 1, (short) 2, 3L, 4.5f, 6.5, "first"),
+                new MixedPrimitives(false, 'b', (byte) -1, (short) -2, -3L, -4.5f, -6.5, null),
+                new MixedPrimitives(true, 'c', Byte.MAX_VALUE, Short.MIN_VALUE, Long.MAX_VALUE, Float.NaN,
+                        Double.MIN_VALUE, "third")
+        };
+
+        ModelDataBatch batch = model.writeAll(originals);
+        assertEquals(originals.length, batch.size());
+        assertEquals(8, batch.columns());
+        assertEquals(List.of(originals), model.readAll(batch));
+
+        ObjectFactory<IntsRecord> other = ObjectFactory.create(IntsRecord.class);
+        assertThrows(IllegalArgumentException.class, () -> other.readAll(batch));
+    }
+
+    @Test
+    void testBatchColumns() {
+        ObjectFactory<IntsRecord> model = ObjectFactory.create(IntsRecord.class);
+        IntsRecord[] originals = new IntsRecord[100];
+        for (int i = 0; i < originals.length; i++) originals[i] = new IntsRecord(i, i * 2, i * 3);
+
+        ModelDataBatch batch = model.writeAll(originals);
+        int middle = batch.columnOf("middle");
+        assertEquals("middle", batch.attribute(middle).name());
+        assertEquals(-1, batch.columnOf("missing"));
+        assertEquals(9900, Arrays.stream(batch.intColumn(middle)).sum());
+        assertThrows(IllegalArgumentException.class, () -> batch.longColumn(middle));
+
+        batch.intColumn(middle)[0] = 42;
+        assertEquals(new IntsRecord(0, 42, 0), model.readAll(batch).getFirst());
+    }
+
 }
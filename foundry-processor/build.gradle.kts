@@ -0,0 +1,30 @@
+plugins {
+    id("java-library-convention")
+    `maven-publish`
+}
+
+dependencies {
+    testImplementation(project(":foundry-core"))
+    testImplementation(libs.jetbrains.annotations)
+}
+
+publishing {
+    repositories {
+        maven {
+            name = "machine"
+            url = uri("https://repo.machinemc.org/releases")
+            credentials(PasswordCredentials::class)
+            authentication {
+                create<BasicAuthentication>("basic")
+            }
+        }
+    }
+    publications {
+        create<MavenPublication>("maven") {
+            groupId = "org.machinemc"
+            artifactId = "foundry-processor"
+            version = project.version.toString()
+            from(components["java"])
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.machinemc.foundry.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Annotation processor generating object factories at compile time for records
+ * annotated with {@code org.machinemc.foundry.model.GenerateFactory}.
+ * <p>
+ * The generated factory is placed in the same package as the record and is found
+ * by {@code ObjectFactory.create(Class)} at runtime.
+ */
+@SupportedAnnotationTypes(ObjectFactoryProcessor.ANNOTATION)
+public final class ObjectFactoryProcessor extends AbstractProcessor {
+
+    /**
+     * Name of the annotation marking the types to generate factories for.
+     */
+    static final String ANNOTATION = "org.machinemc.foundry.model.GenerateFactory";
+
+    /**
+     * Name of the annotation marking the flattened record attributes.
+     */
+    static final String FLATTEN = "org.machinemc.foundry.model.Flatten";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.RECORD) {
+                    error(element, "Object factories can be generated only for records");
+                    continue;
+                }
+                if (!accessible(element)) {
+                    error(element, "Records with generated object factories can not be private");
+                    continue;
+                }
+                if (hasFlattened((TypeElement) element)) {
+                    error(element, "Records with flattened components can not have generated object factories");
+                    continue;
+                }
+                generate((TypeElement) element);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates the source file of the object factory for given record.
+     *
+     * @param type record
+     */
+    private void generate(TypeElement type) {
+        ObjectFactorySource source = new ObjectFactorySource(processingEnv.getElementUtils(),
+                processingEnv.getTypeUtils(), type);
+        try (Writer writer = processingEnv.getFiler().createSourceFile(source.qualifiedName(), type).openWriter()) {
+            writer.write(source.generate());
+        } catch (IOException exception) {
+            error(type, "Failed to write object factory: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * @param element element
+     * @return whether the element and all its enclosing types are accessible from their package
+     */
+    private static boolean accessible(Element element) {
+        for (Element current = element; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param record record
+     * @return whether any component of the record is flattened
+     */
+    private static boolean hasFlattened(TypeElement record) {
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            for (AnnotationMirror annotation : component.getAnnotationMirrors()) {
+                TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+                if (type.getQualifiedName().contentEquals(FLATTEN)) return true;
+            }
+        }
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
@@ -0,0 +1,258 @@
+package org.machinemc.foundry.processor;
+
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Source of an object factory generated for a record.
+ * <p>
+ * The generated factory matches the one generated at runtime for the default class model
+ * of the record: record components are the attributes, primitive and object attributes
+ * have separate slots in the model data container, in the order of the components.
+ */
+final class ObjectFactorySource {
+
+    private static final String MODEL_PACKAGE = "org.machinemc.foundry.model";
+    private static final String SUFFIX = "_ObjectFactory";
+
+    private final Types types;
+    private final String packageName;
+    private final String simpleName;
+    private final String recordName;
+    private final List<Attribute> attributes;
+
+    /**
+     * @param elements element utilities
+     * @param types type utilities
+     * @param record record to generate the factory for
+     */
+    ObjectFactorySource(Elements elements, Types types, TypeElement record) {
+        this.types = types;
+        PackageElement packageElement = elements.getPackageOf(record);
+        packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(record).toString();
+        simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace('$', '_') + SUFFIX;
+        recordName = record.getQualifiedName().toString();
+
+        int primitives = 0, objects = 0;
+        List<? extends RecordComponentElement> components = record.getRecordComponents();
+        Attribute[] attributes = new Attribute[components.size()];
+        for (int i = 0; i < attributes.length; i++) {
+            RecordComponentElement component = components.get(i);
+            Kind kind = Kind.of(component.asType());
+            int slot = kind == Kind.OBJECT ? objects++ : primitives++;
+            attributes[i] = new Attribute(i, component.getAccessor().getSimpleName().toString(),
+                    typeName(component.asType()), kind, slot);
+        }
+        this.attributes = List.of(attributes);
+    }
+
+    /**
+     * @return qualified name of the generated factory
+     */
+    String qualifiedName() {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    /**
+     * @return source code of the generated factory
+     */
+    String generate() {
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+
+        StringJoiner primitive = new StringJoiner(", ");
+        for (Attribute attribute : attributes) primitive.add(String.valueOf(attribute.kind() != Kind.OBJECT));
+
+        source.append("@javax.annotation.processing.Generated(\"")
+                .append(ObjectFactoryProcessor.class.getName()).append("\")\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(simpleName)
+                .append(" extends ").append(MODEL_PACKAGE).append(".ObjectFactory<").append(recordName)
+                .append("> {\n\n");
+        // encodings of the object attributes, resolved from the generic types of the components
+        for (Attribute attribute : attributes) {
+            if (attribute.kind() != Kind.OBJECT) continue;
+            source.append("    private static final ").append(MODEL_PACKAGE).append(".ValueEncoding ")
+                    .append(attribute.encoding()).append(" = ").append(MODEL_PACKAGE).append(".ValueEncoding.of(")
+                    .append(recordName).append(".class.getRecordComponents()[").append(attribute.index())
+                    .append("].getGenericType());\n");
+        }
+        if (attributes.stream().anyMatch(attribute -> attribute.kind() == Kind.OBJECT)) source.append("\n");
+        source.append("    public ").append(simpleName).append("() {\n")
+                .append("        super(").append(MODEL_PACKAGE).append(".ModelDataContainer.Factory.of(")
+                .append(recordName).append(".class");
+        if (!attributes.isEmpty()) source.append(", ").append(primitive);
+        source.append("));\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void write(").append(recordName).append(" instance, ")
+                .append(MODEL_PACKAGE).append(".ModelDataContainer container) {\n")
+                .append("        container.reset();\n");
+        for (Attribute attribute : attributes) {
+            source.append("        container.").append(attribute.kind().setter).append("(").append(attribute.slot())
+                    .append(", instance.").append(attribute.accessor()).append("());\n");
+        }
+        source.append("    }\n\n");
+
+        StringJoiner containerArgs = new StringJoiner(",\n                ");
+        for (Attribute attribute : attributes) {
+            String value = "container." + attribute.kind().getter + "(" + attribute.slot() + ")";
+            containerArgs.add(attribute.kind() == Kind.OBJECT ? "(" + attribute.type() + ") " + value : value);
+        }
+        source.append("    @Override\n")
+                .append("    public ").append(recordName).append(" read(")
+                .append(MODEL_PACKAGE).append(".ModelDataContainer container) {\n")
+                .append("        return new ").append(recordName).append("(").append(containerArgs).append(");\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void write(").append(recordName).append(" instance, java.nio.ByteBuffer buffer) {\n");
+        for (Attribute attribute : attributes) {
+            String value = "instance." + attribute.accessor() + "()";
+            source.append("        ").append(switch (attribute.kind()) {
+                case BOOLEAN -> "buffer.put((byte) (" + value + " ? 1 : 0))";
+                case OBJECT -> MODEL_PACKAGE + ".BufferValues.writeObject(buffer, " + value + ", "
+                        + attribute.encoding() + ")";
+                default -> "buffer." + attribute.kind().put + "(" + value + ")";
+            }).append(";\n");
+        }
+        source.append("    }\n\n");
+
+        StringJoiner bufferArgs = new StringJoiner(",\n                ");
+        for (Attribute attribute : attributes) {
+            bufferArgs.add(switch (attribute.kind()) {
+                case BOOLEAN -> MODEL_PACKAGE + ".BufferValues.readBool(buffer)";
+                case OBJECT -> "(" + attribute.type() + ") " + MODEL_PACKAGE + ".BufferValues.readObject(buffer, "
+                        + attribute.encoding() + ")";
+                default -> "buffer." + attribute.kind().get + "()";
+            });
+        }
+        source.append("    @Override\n")
+                .append("    public ").append(recordName).append(" read(java.nio.ByteBuffer buffer) {\n")
+                .append("        return new ").append(recordName).append("(").append(bufferArgs).append(");\n")
+                .append("    }\n\n");
+
+        StringJoiner copyArgs = new StringJoiner(",\n                ");
+        for (Attribute attribute : attributes) {
+            String value = "instance." + attribute.accessor() + "()";
+            copyArgs.add(attribute.kind() == Kind.OBJECT
+                    ? "(" + attribute.type() + ") context.copy(" + value + ")"
+                    : value);
+        }
+        source.append("    @Override\n")
+                .append("    public ").append(recordName).append(" copy(").append(recordName).append(" instance, ")
+                .append(MODEL_PACKAGE).append(".CopyContext context) {\n")
+                .append("        ").append(recordName).append(" copy = new ").append(recordName).append("(")
+                .append(copyArgs).append(");\n")
+                .append("        context.register(instance, copy);\n")
+                .append("        return copy;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void diff(").append(recordName).append(" previous, ").append(recordName)
+                .append(" current, long[] changed, ").append(MODEL_PACKAGE).append(".ModelDataContainer values) {\n");
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            String previous = "previous." + attribute.accessor() + "()";
+            String current = "current." + attribute.accessor() + "()";
+            String condition = switch (attribute.kind()) {
+                case FLOAT -> "Float.compare(" + previous + ", " + current + ") != 0";
+                case DOUBLE -> "Double.compare(" + previous + ", " + current + ") != 0";
+                // arrays are compared by their contents, snapshots and decoded objects never share them
+                case OBJECT -> attribute.type().matches("(boolean|char|byte|short|int|long|float|double)\\[]")
+                        ? "!java.util.Arrays.equals(" + previous + ", " + current + ")"
+                        : attribute.type().endsWith("[]")
+                        ? "!java.util.Arrays.deepEquals(" + previous + ", " + current + ")"
+                        : "!java.util.Objects.equals(" + previous + ", " + current + ")";
+                default -> previous + " != " + current;
+            };
+            source.append("        if (").append(condition).append(") {\n")
+                    .append("            changed[").append(i >>> 6).append("] |= 1L << ").append(i & 63).append(";\n")
+                    .append("            if (values != null) values.").append(attribute.kind().setter).append("(")
+                    .append(attribute.slot()).append(", ").append(current).append(");\n")
+                    .append("        }\n");
+        }
+        source.append("    }\n\n");
+
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * Returns the source name of the erasure of given type.
+     *
+     * @param type type
+     * @return source name of the erasure
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erasure = types.erasure(type);
+        return switch (erasure.getKind()) {
+            case DECLARED -> ((TypeElement) ((DeclaredType) erasure).asElement()).getQualifiedName().toString();
+            case ARRAY -> typeName(((ArrayType) erasure).getComponentType()) + "[]";
+            default -> erasure.getKind().name().toLowerCase();
+        };
+    }
+
+    /**
+     * Attribute of the record.
+     *
+     * @param index index of the record component
+     * @param accessor name of the accessor method
+     * @param type source name of the erased type
+     * @param kind kind of the attribute
+     * @param slot slot of the attribute in the model data container
+     */
+    private record Attribute(int index, String accessor, String type, Kind kind, int slot) {
+
+        /**
+         * @return name of the constant with the value encoding of the attribute
+         */
+        String encoding() {
+            return "ENCODING_" + index;
+        }
+
+    }
+
+    /**
+     * Kinds of attributes, with the methods used to access them.
+     */
+    private enum Kind {
+
+        BOOLEAN("getBool", "setBool", null, null),
+        CHAR("getChar", "setChar", "getChar", "putChar"),
+        BYTE("getByte", "setByte", "get", "put"),
+        SHORT("getShort", "setShort", "getShort", "putShort"),
+        INT("getInt", "setInt", "getInt", "putInt"),
+        LONG("getLong", "setLong", "getLong", "putLong"),
+        FLOAT("getFloat", "setFloat", "getFloat", "putFloat"),
+        DOUBLE("getDouble", "setDouble", "getDouble", "putDouble"),
+        OBJECT("getObject", "setObject", null, null);
+
+        final String getter, setter, get, put;
+
+        Kind(String getter, String setter, String get, String put) {
+            this.getter = getter;
+            this.setter = setter;
+            this.get = get;
+            this.put = put;
+        }
+
+        static Kind of(TypeMirror type) {
+            TypeKind kind = type.getKind();
+            return kind.isPrimitive() ? valueOf(kind.name()) : OBJECT;
+        }
+
+    }
+
+}
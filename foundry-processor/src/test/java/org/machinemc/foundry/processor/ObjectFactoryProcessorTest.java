@@ -0,0 +1,152 @@
+package org.machinemc.foundry.processor;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.machinemc.foundry.Codec;
+import org.machinemc.foundry.model.ClassModel;
+import org.machinemc.foundry.model.DeconstructedObject;
+import org.machinemc.foundry.model.Differ;
+import org.machinemc.foundry.model.ModelDataContainer;
+import org.machinemc.foundry.model.ObjectFactory;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ObjectFactoryProcessor Tests")
+public class ObjectFactoryProcessorTest {
+
+    @TempDir
+    Path output;
+
+    @Test
+    void testGeneratedFactory() throws Exception {
+        String source = """
+                package sample;
+
+                import org.machinemc.foundry.model.GenerateFactory;
+
+                public class Outer {
+                    @GenerateFactory
+                    public record Point(int x, long y, boolean visible, char symbol, String label) {
+                    }
+                }
+                """;
+        assertEquals(List.of(), compile("sample.Outer", source));
+        assertTrue(Files.exists(output.resolve("sample/Outer_Point_ObjectFactory.java")));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toUri().toURL()},
+                getClass().getClassLoader())) {
+            Class<?> type = loader.loadClass("sample.Outer$Point");
+            @SuppressWarnings("unchecked")
+            ObjectFactory<Object> factory = ObjectFactory.create((Class<Object>) type);
+            assertEquals("sample.Outer_Point_ObjectFactory", factory.getClass().getName());
+
+            Object point = type.getConstructors()[0].newInstance(3, -4L, true, 'p', "origin");
+            ModelDataContainer container = factory.write(point);
+            assertEquals(point, factory.read(container));
+
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            factory.write(point, buffer);
+            buffer.flip();
+            assertEquals(point, factory.read(buffer));
+
+            assertEquals(point, factory.copy(point));
+
+            Object moved = type.getConstructors()[0].newInstance(3, 5L, true, 'p', "moved");
+            long[] changed = new long[1];
+            factory.diff(point, moved, changed);
+            assertEquals(0b10010, changed[0]);
+            Differ<Object> differ = Differ.of((Class<Object>) type);
+            assertEquals(moved, differ.apply(point, differ.delta(point, moved)));
+
+            // the default class model uses the generated factory as well
+            ClassModel<Object> model = ClassModel.of((Class<Object>) type);
+            assertSame(factory, ObjectFactory.create((Class<Object>) type, model));
+            Codec<Object, DeconstructedObject> codec = DeconstructedObject.codec((Class<Object>) type);
+            assertEquals(point, codec.decode(codec.encode(point)));
+        }
+    }
+
+    @Test
+    void testGenericComponents() throws Exception {
+        String source = """
+                package sample;
+
+                import java.util.List;
+                import org.machinemc.foundry.model.GenerateFactory;
+
+                @GenerateFactory
+                record Tagged<T extends Comparable<T>>(T value, List<String> tags, int[] counts, String[][] names) {
+                }
+                """;
+        assertEquals(List.of(), compile("sample.Tagged", source));
+    }
+
+    @Test
+    void testRejectsClasses() throws Exception {
+        String source = """
+                package sample;
+
+                @org.machinemc.foundry.model.GenerateFactory
+                public class NotRecord {
+                }
+                """;
+        List<String> errors = compile("sample.NotRecord", source);
+        assertEquals(List.of("Object factories can be generated only for records"), errors);
+    }
+
+    private static String location(Class<?> type) throws Exception {
+        return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+    /**
+     * Compiles the source with the processor to the output directory.
+     *
+     * @param name qualified name of the compiled class
+     * @param source source code
+     * @return compilation errors
+     */
+    private List<String> compile(String name, String source) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            files.setLocation(StandardLocation.CLASS_OUTPUT, List.of(output.toFile()));
+            files.setLocation(StandardLocation.SOURCE_OUTPUT, List.of(output.toFile()));
+            JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/')
+                    + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+            // the generated sources need only foundry-core and its annotations
+            String classpath = location(ObjectFactory.class) + File.pathSeparator + location(ApiStatus.class);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics,
+                    List.of("-classpath", classpath), null, List.of(file));
+            task.setProcessors(List.of(new ObjectFactoryProcessor()));
+            task.call();
+        }
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == javax.tools.Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .toList();
+    }
+
+}
@@ -1,6 +1,7 @@
 rootProject.name = "Foundry"
 
 include("foundry-core")
+include("foundry-processor")
 
 pluginManagement {
     includeBuild("build-logic")